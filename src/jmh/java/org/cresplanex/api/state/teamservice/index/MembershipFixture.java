@@ -0,0 +1,129 @@
+package org.cresplanex.api.state.teamservice.index;
+
+import org.cresplanex.api.state.teamservice.entity.TeamUserEntity;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * ベンチマーク用に生成したメンバーシップ.
+ * DBから読み込んだ行と同じく, team_id/user_idの文字列は行ごとに別のインスタンスとする.
+ * 1ユーザーあたり平均MEMBERSHIPS_PER_USER件, 1チームあたり平均MEMBERSHIPS_PER_TEAM件.
+ */
+final class MembershipFixture {
+
+    static final int MEMBERSHIPS_PER_USER = 10;
+    static final int MEMBERSHIPS_PER_TEAM = 50;
+    private static final LocalDateTime BASE = LocalDateTime.of(2026, 1, 1, 0, 0);
+
+    final int size;
+    final String[] teamIds;
+    final String[] userIds;
+    final String[] teamUserIds;
+    final LocalDateTime[] createdAt;
+    /**
+     * 引き当てに使うユーザーID(行とは別のインスタンス).
+     */
+    final String[] probeUserIds;
+
+    MembershipFixture(int size, long seed) {
+        this.size = size;
+        Random random = new Random(seed);
+        String[] distinctTeamIds = randomIds(Math.max(1, size / MEMBERSHIPS_PER_TEAM), random);
+        String[] distinctUserIds = randomIds(Math.max(1, size / MEMBERSHIPS_PER_USER), random);
+        teamIds = new String[size];
+        userIds = new String[size];
+        teamUserIds = new String[size];
+        createdAt = new LocalDateTime[size];
+        for (int i = 0; i < size; i++) {
+            // 同じ(team, user)の組は作らない: ユーザーiの所属チームは連続した別のチームにする
+            int user = i % distinctUserIds.length;
+            int team = (user + i / distinctUserIds.length) % distinctTeamIds.length;
+            teamIds[i] = new String(distinctTeamIds[team]);
+            userIds[i] = new String(distinctUserIds[user]);
+            teamUserIds[i] = new UUID(random.nextLong(), random.nextLong()).toString();
+            createdAt[i] = BASE.plusSeconds(random.nextInt(86_400 * 365));
+        }
+        probeUserIds = new String[1024];
+        for (int i = 0; i < probeUserIds.length; i++) {
+            probeUserIds[i] = new String(distinctUserIds[random.nextInt(distinctUserIds.length)]);
+        }
+    }
+
+    /**
+     * TeamServiceが一覧の組み立てで作っていた, IDごとにTeamUserEntityのリストを持つ素朴な形.
+     * インデックスと同じ引き当て(ユーザー → 所属チーム)で比べるため, ユーザーIDでまとめる.
+     */
+    Map<String, List<TeamUserEntity>> naive() {
+        Map<String, List<TeamUserEntity>> byUser = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            TeamUserEntity teamUser = new TeamUserEntity();
+            teamUser.setTeamUserId(teamUserIds[i]);
+            teamUser.setTeamId(teamIds[i]);
+            teamUser.setUserId(userIds[i]);
+            teamUser.setCreatedAt(createdAt[i]);
+            byUser.computeIfAbsent(userIds[i], key -> new ArrayList<>()).add(teamUser);
+        }
+        return byUser;
+    }
+
+    /**
+     * MembershipIndexと同じ形. IDは序数に置き換え, ユーザーごとの所属チームをint配列で持つ.
+     */
+    Interned interned() {
+        IdInterner teams = new IdInterner(size / MEMBERSHIPS_PER_TEAM);
+        IdInterner users = new IdInterner(size / MEMBERSHIPS_PER_USER);
+        int[] teamOrdinals = new int[size];
+        int[] userOrdinals = new int[size];
+        for (int i = 0; i < size; i++) {
+            teamOrdinals[i] = teams.intern(teamIds[i]);
+            userOrdinals[i] = users.intern(userIds[i]);
+        }
+
+        // ユーザーの序数ごとに行をまとめる(counting sort)
+        int[] offsets = new int[users.size() + 1];
+        for (int i = 0; i < size; i++) {
+            offsets[userOrdinals[i] + 1]++;
+        }
+        for (int u = 0; u < users.size(); u++) {
+            offsets[u + 1] += offsets[u];
+        }
+        int[] next = offsets.clone();
+        int[] ordered = new int[size];
+        for (int i = 0; i < size; i++) {
+            ordered[next[userOrdinals[i]]++] = i;
+        }
+
+        UserTeams[] byUser = new UserTeams[users.size()];
+        for (int u = 0; u < users.size(); u++) {
+            int count = offsets[u + 1] - offsets[u];
+            int[] userTeams = new int[count];
+            String[] userTeamUserIds = new String[count];
+            long[] addedAt = new long[count];
+            for (int k = 0; k < count; k++) {
+                int row = ordered[offsets[u] + k];
+                userTeams[k] = teamOrdinals[row];
+                userTeamUserIds[k] = teamUserIds[row];
+                addedAt[k] = Timestamps.toMicros(createdAt[row]);
+            }
+            byUser[u] = UserTeams.sorted(userTeams, userTeamUserIds, addedAt, count);
+        }
+        return new Interned(teams, users, byUser);
+    }
+
+    record Interned(IdInterner teams, IdInterner users, UserTeams[] byUser) {
+    }
+
+    private static String[] randomIds(int count, Random random) {
+        String[] ids = new String[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = new UUID(random.nextLong(), random.nextLong()).toString();
+        }
+        return ids;
+    }
+}
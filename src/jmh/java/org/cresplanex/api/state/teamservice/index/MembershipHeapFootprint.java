@@ -0,0 +1,29 @@
+package org.cresplanex.api.state.teamservice.index;
+
+import org.openjdk.jol.info.GraphLayout;
+
+/**
+ * MembershipLayoutBenchmarkと同じデータで, 各形式が保持するヒープの大きさ(到達可能なオブジェクトの合計)を表示する.
+ * 素朴な形はTeamUserEntityと行ごとのID文字列を, インデックスは重複を除いたIDとint/long配列を保持する.
+ *
+ * <pre>
+ * ./gradlew membershipHeapFootprint
+ * </pre>
+ */
+public class MembershipHeapFootprint {
+
+    public static void main(String[] args) {
+        int[] sizes = args.length > 0
+                ? java.util.Arrays.stream(args).mapToInt(Integer::parseInt).toArray()
+                : new int[]{100_000, 1_000_000};
+        System.out.printf("%12s %18s %18s %14s %14s%n",
+                "memberships", "naive bytes", "interned bytes", "naive B/m", "interned B/m");
+        for (int size : sizes) {
+            MembershipFixture fixture = new MembershipFixture(size, 42);
+            long naive = GraphLayout.parseInstance(fixture.naive()).totalSize();
+            long interned = GraphLayout.parseInstance(fixture.interned()).totalSize();
+            System.out.printf("%12d %18d %18d %14d %14d%n",
+                    size, naive, interned, naive / size, interned / size);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package org.cresplanex.api.state.teamservice.index;
+
+import org.cresplanex.api.state.teamservice.entity.TeamUserEntity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * メンバーシップの保持形式の比較. Map&lt;String, List&lt;TeamUserEntity&gt;&gt;とIdInterner + UserTeams(MembershipIndexの形)で,
+ * 構築にかかる時間と, ユーザーの所属チームを引き当てる時間を測る.
+ * 割り当て量は-prof gc(build.gradleのjmh.profilers)で, 保持するヒープはMembershipHeapFootprintで測る.
+ *
+ * <pre>
+ * ./gradlew jmh -PjmhIncludes=MembershipLayoutBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MembershipLayoutBenchmark {
+
+    @Param({"100000", "1000000"})
+    private int memberships;
+
+    private MembershipFixture fixture;
+    private Map<String, List<TeamUserEntity>> naive;
+    private MembershipFixture.Interned interned;
+    private int probe;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fixture = new MembershipFixture(memberships, 42);
+        naive = fixture.naive();
+        interned = fixture.interned();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Map<String, List<TeamUserEntity>> buildNaive() {
+        return fixture.naive();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public MembershipFixture.Interned buildInterned() {
+        return fixture.interned();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public void lookupNaive(Blackhole blackhole) {
+        List<TeamUserEntity> teamUsers = naive.get(nextProbe());
+        for (TeamUserEntity teamUser : teamUsers) {
+            blackhole.consume(teamUser.getTeamId());
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public void lookupInterned(Blackhole blackhole) {
+        int user = interned.users().ordinalOf(nextProbe());
+        UserTeams userTeams = interned.byUser()[user];
+        for (int team : userTeams.teams) {
+            blackhole.consume(interned.teams().idOf(team));
+        }
+    }
+
+    private String nextProbe() {
+        String[] probes = fixture.probeUserIds;
+        return probes[probe++ & (probes.length - 1)];
+    }
+}
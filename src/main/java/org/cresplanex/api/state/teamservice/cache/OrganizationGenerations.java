@@ -0,0 +1,92 @@
+package org.cresplanex.api.state.teamservice.cache;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 組織ごとの書き込みの世代番号.
+ * Teamの変更通知ごとに, そのチームの組織と全体の世代を進める.
+ * 組織が分からない変更(削除済みのチーム)はepochを進め, すべての世代を無効とみなす.
+ * ローカルの書き込みはSagaのコマンドハンドラがコミット直後に同期的に進め, 非同期の変更通知を待たずに無効化する.
+ * 結果を再利用するキャッシュは, 読み込み前に取得したstampと現在のstampが一致する場合のみ結果を使う.
+ */
+@Component
+public class OrganizationGenerations implements TeamChangeListener {
+
+    private final ConcurrentHashMap<String, AtomicLong> generations = new ConcurrentHashMap<>();
+    private final AtomicLong global = new AtomicLong();
+    private final AtomicLong epoch = new AtomicLong();
+
+    @Override
+    public void onTeamChanged(String teamId, String organizationId, long version) {
+        if (organizationId == null) {
+            epoch.incrementAndGet();
+            return;
+        }
+        advance(organizationId);
+    }
+
+    /**
+     * 組織の世代を進める. トランザクション中であればコミット後に進める.
+     *
+     * @param organizationIds 書き込んだチームの組織ID(組織に属さないチームはnull)
+     */
+    public void advanceAfterCommit(Collection<String> organizationIds) {
+        List<String> targets = organizationIds.stream().distinct().toList();
+        afterCommit(() -> targets.forEach(this::advance));
+    }
+
+    public void advanceAfterCommit(String organizationId) {
+        afterCommit(() -> advance(organizationId));
+    }
+
+    /**
+     * 組織が分からない書き込み(補償での削除など)の後に, すべての世代を無効にする.
+     */
+    public void advanceAllAfterCommit() {
+        afterCommit(epoch::incrementAndGet);
+    }
+
+    private void advance(String organizationId) {
+        if (organizationId != null) {
+            generations.computeIfAbsent(organizationId, key -> new AtomicLong()).incrementAndGet();
+        }
+        global.incrementAndGet();
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * @param organizationIds 結果が依存する組織ID. nullの場合は全組織
+     * @return 現在の世代番号の組
+     */
+    public long[] stamp(List<String> organizationIds) {
+        if (organizationIds == null) {
+            return new long[]{epoch.get(), global.get()};
+        }
+        long[] stamp = new long[organizationIds.size() + 1];
+        stamp[0] = epoch.get();
+        for (int i = 0; i < organizationIds.size(); i++) {
+            AtomicLong generation = generations.get(organizationIds.get(i));
+            stamp[i + 1] = generation == null ? 0 : generation.get();
+        }
+        return stamp;
+    }
+}
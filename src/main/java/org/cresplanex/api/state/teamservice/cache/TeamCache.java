@@ -0,0 +1,117 @@
+package org.cresplanex.api.state.teamservice.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.cresplanex.api.state.teamservice.config.TeamCacheProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * TeamのスナップショットをteamIdで保持するプロセス内キャッシュ.
+ * 重みはメンバー数に比例し, 大きなチームほど先に追い出される.
+ * 読み込みはキャッシュのロックの外で行い, 格納時にversionを比べる.
+ * イベントで通知されたversionより古いスナップショットは格納しないため, 読み込み中に無効化された場合も古い値は残らない.
+ * (メンバーの書き込みも含め, 全ての変更でteams.versionが増加することが前提)
+ */
+@Component
+public class TeamCache implements TeamChangeListener, MeterBinder {
+
+    private static final String CACHE_NAME = "team";
+
+    private final Cache<String, TeamSnapshot> cache;
+
+    /**
+     * チームごとに通知された最新のversion. これ未満のスナップショットは古いとみなす.
+     */
+    private final Cache<String, Long> versionWatermarks;
+
+    public TeamCache(TeamCacheProperties properties) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(properties.getMaximumWeight())
+                .weigher((String teamId, TeamSnapshot snapshot) -> snapshot.weight())
+                .expireAfterWrite(properties.getExpireAfterWrite())
+                .recordStats()
+                .build();
+        // キャッシュのエントリより長く生存する必要はない
+        this.versionWatermarks = Caffeine.newBuilder()
+                .expireAfterWrite(properties.getExpireAfterWrite())
+                .build();
+    }
+
+    /**
+     * メンバーを含まないスナップショットを取得する. メンバー付きのエントリがあればそれを使う.
+     *
+     * @param teamId チームID
+     * @param loader キャッシュにない場合の読み込み処理
+     * @return スナップショット
+     */
+    public TeamSnapshot get(String teamId, Function<String, TeamSnapshot> loader) {
+        return get(teamId, loader, snapshot -> true);
+    }
+
+    /**
+     * メンバー付きのスナップショットを取得する. メンバーを含まないエントリは読み込み直して置き換える.
+     *
+     * @param teamId チームID
+     * @param loader メンバー付きで読み込む処理
+     * @return スナップショット
+     */
+    public TeamSnapshot getWithUsers(String teamId, Function<String, TeamSnapshot> loader) {
+        return get(teamId, loader, TeamSnapshot::hasMembers);
+    }
+
+    private TeamSnapshot get(String teamId, Function<String, TeamSnapshot> loader, Predicate<TeamSnapshot> usable) {
+        TeamSnapshot cached = cache.getIfPresent(teamId);
+        if (cached != null && usable.test(cached)) {
+            return cached;
+        }
+        // 読み込み(DBアクセス)はcomputeの外で行い, ハッシュのビンのロックを保持したまま待たない
+        TeamSnapshot loaded = loader.apply(teamId);
+        cache.asMap().compute(teamId, (key, current) -> {
+            // 遅れて読み込んだ古い値は呼び出し元には返すが, 格納はしない
+            if (isStale(loaded)) {
+                return current;
+            }
+            // 並行して格納された値の方が新しい, または同じversionでメンバーを含む場合はそちらを残す
+            if (current != null && (current.version() > loaded.version()
+                    || (current.version() == loaded.version() && current.hasMembers() && !loaded.hasMembers()))) {
+                return current;
+            }
+            return loaded;
+        });
+        return loaded;
+    }
+
+    private boolean isStale(TeamSnapshot snapshot) {
+        Long watermark = versionWatermarks.getIfPresent(snapshot.teamId());
+        return watermark != null && snapshot.version() < watermark;
+    }
+
+    /**
+     * 他ノードを含む書き込みの通知. versionを記録してからエントリを取り除く.
+     * 順序が入れ替わって古いversionが届いた場合も, 記録済みの大きい方を保持する.
+     */
+    @Override
+    public void onTeamChanged(String teamId, String organizationId, long version) {
+        versionWatermarks.asMap().merge(teamId, version, Math::max);
+        cache.invalidate(teamId);
+    }
+
+    public void invalidate(String teamId) {
+        cache.invalidate(teamId);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, CACHE_NAME);
+    }
+}
@@ -0,0 +1,15 @@
+package org.cresplanex.api.state.teamservice.cache;
+
+/**
+ * Teamもしくはそのメンバーが変更されたことを受け取るキャッシュ.
+ * ドメインイベントを受信した各ノードで呼び出される.
+ */
+public interface TeamChangeListener {
+
+    /**
+     * @param teamId 変更されたチームID
+     * @param organizationId チームの組織ID. チームが存在しない場合はnull
+     * @param version 変更を反映した時点のteamsのversion. チームが存在しない場合はLong.MAX_VALUE
+     */
+    void onTeamChanged(String teamId, String organizationId, long version);
+}
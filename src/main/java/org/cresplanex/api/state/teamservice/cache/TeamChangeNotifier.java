@@ -0,0 +1,74 @@
+package org.cresplanex.api.state.teamservice.cache;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.cresplanex.api.state.teamservice.repository.TeamRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Teamの変更をすべてのTeamChangeListenerへ通知する.
+ * versionは通知時点でDBから取得するため, 呼び出し順に関わらず単調に増加する.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TeamChangeNotifier {
+
+    private final TeamRepository teamRepository;
+    private final List<TeamChangeListener> teamChangeListeners;
+    private final ExecutorService teamChangeExecutor;
+
+    /**
+     * 現在のスレッドで通知する. ドメインイベントの受信時に利用する.
+     *
+     * @param teamId 変更されたチームID
+     */
+    public void notify(String teamId) {
+        // 削除済み(undo)のチームは以降どのversionも古いとみなす
+        Optional<TeamRepository.TeamChangeState> state = teamRepository.findChangeStateById(teamId);
+        long version = state.map(TeamRepository.TeamChangeState::getVersion).orElse(Long.MAX_VALUE);
+        String organizationId = state.map(TeamRepository.TeamChangeState::getOrganizationId).orElse(null);
+        for (TeamChangeListener listener : teamChangeListeners) {
+            listener.onTeamChanged(teamId, organizationId, version);
+        }
+    }
+
+    /**
+     * ローカルの書き込み後に通知する. トランザクション中であればコミット後に, 別スレッドで通知する.
+     * 未コミットの状態をキャッシュやインデックスへ読み込まないため.
+     *
+     * @param teamIds 変更されたチームID
+     */
+    public void notifyAfterCommit(Collection<String> teamIds) {
+        List<String> targets = List.copyOf(teamIds);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            submit(targets);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                submit(targets);
+            }
+        });
+    }
+
+    private void submit(List<String> teamIds) {
+        teamChangeExecutor.execute(() -> {
+            for (String teamId : teamIds) {
+                try {
+                    notify(teamId);
+                } catch (Exception e) {
+                    log.warn("Failed to notify team change: {}", teamId, e);
+                }
+            }
+        });
+    }
+}
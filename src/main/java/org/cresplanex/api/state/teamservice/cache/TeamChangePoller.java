@@ -0,0 +1,51 @@
+package org.cresplanex.api.state.teamservice.cache;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.cresplanex.api.state.teamservice.config.CacheInvalidationProperties;
+import org.cresplanex.api.state.teamservice.repository.TeamRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * ドメインイベントを発行しない書き込み(デフォルトチームへの追加や一括取り込みなど)や, 取りこぼしたイベントに備え,
+ * 作成/更新日時がウォーターマーク以降のチームを定期的に読み込み, TeamChangeNotifierで通知する.
+ * メンバーの変更もteams.updated_atを進めるため, ノードごとにこのポーリングだけで追い付ける.
+ * ウォーターマークは前回の開始時刻からpollMarginを差し引き, コミットの遅れや時計のずれで取りこぼさないようにする.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TeamChangePoller {
+
+    private final TeamRepository teamRepository;
+    private final TeamChangeNotifier teamChangeNotifier;
+    private final CacheInvalidationProperties properties;
+
+    private LocalDateTime polledAt = LocalDateTime.now();
+
+    @Scheduled(
+            initialDelayString = "${app.cache.invalidation.poll-interval:PT30S}",
+            fixedDelayString = "${app.cache.invalidation.poll-interval:PT30S}")
+    public void poll() {
+        if (!properties.isPollEnabled()) {
+            return;
+        }
+        LocalDateTime started = LocalDateTime.now();
+        List<String> teamIds = teamRepository.findTeamIdsChangedSince(polledAt.minus(properties.getPollMargin()));
+        for (String teamId : teamIds) {
+            try {
+                teamChangeNotifier.notify(teamId);
+            } catch (Exception e) {
+                log.warn("Failed to notify polled team change: {}", teamId, e);
+            }
+        }
+        polledAt = started;
+        if (!teamIds.isEmpty()) {
+            log.debug("Polled {} changed team(s)", teamIds.size());
+        }
+    }
+}
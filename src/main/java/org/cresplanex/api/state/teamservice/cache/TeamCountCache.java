@@ -0,0 +1,79 @@
+package org.cresplanex.api.state.teamservice.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.cresplanex.api.state.teamservice.config.CountCacheProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.OptionalLong;
+
+/**
+ * Teamの一覧の件数をTeamCountKeyで保持するプロセス内キャッシュ.
+ * 件数とともに数える前に取得した組織の世代番号を保持し, 世代が進んでいるエントリは使わない.
+ * 数えている間に書き込みがあった場合も, 古いstampで格納されるため次の読み込みで捨てられる.
+ */
+@Component
+public class TeamCountCache implements MeterBinder {
+
+    private static final String CACHE_NAME = "team.count";
+
+    private final Cache<TeamCountKey, Entry> cache;
+    private final OrganizationGenerations organizationGenerations;
+
+    private record Entry(long count, long[] stamp) {
+    }
+
+    public TeamCountCache(CountCacheProperties properties, OrganizationGenerations organizationGenerations) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getExpireAfterWrite())
+                .recordStats()
+                .build();
+        this.organizationGenerations = organizationGenerations;
+    }
+
+    /**
+     * 件数を数える前に取得する.
+     *
+     * @param key 条件
+     * @return 条件が依存する組織の世代番号
+     */
+    public long[] stamp(TeamCountKey key) {
+        return organizationGenerations.stamp(key.organizationIds());
+    }
+
+    /**
+     * @param key 条件
+     * @param stamp 直前に取得したstamp
+     * @return stampが一致する場合のみ件数
+     */
+    public OptionalLong get(TeamCountKey key, long[] stamp) {
+        Entry entry = cache.getIfPresent(key);
+        if (entry == null || !Arrays.equals(entry.stamp(), stamp)) {
+            return OptionalLong.empty();
+        }
+        return OptionalLong.of(entry.count());
+    }
+
+    /**
+     * @param key 条件
+     * @param stamp 数える前に取得したstamp
+     * @param count 件数
+     */
+    public void put(TeamCountKey key, long[] stamp, long count) {
+        cache.put(key, new Entry(count, stamp));
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, CACHE_NAME);
+    }
+}
@@ -0,0 +1,40 @@
+package org.cresplanex.api.state.teamservice.cache;
+
+import org.cresplanex.api.state.teamservice.filter.team.IsDefaultFilter;
+import org.cresplanex.api.state.teamservice.filter.team.OrganizationFilter;
+import org.cresplanex.api.state.teamservice.filter.team.UsersFilter;
+
+import java.util.List;
+
+/**
+ * Teamの一覧の件数をキャッシュするためのキー.
+ * 無効なフィルタはnullとし, IDは重複を除いて整列するため, 同じ結果になる条件は同じキーになる.
+ *
+ * @param isDefault is_defaultの条件
+ * @param organizationIds 組織IDの条件
+ * @param userIds 所属ユーザーの条件
+ * @param anyUser userIdsのいずれかが所属するチームか(falseの場合はすべて)
+ */
+public record TeamCountKey(Boolean isDefault, List<String> organizationIds, List<String> userIds, boolean anyUser) {
+
+    public static TeamCountKey of(IsDefaultFilter isDefaultFilter, OrganizationFilter organizationFilter, UsersFilter usersFilter) {
+        Boolean isDefault = isDefaultFilter != null && isDefaultFilter.isValid() ? isDefaultFilter.isDefault() : null;
+        List<String> organizationIds = organizationFilter != null && organizationFilter.isValid()
+                ? normalize(organizationFilter.getOrganizationIds()) : null;
+        List<String> userIds = null;
+        boolean anyUser = false;
+        if (usersFilter != null && usersFilter.isValid()) {
+            userIds = normalize(usersFilter.getUserIds());
+            anyUser = usersFilter.isAny();
+            // allで空の場合は条件なしと同じ
+            if (!anyUser && userIds.isEmpty()) {
+                userIds = null;
+            }
+        }
+        return new TeamCountKey(isDefault, organizationIds, userIds, anyUser);
+    }
+
+    private static List<String> normalize(List<String> ids) {
+        return ids.stream().distinct().sorted().toList();
+    }
+}
@@ -0,0 +1,177 @@
+package org.cresplanex.api.state.teamservice.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.cresplanex.api.state.teamservice.config.TeamExistenceFilterProperties;
+import org.cresplanex.api.state.teamservice.service.MembershipIndexLoader;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 存在するチームIDのBloomフィルタ.
+ * フィルタにないIDは存在しないことが確定するため, DBを参照せずに拒否できる.
+ * 作成されたチームはTeamChangeListenerとして(他ノード分はドメインイベント経由で)登録する.
+ * Bloomフィルタからは削除できないため, チームの削除を通知されたら全件から作り直して差し替える.
+ * 作り直し中に登録されたIDは新しいフィルタにも登録し, 差し替えで取りこぼさない.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TeamExistenceFilter implements TeamChangeListener, MeterBinder {
+
+    private final TeamExistenceFilterProperties properties;
+    private final MembershipIndexLoader loader;
+
+    private final Object lock = new Object();
+    private volatile BloomFilter filter = BloomFilter.create(1, 0.5);
+    private volatile boolean ready;
+    /**
+     * 作り直し中に登録されたID. 作り直し中でなければnull.
+     */
+    private List<String> addedDuringRebuild;
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicBoolean rebuildRequested = new AtomicBoolean();
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void bootstrap() {
+        if (properties.isEnabled()) {
+            requestRebuild();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * フィルタで存在しないと確定したIDを返す. 構築前もしくは無効の場合は常に空.
+     *
+     * @param teamIds チームIDリスト
+     * @return 存在しないチームIDのリスト(引数の順序)
+     */
+    public List<String> findAbsent(Collection<String> teamIds) {
+        if (!properties.isEnabled() || !ready) {
+            return List.of();
+        }
+        BloomFilter current = filter;
+        List<String> absent = teamIds.stream()
+                .filter(teamId -> !current.mightContain(teamId))
+                .toList();
+        rejected.addAndGet(absent.size());
+        return absent;
+    }
+
+    /**
+     * チームIDを登録する. コミット前に登録してもよい(ロールバックされた場合は偽陽性になるだけ).
+     *
+     * @param teamId チームID
+     */
+    public void add(String teamId) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        boolean full;
+        synchronized (lock) {
+            filter.put(teamId);
+            if (addedDuringRebuild != null) {
+                addedDuringRebuild.add(teamId);
+            }
+            full = count.incrementAndGet() > filter.capacity();
+        }
+        if (full && ready) {
+            // 想定する要素数を超えると偽陽性率が上がるため, 大きいフィルタに作り直す
+            requestRebuild();
+        }
+    }
+
+    @Override
+    public void onTeamChanged(String teamId, String organizationId, long version) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        if (version == Long.MAX_VALUE) {
+            // 削除されたチーム
+            requestRebuild();
+        } else {
+            add(teamId);
+        }
+    }
+
+    private void requestRebuild() {
+        rebuildRequested.set(true);
+        if (!rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        Thread.ofPlatform().name("team-existence-filter-rebuild").start(() -> {
+            try {
+                // 作り直し中に要求された削除は, 作り直しをもう一度行って反映する
+                while (rebuildRequested.getAndSet(false)) {
+                    rebuild();
+                }
+            } catch (Exception e) {
+                // 失敗した場合は現在のフィルタを使い続ける(削除済みのIDが偽陽性になるだけ). 構築前であればDBで確認する
+                log.error("Failed to rebuild team existence filter", e);
+            } finally {
+                rebuilding.set(false);
+                if (rebuildRequested.get() && ready) {
+                    requestRebuild();
+                }
+            }
+        });
+    }
+
+    private void rebuild() {
+        long started = System.nanoTime();
+        synchronized (lock) {
+            addedDuringRebuild = new ArrayList<>();
+        }
+        try {
+            // 読み込み開始後にコミットされたチームは, コミット後の通知でaddedDuringRebuildへ入る
+            Set<String> teamIds = loader.findAllTeamIds();
+            BloomFilter next = BloomFilter.create(
+                    Math.max(properties.getMinimumCapacity(), teamIds.size() * 2L),
+                    properties.getFalsePositiveProbability());
+            teamIds.forEach(next::put);
+
+            synchronized (lock) {
+                addedDuringRebuild.forEach(next::put);
+                count.set(teamIds.size() + addedDuringRebuild.size());
+                filter = next;
+                ready = true;
+            }
+            log.info("Team existence filter built: {} teams, {} bits, {} hashes in {} ms",
+                    teamIds.size(), next.bitCount(), next.hashCount(), (System.nanoTime() - started) / 1_000_000);
+        } finally {
+            synchronized (lock) {
+                addedDuringRebuild = null;
+            }
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("team.existence.filter.size", count, AtomicLong::get)
+                .description("Team IDs added to the existence filter since the last rebuild")
+                .register(registry);
+        Gauge.builder("team.existence.filter.capacity", this, f -> f.filter.capacity())
+                .description("Expected insertions of the current existence filter")
+                .register(registry);
+        FunctionCounter.builder("team.existence.filter.rejected", rejected, AtomicLong::get)
+                .description("Team IDs rejected by the existence filter without a database lookup")
+                .register(registry);
+    }
+}
@@ -0,0 +1,91 @@
+package org.cresplanex.api.state.teamservice.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.cresplanex.api.state.teamservice.config.ListCacheProperties;
+import org.cresplanex.api.state.teamservice.enums.CountStrategy;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Teamの一覧結果をTeamListKeyで保持するプロセス内キャッシュ.
+ * エントリはページのチームIDと件数, 次ページのカーソルのみを持ち, Team自体は読み込み時にIDで取得する.
+ * 無効化はTeamCountCacheと同じく組織の世代番号で行い, 書き込みのなかった組織のページはそのまま使える.
+ * 無効化はstampの比較のみで, エントリを走査しない.
+ */
+@Component
+public class TeamListCache implements MeterBinder {
+
+    private static final String CACHE_NAME = "team.list";
+
+    private final boolean enabled;
+    private final Cache<TeamListKey, Page> cache;
+    private final OrganizationGenerations organizationGenerations;
+
+    /**
+     * @param teamIds ページのチームID(順序を保つ)
+     * @param count 件数
+     * @param countStrategy 件数を求めた方法. 件数を求めていない場合はnull
+     * @param nextCursor 次ページのカーソル
+     * @param stamp 読み込む前に取得した組織の世代番号
+     */
+    public record Page(List<String> teamIds, int count, CountStrategy countStrategy, String nextCursor, long[] stamp) {
+    }
+
+    public TeamListCache(ListCacheProperties properties, OrganizationGenerations organizationGenerations) {
+        this.enabled = properties.isEnabled();
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(properties.getMaximumWeight())
+                .weigher((TeamListKey key, Page page) -> 1 + page.teamIds().size())
+                .expireAfterWrite(properties.getExpireAfterWrite())
+                .recordStats()
+                .build();
+        this.organizationGenerations = organizationGenerations;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 一覧を読み込む前に取得する.
+     *
+     * @param key 条件
+     * @return 条件が依存する組織の世代番号
+     */
+    public long[] stamp(TeamListKey key) {
+        return organizationGenerations.stamp(key.filter().organizationIds());
+    }
+
+    /**
+     * @param key 条件
+     * @param stamp 直前に取得したstamp
+     * @return stampが一致する場合のみページ
+     */
+    public Optional<Page> get(TeamListKey key, long[] stamp) {
+        Page page = cache.getIfPresent(key);
+        if (page == null || !Arrays.equals(page.stamp(), stamp)) {
+            return Optional.empty();
+        }
+        return Optional.of(page);
+    }
+
+    public void put(TeamListKey key, Page page) {
+        cache.put(key, page);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, CACHE_NAME);
+    }
+}
@@ -0,0 +1,49 @@
+package org.cresplanex.api.state.teamservice.cache;
+
+import org.cresplanex.api.state.common.enums.PaginationType;
+import org.cresplanex.api.state.teamservice.enums.CountStrategy;
+import org.cresplanex.api.state.teamservice.enums.TeamSortType;
+
+/**
+ * Teamの一覧結果をキャッシュするためのキー.
+ * 結果に影響しない値は正規化する(NONEではlimit/offset/cursorを, OFFSETではcursorを無視し, offsetはページ境界に切り下げる).
+ * read_maskやメンバー数の上限はIDからの読み込み時に適用するため含めない.
+ *
+ * @param filter 正規化したフィルタ
+ * @param sortType ソート
+ * @param paginationType ページネーションの種類
+ * @param limit 件数
+ * @param offset 読み飛ばす件数
+ * @param cursor カーソル
+ * @param countStrategy 件数の求め方. 件数を求めない場合はnull
+ */
+public record TeamListKey(
+        TeamCountKey filter,
+        TeamSortType sortType,
+        PaginationType paginationType,
+        int limit,
+        int offset,
+        String cursor,
+        CountStrategy countStrategy
+) {
+
+    public static TeamListKey of(
+            TeamCountKey filter,
+            TeamSortType sortType,
+            PaginationType paginationType,
+            int limit,
+            int offset,
+            String cursor,
+            boolean withCount,
+            CountStrategy countStrategy
+    ) {
+        CountStrategy strategy = withCount ? countStrategy : null;
+        return switch (paginationType) {
+            case CURSOR -> new TeamListKey(filter, sortType, paginationType, limit, 0,
+                    cursor == null ? "" : cursor, strategy);
+            case OFFSET -> new TeamListKey(filter, sortType, paginationType, limit,
+                    limit > 0 ? offset / limit * limit : offset, "", strategy);
+            default -> new TeamListKey(filter, sortType, paginationType, 0, 0, "", strategy);
+        };
+    }
+}
@@ -0,0 +1,98 @@
+package org.cresplanex.api.state.teamservice.cache;
+
+import org.cresplanex.api.state.teamservice.entity.TeamEntity;
+import org.cresplanex.api.state.teamservice.entity.TeamUserEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * キャッシュに保持するTeamの不変スナップショット.
+ * 永続化コンテキストから切り離した値のみを持ち, 取り出すたびに新しいEntityを組み立てる.
+ * メンバーは要素ごとのオブジェクトを持たないよう, 同じ添字の並列配列で保持する.
+ *
+ * @param version 読み込んだ時点のteamsのversion
+ * @param memberTeamUserIds メンバーのTeamUserのID. メンバーを読み込んでいない場合はnull
+ * @param memberUserIds メンバーのユーザーID. メンバーを読み込んでいない場合はnull
+ */
+public record TeamSnapshot(
+        long version,
+        String teamId,
+        String organizationId,
+        String name,
+        String description,
+        boolean isDefault,
+        int memberCount,
+        String[] memberTeamUserIds,
+        String[] memberUserIds
+) {
+
+    public static TeamSnapshot of(TeamEntity team) {
+        return new TeamSnapshot(
+                team.getVersion(),
+                team.getTeamId(),
+                team.getOrganizationId(),
+                team.getName(),
+                team.getDescription(),
+                team.isDefault(),
+                team.getMemberCount(),
+                null,
+                null
+        );
+    }
+
+    public static TeamSnapshot withUsers(TeamEntity team) {
+        List<TeamUserEntity> teamUsers = team.getTeamUsers();
+        String[] teamUserIds = new String[teamUsers.size()];
+        String[] userIds = new String[teamUsers.size()];
+        for (int i = 0; i < teamUsers.size(); i++) {
+            teamUserIds[i] = teamUsers.get(i).getTeamUserId();
+            userIds[i] = teamUsers.get(i).getUserId();
+        }
+        return new TeamSnapshot(
+                team.getVersion(),
+                team.getTeamId(),
+                team.getOrganizationId(),
+                team.getName(),
+                team.getDescription(),
+                team.isDefault(),
+                team.getMemberCount(),
+                teamUserIds,
+                userIds
+        );
+    }
+
+    public boolean hasMembers() {
+        return memberUserIds != null;
+    }
+
+    public int weight() {
+        return 1 + (memberUserIds == null ? 0 : memberUserIds.length);
+    }
+
+    public TeamEntity toEntity() {
+        TeamEntity team = new TeamEntity();
+        team.setTeamId(teamId);
+        team.setOrganizationId(organizationId);
+        team.setName(name);
+        team.setDescription(description);
+        team.setDefault(isDefault);
+        team.setMemberCount(memberCount);
+        return team;
+    }
+
+    public TeamEntity toEntityWithUsers() {
+        TeamEntity team = toEntity();
+        List<TeamUserEntity> teamUsers = new ArrayList<>(memberUserIds.length);
+        for (int i = 0; i < memberUserIds.length; i++) {
+            TeamUserEntity teamUser = new TeamUserEntity();
+            teamUser.setTeamUserId(memberTeamUserIds[i]);
+            teamUser.setTeamId(teamId);
+            teamUser.setUserId(memberUserIds[i]);
+            teamUser.setTeam(team);
+            teamUsers.add(teamUser);
+        }
+        team.setTeamUsers(teamUsers);
+        return team;
+    }
+}
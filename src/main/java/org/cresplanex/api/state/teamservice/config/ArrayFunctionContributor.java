@@ -0,0 +1,28 @@
+package org.cresplanex.api.state.teamservice.config;
+
+import org.hibernate.boot.model.FunctionContributions;
+import org.hibernate.boot.model.FunctionContributor;
+import org.hibernate.type.StandardBasicTypes;
+
+/**
+ * 配列パラメータを扱うSQL関数をHibernateに登録する.
+ * META-INF/services/org.hibernate.boot.model.FunctionContributorで読み込まれる.
+ */
+public class ArrayFunctionContributor implements FunctionContributor {
+
+    /**
+     * eq_any(column, array) -> (column = any(array)).
+     * IN (?, ?, ...)と異なり, 要素数に関わらず同一のクエリプラン/プリペアドステートメントになる.
+     */
+    public static final String EQ_ANY = "eq_any";
+
+    @Override
+    public void contributeFunctions(FunctionContributions functionContributions) {
+        functionContributions.getFunctionRegistry()
+                .patternDescriptorBuilder(EQ_ANY, "(?1 = any(?2))")
+                .setExactArgumentCount(2)
+                .setInvariantType(functionContributions.getTypeConfiguration()
+                        .getBasicTypeRegistry().resolve(StandardBasicTypes.BOOLEAN))
+                .register();
+    }
+}
@@ -0,0 +1,20 @@
+package org.cresplanex.api.state.teamservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 大量のTeamUserを一度に書き込む経路(初期メンバー付きのチーム作成)の設定.
+ * JDBCのバッチサイズはspring.jpa.properties.hibernate.jdbc.batch_sizeで指定する.
+ */
+@Getter @Setter
+@ConfigurationProperties(prefix = "app.bulk-write")
+public class BulkWriteProperties {
+
+    /**
+     * この件数ごとにflushとclearを行い, 永続化コンテキストが件数に比例して大きくならないようにする.
+     * hibernate.jdbc.batch_sizeの倍数にすること.
+     */
+    private int flushChunkSize = 1000;
+}
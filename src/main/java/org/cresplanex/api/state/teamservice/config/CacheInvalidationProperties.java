@@ -0,0 +1,41 @@
+package org.cresplanex.api.state.teamservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * ドメインイベントと更新日時のポーリングによるキャッシュ無効化の設定.
+ */
+@Getter @Setter
+@ConfigurationProperties(prefix = "app.cache.invalidation")
+public class CacheInvalidationProperties {
+
+    /**
+     * イベントを購読してキャッシュを無効化するかどうか.
+     */
+    private boolean enabled = true;
+
+    /**
+     * 購読者ID. 全ノードがすべてのイベントを受け取るよう, ノードごとに異なる値にする.
+     */
+    private String subscriberId = "team-service-cache-local";
+
+    /**
+     * 作成/更新日時のポーリングで変更されたチームを通知するかどうか.
+     * イベントを発行しない書き込みを他のノードへ反映するため, 複数ノードで動かす場合は有効にする.
+     */
+    private boolean pollEnabled = true;
+
+    /**
+     * ポーリングの間隔. 他のノードの書き込みがキャッシュ/インデックスへ反映されるまでの最大の遅れになる.
+     */
+    private Duration pollInterval = Duration.ofSeconds(30);
+
+    /**
+     * 前回のポーリングの開始時刻から差し引く幅. 長いトランザクションのコミットの遅れやノード間の時計のずれを吸収する.
+     */
+    private Duration pollMargin = Duration.ofMinutes(1);
+}
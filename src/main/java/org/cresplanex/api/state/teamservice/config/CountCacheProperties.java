@@ -0,0 +1,25 @@
+package org.cresplanex.api.state.teamservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 一覧の件数(CountStrategy.CACHED_EXACT)のプロセス内キャッシュの設定.
+ */
+@Getter @Setter
+@ConfigurationProperties(prefix = "app.cache.count")
+public class CountCacheProperties {
+
+    /**
+     * キャッシュする条件の最大数.
+     */
+    private long maximumSize = 10_000;
+
+    /**
+     * 書き込みからの有効期間. 他ノードの書き込みの通知が届かなかった場合の上限として設定する.
+     */
+    private Duration expireAfterWrite = Duration.ofMinutes(5);
+}
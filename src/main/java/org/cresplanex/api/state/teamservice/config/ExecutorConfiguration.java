@@ -0,0 +1,70 @@
+package org.cresplanex.api.state.teamservice.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class ExecutorConfiguration {
+
+    /**
+     * Stream系RPCの送信スレッド.
+     * 上限を超えた要求は待たせずに拒否する(RejectedExecutionException).
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService teamStreamExecutor(StreamProperties streamProperties) {
+        return new ThreadPoolExecutor(
+                0, streamProperties.getMaxConcurrentStreams(),
+                60L, TimeUnit.SECONDS,
+                new SynchronousQueue<>(),
+                Thread.ofPlatform().name("team-stream-", 0).factory());
+    }
+
+    /**
+     * ローカルの書き込み後にTeamの変更を通知するスレッド.
+     * 1スレッドで処理し, 同一ノード内では書き込み順に通知する.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService teamChangeExecutor() {
+        return Executors.newSingleThreadExecutor(Thread.ofPlatform().name("team-change-", 0).factory());
+    }
+
+    /**
+     * 一覧取得RPCのサブクエリを並行実行するスレッド.
+     * タスクごとに仮想スレッドを作り, 同時実行数はListQueryRunnerで制限する.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService teamListQueryExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("team-list-query-", 0).factory());
+    }
+
+    /**
+     * importTeamUsersのCOPYへの書き込みとマージを行うスレッド.
+     * 1つの取り込みのタスクは順に実行されるため, 取り込みの同時実行数と同じ数だけ用意する.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService membershipImportExecutor(MembershipImportProperties membershipImportProperties) {
+        return Executors.newFixedThreadPool(
+                membershipImportProperties.getMaxConcurrentImports(),
+                Thread.ofPlatform().name("membership-import-", 0).factory());
+    }
+
+    /**
+     * importTeamUsersのidleTimeoutとmaxDurationを監視するスレッド.
+     * 取り込みが終了するたびに取り消すため, 取り消したタスクはキューから外す.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ScheduledExecutorService membershipImportTimer() {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(
+                1, Thread.ofPlatform().name("membership-import-timer-", 0).daemon(true).factory());
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+}
@@ -0,0 +1,31 @@
+package org.cresplanex.api.state.teamservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * getTeams/getTeamsWithUsersの一覧結果(チームIDと件数)のプロセス内キャッシュの設定.
+ */
+@Getter @Setter
+@ConfigurationProperties(prefix = "app.cache.list")
+public class ListCacheProperties {
+
+    /**
+     * 一覧結果をキャッシュするかどうか.
+     * 他ノードの書き込みはドメインイベントで無効化するため, app.cache.invalidationも有効にすること.
+     */
+    private boolean enabled = false;
+
+    /**
+     * キャッシュの最大重み. 1エントリの重みは1 + チームID数.
+     */
+    private long maximumWeight = 1_000_000;
+
+    /**
+     * 書き込みからの有効期間. 無効化漏れがあった場合の上限として設定する.
+     */
+    private Duration expireAfterWrite = Duration.ofMinutes(1);
+}
@@ -0,0 +1,32 @@
+package org.cresplanex.api.state.teamservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 一覧取得RPCのサブクエリ(ページ, 件数)の実行設定.
+ */
+@Getter @Setter
+@ConfigurationProperties(prefix = "app.list-query")
+public class ListQueryProperties {
+
+    /**
+     * 件数をページとは別の接続で並行して求めるかどうか.
+     */
+    private boolean concurrent = true;
+
+    /**
+     * ノード全体で同時に並行実行するサブクエリの最大数. それぞれがDBコネクションを1つ使う.
+     * 上限に達している場合は呼び出し元のスレッドで順に実行する.
+     * spring.datasource.hikari.maximum-pool-sizeより十分小さくすること.
+     */
+    private int maxConcurrentSubqueries = 8;
+
+    /**
+     * サブクエリごとの制限時間. トランザクションのタイムアウト(文のタイムアウト)にも使う.
+     */
+    private Duration timeout = Duration.ofSeconds(10);
+}
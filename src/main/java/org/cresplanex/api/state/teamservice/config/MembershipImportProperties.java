@@ -0,0 +1,41 @@
+package org.cresplanex.api.state.teamservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * クライアントストリーミングによるメンバーの一括取り込み(importTeamUsers)の設定.
+ */
+@Getter @Setter
+@ConfigurationProperties(prefix = "app.membership-import")
+public class MembershipImportProperties {
+
+    /**
+     * 同時に処理する取り込みの最大数. 各取り込みはストリームの終了までDBコネクションを1つ占有する.
+     */
+    private int maxConcurrentImports = 2;
+
+    /**
+     * COPYへ送る前に行を溜めるバッファのバイト数. 取り込み件数に関わらずこの大きさで一定.
+     */
+    private int copyBufferSize = 64 * 1024;
+
+    /**
+     * レスポンスに含める, 既存メンバーだった行と存在しないチームの行それぞれの最大件数.
+     */
+    private int reportSampleSize = 100;
+
+    /**
+     * クライアントの次のメッセージを待つ最大時間. 待機中もトランザクションとDBコネクションを保持するため,
+     * 超えた場合はDEADLINE_EXCEEDEDで打ち切り, 何も反映せずに接続を返す.
+     */
+    private Duration idleTimeout = Duration.ofSeconds(30);
+
+    /**
+     * 1つの取り込みでストリームを受信し続けられる最大時間. 少しずつ送り続けるクライアントも接続を保持し続けないよう打ち切る.
+     */
+    private Duration maxDuration = Duration.ofMinutes(10);
+}
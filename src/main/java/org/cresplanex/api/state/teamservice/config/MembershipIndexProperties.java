@@ -0,0 +1,47 @@
+package org.cresplanex.api.state.teamservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * ユーザー→チームのメンバーシップインデックスの設定.
+ */
+@Getter @Setter
+@ConfigurationProperties(prefix = "app.membership-index")
+public class MembershipIndexProperties {
+
+    /**
+     * インデックスを構築し, getTeamsOnUserをインデックスから返すかどうか.
+     */
+    private boolean enabled = false;
+
+    /**
+     * 起動時の構築でteams/team_userを読み込む際のチャンクサイズ.
+     */
+    private int bootstrapChunkSize = 5000;
+
+    /**
+     * スナップショットファイルのパス. 空の場合はスナップショットを使わず, 起動時に毎回全件から構築する.
+     */
+    private String snapshotPath = "";
+
+    /**
+     * スナップショットを書き出す間隔.
+     */
+    private Duration snapshotInterval = Duration.ofMinutes(10);
+
+    /**
+     * スナップショットの書き出し時刻からウォーターマークを差し引く幅.
+     * 通知の遅延やノード間の時計のずれを吸収する.
+     */
+    private Duration snapshotWatermarkMargin = Duration.ofMinutes(5);
+
+    /**
+     * チームの有無とメンバー数をDBと比べ, 差のあるチームを読み込み直す間隔.
+     * 変更の通知を取りこぼした場合や, 更新日時に現れない削除を検出する.
+     */
+    private Duration reconcileInterval = Duration.ofMinutes(15);
+}
@@ -0,0 +1,46 @@
+package org.cresplanex.api.state.teamservice.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hibernateのクエリプランキャッシュのメトリクス.
+ * IN句の要素数ごとにプランが増えていないかを確認するために, キャッシュ件数とヒット率を公開する.
+ * ヒット数とミス数そのものはHibernateMetrics(hibernate.cache.query.plan)が公開するため, ここでは扱わない.
+ * キャッシュ件数は統計(generate_statistics)に関わらず公開し, ヒット率は統計が有効な場合のみ公開する.
+ */
+@Component
+@RequiredArgsConstructor
+public class QueryPlanCacheMetrics implements MeterBinder {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+
+        Gauge.builder("hibernate.query.plan.cache.size", sessionFactory,
+                        sf -> sf.getQueryEngine().getInterpretationCache().getNumberOfCachedHqlInterpretations())
+                .description("Number of cached HQL/criteria interpretations")
+                .register(registry);
+
+        Statistics statistics = sessionFactory.getStatistics();
+        if (statistics.isStatisticsEnabled()) {
+            Gauge.builder("hibernate.query.plan.cache.hit.ratio", statistics, QueryPlanCacheMetrics::hitRatio)
+                    .description("Ratio of query plan cache hits to lookups")
+                    .register(registry);
+        }
+    }
+
+    private static double hitRatio(Statistics statistics) {
+        long hits = statistics.getQueryPlanCacheHitCount();
+        long total = hits + statistics.getQueryPlanCacheMissCount();
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+}
@@ -0,0 +1,36 @@
+package org.cresplanex.api.state.teamservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Stream系RPCの設定.
+ */
+@Getter @Setter
+@ConfigurationProperties(prefix = "app.stream")
+public class StreamProperties {
+
+    /**
+     * 1レスポンスメッセージあたりの件数. JDBCのfetchSizeにも利用する.
+     */
+    private int chunkSize = 500;
+
+    /**
+     * 同時に処理するStreamの最大数. 各Streamは処理中DBコネクションを1つ占有する.
+     */
+    private int maxConcurrentStreams = 4;
+
+    /**
+     * クライアントが受信できる状態(isReady)になるまで1メッセージの送信を待つ最大時間.
+     * 送信待ちの間も読み込みのトランザクションとDBコネクションを保持するため, 超えた場合はDEADLINE_EXCEEDEDで打ち切る.
+     */
+    private Duration idleTimeout = Duration.ofSeconds(30);
+
+    /**
+     * 1つのStreamの最大処理時間. クライアントが少しずつ読み続ける場合もDBコネクションを保持し続けないよう, 超えた場合は打ち切る.
+     */
+    private Duration maxDuration = Duration.ofMinutes(10);
+}
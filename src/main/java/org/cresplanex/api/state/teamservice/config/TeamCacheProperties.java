@@ -0,0 +1,25 @@
+package org.cresplanex.api.state.teamservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Teamのプロセス内キャッシュの設定.
+ */
+@Getter @Setter
+@ConfigurationProperties(prefix = "app.cache.team")
+public class TeamCacheProperties {
+
+    /**
+     * キャッシュの最大重み. 1エントリの重みは1 + メンバー数.
+     */
+    private long maximumWeight = 200_000;
+
+    /**
+     * 書き込みからの有効期間. 無効化漏れがあった場合の上限として設定する.
+     */
+    private Duration expireAfterWrite = Duration.ofMinutes(10);
+}
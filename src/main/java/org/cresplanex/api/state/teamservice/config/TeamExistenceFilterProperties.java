@@ -0,0 +1,29 @@
+package org.cresplanex.api.state.teamservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * チームの存在確認に使うBloomフィルタの設定.
+ */
+@Getter @Setter
+@ConfigurationProperties(prefix = "app.team-existence-filter")
+public class TeamExistenceFilterProperties {
+
+    /**
+     * フィルタを構築し, 存在しないチームIDをDBを参照せずに拒否するかどうか.
+     * 他ノードで作成されたチームはドメインイベントで登録するため, app.cache.invalidationも有効にすること.
+     */
+    private boolean enabled = false;
+
+    /**
+     * 想定する要素数まで登録した時点での偽陽性率.
+     */
+    private double falsePositiveProbability = 0.01;
+
+    /**
+     * 想定する要素数の下限. 構築時のチーム数の2倍とこの値の大きい方を想定する要素数とする.
+     */
+    private long minimumCapacity = 100_000;
+}
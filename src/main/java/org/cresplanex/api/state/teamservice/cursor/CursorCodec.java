@@ -0,0 +1,60 @@
+package org.cresplanex.api.state.teamservice.cursor;
+
+import org.cresplanex.api.state.teamservice.exception.InvalidCursorException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Base64;
+
+/**
+ * ページングカーソルのエンコード/デコード.
+ * クライアントには不透明な文字列として渡し, ソート種別が一致しないカーソルは拒否する.
+ */
+public class CursorCodec {
+
+    private static final byte VERSION = 1;
+
+    public static String encode(Enum<?> sortType, String... keys) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(VERSION);
+            out.writeUTF(sortType.name());
+            out.writeByte(keys.length);
+            for (String key : keys) {
+                out.writeUTF(key);
+            }
+            out.flush();
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to encode cursor", e);
+        }
+    }
+
+    public static String[] decode(String cursor, Enum<?> sortType, int keyCount) {
+        try {
+            byte[] raw = Base64.getUrlDecoder().decode(cursor);
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(raw));
+            if (in.readByte() != VERSION) {
+                throw new InvalidCursorException(cursor, "unsupported cursor version");
+            }
+            if (!sortType.name().equals(in.readUTF())) {
+                throw new InvalidCursorException(cursor, "cursor was issued for a different sort order");
+            }
+            int count = in.readByte();
+            if (count != keyCount) {
+                throw new InvalidCursorException(cursor, "unexpected number of cursor keys");
+            }
+            String[] keys = new String[count];
+            for (int i = 0; i < count; i++) {
+                keys[i] = in.readUTF();
+            }
+            return keys;
+        } catch (IllegalArgumentException | IOException e) {
+            throw new InvalidCursorException(cursor, "malformed cursor", e);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package org.cresplanex.api.state.teamservice.cursor;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.cresplanex.api.state.teamservice.enums.CountStrategy;
+
+import java.util.List;
+
+/**
+ * 件数に加えて, 次ページのカーソルを保持する一覧結果.
+ * 次ページが存在しない場合, nextCursorはnull.
+ * countStrategyは件数を実際に求めた方法(要求した方法が使えない場合はEXACTに戻る).
+ */
+@Getter
+@AllArgsConstructor
+public class ListEntityWithCursor<T> {
+
+    private final List<T> data;
+    private final int count;
+    private final String nextCursor;
+    private final CountStrategy countStrategy;
+
+    public ListEntityWithCursor(List<T> data, int count, String nextCursor) {
+        this(data, count, nextCursor, CountStrategy.EXACT);
+    }
+}
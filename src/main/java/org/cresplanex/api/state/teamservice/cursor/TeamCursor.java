@@ -0,0 +1,57 @@
+package org.cresplanex.api.state.teamservice.cursor;
+
+import org.cresplanex.api.state.teamservice.entity.TeamEntity;
+import org.cresplanex.api.state.teamservice.enums.TeamSortType;
+import org.cresplanex.api.state.teamservice.exception.InvalidCursorException;
+import org.cresplanex.api.state.teamservice.repository.projection.TeamView;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Teamの一覧に対するキーセットカーソル.
+ * (ソートキー, createdAt, teamId)の組で, 直前ページ末尾の位置を表す.
+ */
+public record TeamCursor(String sortKey, LocalDateTime createdAt, String teamId) {
+
+    private static final int KEY_COUNT = 3;
+
+    public static TeamCursor of(TeamSortType sortType, TeamEntity team) {
+        String sortKey = switch (sortType) {
+            case CREATED_AT_ASC, CREATED_AT_DESC -> team.getCreatedAt().toString();
+            case NAME_ASC, NAME_DESC -> team.getName();
+            case MEMBER_COUNT_ASC, MEMBER_COUNT_DESC -> String.valueOf(team.getMemberCount());
+        };
+        return new TeamCursor(sortKey, team.getCreatedAt(), team.getTeamId());
+    }
+
+    public static TeamCursor of(TeamSortType sortType, TeamView team) {
+        String sortKey = switch (sortType) {
+            case CREATED_AT_ASC, CREATED_AT_DESC -> team.createdAt().toString();
+            case NAME_ASC, NAME_DESC -> team.name();
+            case MEMBER_COUNT_ASC, MEMBER_COUNT_DESC -> String.valueOf(team.memberCount());
+        };
+        return new TeamCursor(sortKey, team.createdAt(), team.teamId());
+    }
+
+    public static TeamCursor decode(TeamSortType sortType, String cursor) {
+        String[] keys = CursorCodec.decode(cursor, sortType, KEY_COUNT);
+        try {
+            return new TeamCursor(keys[0], LocalDateTime.parse(keys[1]), keys[2]);
+        } catch (DateTimeParseException e) {
+            throw new InvalidCursorException(cursor, "malformed timestamp", e);
+        }
+    }
+
+    public int sortKeyAsInt() {
+        try {
+            return Integer.parseInt(sortKey);
+        } catch (NumberFormatException e) {
+            throw new InvalidCursorException(sortKey, "malformed number", e);
+        }
+    }
+
+    public String encode(TeamSortType sortType) {
+        return CursorCodec.encode(sortType, sortKey, createdAt.toString(), teamId);
+    }
+}
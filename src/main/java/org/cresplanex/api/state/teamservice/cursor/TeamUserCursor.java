@@ -0,0 +1,67 @@
+package org.cresplanex.api.state.teamservice.cursor;
+
+import org.cresplanex.api.state.teamservice.entity.TeamUserEntity;
+import org.cresplanex.api.state.teamservice.enums.TeamOnUserSortType;
+import org.cresplanex.api.state.teamservice.enums.UserOnTeamSortType;
+import org.cresplanex.api.state.teamservice.exception.InvalidCursorException;
+import org.cresplanex.api.state.teamservice.repository.projection.TeamUserView;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * TeamUserの一覧に対するキーセットカーソル.
+ * (ソートキー, createdAt, teamUserId)の組で, 直前ページ末尾の位置を表す.
+ * ソートキーはTeamOnUserSortTypeのNAME/CREATED_ATではJOINしたteamのname/createdAt.
+ */
+public record TeamUserCursor(String sortKey, LocalDateTime createdAt, String teamUserId) {
+
+    private static final int KEY_COUNT = 3;
+
+    public static TeamUserCursor of(UserOnTeamSortType sortType, TeamUserEntity teamUser) {
+        return new TeamUserCursor(teamUser.getCreatedAt().toString(), teamUser.getCreatedAt(), teamUser.getTeamUserId());
+    }
+
+    public static TeamUserCursor of(TeamOnUserSortType sortType, TeamUserEntity teamUser) {
+        String sortKey = switch (sortType) {
+            case ADD_AT_ASC, ADD_AT_DESC -> teamUser.getCreatedAt().toString();
+            case NAME_ASC, NAME_DESC -> teamUser.getTeam().getName();
+            case CREATED_AT_ASC, CREATED_AT_DESC -> teamUser.getTeam().getCreatedAt().toString();
+        };
+        return new TeamUserCursor(sortKey, teamUser.getCreatedAt(), teamUser.getTeamUserId());
+    }
+
+    public static TeamUserCursor of(UserOnTeamSortType sortType, TeamUserView teamUser) {
+        return new TeamUserCursor(teamUser.createdAt().toString(), teamUser.createdAt(), teamUser.teamUserId());
+    }
+
+    public static TeamUserCursor of(TeamOnUserSortType sortType, TeamUserView teamUser) {
+        String sortKey = switch (sortType) {
+            case ADD_AT_ASC, ADD_AT_DESC -> teamUser.createdAt().toString();
+            case NAME_ASC, NAME_DESC -> teamUser.team().name();
+            case CREATED_AT_ASC, CREATED_AT_DESC -> teamUser.team().createdAt().toString();
+        };
+        return new TeamUserCursor(sortKey, teamUser.createdAt(), teamUser.teamUserId());
+    }
+
+    public static TeamUserCursor decode(Enum<?> sortType, String cursor) {
+        String[] keys = CursorCodec.decode(cursor, sortType, KEY_COUNT);
+        try {
+            return new TeamUserCursor(keys[0], LocalDateTime.parse(keys[1]), keys[2]);
+        } catch (DateTimeParseException e) {
+            throw new InvalidCursorException(cursor, "malformed timestamp", e);
+        }
+    }
+
+    public LocalDateTime sortKeyAsTimestamp() {
+        try {
+            return LocalDateTime.parse(sortKey);
+        } catch (DateTimeParseException e) {
+            throw new InvalidCursorException(sortKey, "malformed timestamp", e);
+        }
+    }
+
+    public String encode(Enum<?> sortType) {
+        return CursorCodec.encode(sortType, sortKey, createdAt.toString(), teamUserId);
+    }
+}
@@ -19,7 +19,14 @@ import java.util.List;
 @AllArgsConstructor
 @NoArgsConstructor
 @Table(name = "teams",
-    indexes = {@Index(name = "teams_organization_id_index", columnList = "organization_id")
+    indexes = {@Index(name = "teams_organization_id_index", columnList = "organization_id"),
+        @Index(name = "teams_created_at_team_id_index", columnList = "created_at, team_id"),
+        @Index(name = "teams_name_created_at_team_id_index", columnList = "name, created_at, team_id"),
+        @Index(name = "teams_name_created_at_desc_team_id_desc_index", columnList = "name, created_at DESC, team_id DESC"),
+        @Index(name = "teams_organization_id_created_at_team_id_index", columnList = "organization_id, created_at, team_id"),
+        @Index(name = "teams_updated_at_index", columnList = "updated_at"),
+        @Index(name = "teams_member_count_created_at_team_id_index", columnList = "member_count, created_at, team_id"),
+        @Index(name = "teams_organization_id_member_count_created_at_team_id_index", columnList = "organization_id, member_count, created_at, team_id")
 }, uniqueConstraints = {
     @UniqueConstraint(name = "teams_organization_id_name_unique", columnNames = {"organization_id", "name"})
 })
@@ -52,10 +59,29 @@ public class TeamEntity extends BaseEntity<TeamEntity> {
     @Column(name = "is_default", nullable = false)
     private boolean isDefault;
 
+    /**
+     * メンバー数. 作成時以外はteam_userの追加/削除と同じトランザクションのUPDATE文でのみ更新する.
+     * エンティティのUPDATEで古い値を書き戻さないよう, updatable = false.
+     */
+    @Column(name = "member_count", nullable = false, updatable = false)
+    private int memberCount;
+
     @OneToMany(mappedBy = "team", fetch = FetchType.LAZY,
             cascade = CascadeType.ALL, orphanRemoval = true)
     private List<TeamUserEntity> teamUsers;
 
+    /**
+     * teamUsersを読み込んだ際のメンバーの総数. 永続化しない.
+     */
+    @Transient
+    private long usersTotalCount;
+
+    /**
+     * teamUsersがメンバー数の上限で切り詰められているかどうか. 永続化しない.
+     */
+    @Transient
+    private boolean usersTruncated;
+
     @Override
     public TeamEntity clone() {
         TeamEntity cloned = super.clone();
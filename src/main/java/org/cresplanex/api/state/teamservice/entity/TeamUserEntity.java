@@ -13,9 +13,10 @@ import org.hibernate.Hibernate;
 @AllArgsConstructor
 @NoArgsConstructor
 @Table(name = "team_user", indexes = {
-        @Index(name = "team_user_team_id_index", columnList = "team_id"),
-        @Index(name = "team_user_user_id_index", columnList = "user_id"),
-        @Index(name = "team_user_team_id_user_id_index", columnList = "team_id, user_id", unique = true)
+        @Index(name = "team_user_team_id_created_at_team_user_id_index", columnList = "team_id, created_at, team_user_id"),
+        @Index(name = "team_user_user_id_created_at_team_user_id_index", columnList = "user_id, created_at, team_user_id"),
+        @Index(name = "team_user_team_id_user_id_index", columnList = "team_id, user_id", unique = true),
+        @Index(name = "team_user_created_at_index", columnList = "created_at")
 })
 public class TeamUserEntity extends BaseEntity<TeamUserEntity> {
 
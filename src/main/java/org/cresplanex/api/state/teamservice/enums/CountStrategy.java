@@ -0,0 +1,19 @@
+package org.cresplanex.api.state.teamservice.enums;
+
+/**
+ * 一覧取得時の件数の求め方.
+ */
+public enum CountStrategy {
+    /**
+     * 毎回count(*)で数える.
+     */
+    EXACT,
+    /**
+     * 正規化したフィルタ単位でcount(*)の結果を再利用する. 該当する組織への書き込みで無効化する.
+     */
+    CACHED_EXACT,
+    /**
+     * プランナの推定行数(もしくはテーブルの統計情報)を返す.
+     */
+    ESTIMATED
+}
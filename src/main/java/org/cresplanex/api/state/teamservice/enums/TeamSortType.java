@@ -4,5 +4,7 @@ public enum TeamSortType {
     CREATED_AT_ASC,
     CREATED_AT_DESC,
     NAME_ASC,
-    NAME_DESC
+    NAME_DESC,
+    MEMBER_COUNT_ASC,
+    MEMBER_COUNT_DESC
 }
@@ -0,0 +1,61 @@
+package org.cresplanex.api.state.teamservice.event.subscriber;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.cresplanex.api.state.common.event.EventAggregateType;
+import org.cresplanex.api.state.teamservice.cache.TeamChangeNotifier;
+import org.cresplanex.api.state.teamservice.config.CacheInvalidationProperties;
+import org.cresplanex.core.events.common.EventMessageHeaders;
+import org.cresplanex.core.messaging.common.Message;
+import org.cresplanex.core.messaging.consumer.MessageConsumer;
+import org.cresplanex.core.messaging.consumer.MessageSubscription;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * TeamのドメインイベントをMessageConsumerで購読し, 各ノードのキャッシュを無効化する.
+ * イベントのaggregate idからteamIdを取得し, TeamChangeNotifierを通してTeamChangeListenerへ通知する.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TeamCacheInvalidationSubscriber {
+
+    private final MessageConsumer messageConsumer;
+    private final TeamChangeNotifier teamChangeNotifier;
+    private final CacheInvalidationProperties properties;
+
+    private MessageSubscription subscription;
+
+    @PostConstruct
+    public void subscribe() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        subscription = messageConsumer.subscribe(
+                properties.getSubscriberId(),
+                Set.of(EventAggregateType.TEAM),
+                this::handle
+        );
+    }
+
+    @PreDestroy
+    public void unsubscribe() {
+        if (subscription != null) {
+            subscription.unsubscribe();
+        }
+    }
+
+    private void handle(Message message) {
+        Optional<String> teamId = message.getHeader(EventMessageHeaders.AGGREGATE_ID);
+        if (teamId.isEmpty()) {
+            log.warn("Team event without aggregate id: {}", message.getId());
+            return;
+        }
+        teamChangeNotifier.notify(teamId.get());
+    }
+}
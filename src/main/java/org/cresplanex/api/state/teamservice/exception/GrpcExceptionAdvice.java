@@ -29,6 +29,34 @@ public class GrpcExceptionAdvice {
                  .withCause(e);
      }
 
+     @GrpcExceptionHandler(InvalidCursorException.class)
+     public Status handleInvalidCursorException(InvalidCursorException e) {
+         return Status.INVALID_ARGUMENT
+                 .withDescription(e.getMessage())
+                 .withCause(e);
+     }
+
+     @GrpcExceptionHandler(ListQueryTimeoutException.class)
+     public Status handleListQueryTimeoutException(ListQueryTimeoutException e) {
+         return Status.DEADLINE_EXCEEDED
+                 .withDescription(e.getMessage())
+                 .withCause(e);
+     }
+
+     @GrpcExceptionHandler(TooManyMembershipImportsException.class)
+     public Status handleTooManyMembershipImportsException(TooManyMembershipImportsException e) {
+         return Status.RESOURCE_EXHAUSTED
+                 .withDescription(e.getMessage())
+                 .withCause(e);
+     }
+
+     @GrpcExceptionHandler(InvalidReadMaskException.class)
+     public Status handleInvalidReadMaskException(InvalidReadMaskException e) {
+         return Status.INVALID_ARGUMENT
+                 .withDescription(e.getMessage())
+                 .withCause(e);
+     }
+
      private TeamServiceErrorMeta buildErrorMeta(ServiceException e) {
          return TeamServiceErrorMeta.newBuilder()
                  .setCode(e.getServiceErrorCode())
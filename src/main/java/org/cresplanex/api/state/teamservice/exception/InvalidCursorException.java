@@ -0,0 +1,20 @@
+package org.cresplanex.api.state.teamservice.exception;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter @Setter
+public class InvalidCursorException extends RuntimeException {
+
+    private final String cursor;
+
+    public InvalidCursorException(String cursor, String reason) {
+        super("Invalid cursor (" + reason + "): " + cursor);
+        this.cursor = cursor;
+    }
+
+    public InvalidCursorException(String cursor, String reason, Throwable cause) {
+        super("Invalid cursor (" + reason + "): " + cursor, cause);
+        this.cursor = cursor;
+    }
+}
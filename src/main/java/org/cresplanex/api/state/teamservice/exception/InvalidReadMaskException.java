@@ -0,0 +1,15 @@
+package org.cresplanex.api.state.teamservice.exception;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter @Setter
+public class InvalidReadMaskException extends RuntimeException {
+
+    private final String path;
+
+    public InvalidReadMaskException(String path) {
+        super("Invalid read mask path: " + path);
+        this.path = path;
+    }
+}
@@ -0,0 +1,16 @@
+package org.cresplanex.api.state.teamservice.exception;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+@Getter
+public class ListQueryTimeoutException extends RuntimeException {
+
+    private final String subquery;
+
+    public ListQueryTimeoutException(String subquery, Duration timeout, Throwable cause) {
+        super("List subquery timed out after " + timeout.toMillis() + " ms: " + subquery, cause);
+        this.subquery = subquery;
+    }
+}
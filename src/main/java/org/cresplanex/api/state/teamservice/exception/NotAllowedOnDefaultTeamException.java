@@ -0,0 +1,17 @@
+package org.cresplanex.api.state.teamservice.exception;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter @Setter
+public class NotAllowedOnDefaultTeamException extends RuntimeException {
+
+    private final String teamId;
+    private final String action;
+
+    public NotAllowedOnDefaultTeamException(String teamId, String action) {
+        super("Not allowed " + action + " on default team: " + teamId);
+        this.teamId = teamId;
+        this.action = action;
+    }
+}
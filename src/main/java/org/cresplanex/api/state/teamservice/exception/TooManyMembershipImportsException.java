@@ -0,0 +1,14 @@
+package org.cresplanex.api.state.teamservice.exception;
+
+import lombok.Getter;
+
+@Getter
+public class TooManyMembershipImportsException extends RuntimeException {
+
+    private final int maxConcurrentImports;
+
+    public TooManyMembershipImportsException(int maxConcurrentImports) {
+        super("Too many concurrent membership imports: " + maxConcurrentImports);
+        this.maxConcurrentImports = maxConcurrentImports;
+    }
+}
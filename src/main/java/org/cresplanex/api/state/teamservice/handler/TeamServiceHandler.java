@@ -4,10 +4,13 @@ import build.buf.gen.cresplanex.nova.v1.Count;
 import build.buf.gen.cresplanex.nova.v1.SortOrder;
 import build.buf.gen.team.v1.*;
 import lombok.extern.slf4j.Slf4j;
-import org.cresplanex.api.state.common.entity.ListEntityWithCount;
 import org.cresplanex.api.state.common.enums.PaginationType;
+import org.cresplanex.api.state.teamservice.config.MembershipImportProperties;
+import org.cresplanex.api.state.teamservice.config.StreamProperties;
+import org.cresplanex.api.state.teamservice.cursor.ListEntityWithCursor;
 import org.cresplanex.api.state.teamservice.entity.TeamEntity;
 import org.cresplanex.api.state.teamservice.entity.TeamUserEntity;
+import org.cresplanex.api.state.teamservice.enums.CountStrategy;
 import org.cresplanex.api.state.teamservice.enums.TeamOnUserSortType;
 import org.cresplanex.api.state.teamservice.enums.TeamSortType;
 import org.cresplanex.api.state.teamservice.enums.TeamWithUsersSortType;
@@ -15,14 +18,27 @@ import org.cresplanex.api.state.teamservice.enums.UserOnTeamSortType;
 import org.cresplanex.api.state.teamservice.filter.team.IsDefaultFilter;
 import org.cresplanex.api.state.teamservice.filter.team.OrganizationFilter;
 import org.cresplanex.api.state.teamservice.filter.team.UsersFilter;
+import org.cresplanex.api.state.teamservice.handler.stream.FlowControlledStreamObserver;
+import org.cresplanex.api.state.teamservice.handler.stream.MembershipImportStreamObserver;
 import org.cresplanex.api.state.teamservice.mapper.proto.ProtoMapper;
+import org.cresplanex.api.state.teamservice.mapper.proto.ReadMaskMapper;
+import org.cresplanex.api.state.teamservice.repository.TeamUserCopyImporter;
+import org.cresplanex.api.state.teamservice.repository.projection.TeamFields;
 
+import com.google.protobuf.ByteString;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
 import io.grpc.stub.StreamObserver;
 import lombok.RequiredArgsConstructor;
 import net.devh.boot.grpc.server.service.GrpcService;
 import org.cresplanex.api.state.teamservice.service.TeamService;
 
+import java.util.BitSet;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Consumer;
 
 @Slf4j
 @RequiredArgsConstructor
@@ -30,6 +46,11 @@ import java.util.List;
 public class TeamServiceHandler extends TeamServiceGrpc.TeamServiceImplBase {
 
     private final TeamService teamService;
+    private final StreamProperties streamProperties;
+    private final ExecutorService teamStreamExecutor;
+    private final MembershipImportProperties membershipImportProperties;
+    private final ExecutorService membershipImportExecutor;
+    private final ScheduledExecutorService membershipImportTimer;
 
     @Override
     public void findTeam(FindTeamRequest request, StreamObserver<FindTeamResponse> responseObserver) {
@@ -59,12 +80,7 @@ public class TeamServiceHandler extends TeamServiceGrpc.TeamServiceImplBase {
 
     @Override
     public void getTeams(GetTeamsRequest request, StreamObserver<GetTeamsResponse> responseObserver) {
-        TeamSortType sortType = switch (request.getSort().getOrderField()) {
-            case TEAM_ORDER_FIELD_NAME -> (request.getSort().getOrder() == SortOrder.SORT_ORDER_ASC) ?
-                    TeamSortType.NAME_ASC : TeamSortType.NAME_DESC;
-            default -> (request.getSort().getOrder() == SortOrder.SORT_ORDER_ASC) ?
-                    TeamSortType.CREATED_AT_ASC : TeamSortType.CREATED_AT_DESC;
-        };
+        TeamSortType sortType = toSortType(request);
         PaginationType paginationType;
         switch (request.getPagination().getType()) {
             case PAGINATION_TYPE_CURSOR -> paginationType = PaginationType.CURSOR;
@@ -72,31 +88,30 @@ public class TeamServiceHandler extends TeamServiceGrpc.TeamServiceImplBase {
             default -> paginationType = PaginationType.NONE;
         }
 
-        IsDefaultFilter isDefaultFilter = new IsDefaultFilter(
-                request.getFilterIsDefault().getHasValue(), request.getFilterIsDefault().getIsDefault()
-        );
-
-        OrganizationFilter organizationFilter = new OrganizationFilter(
-                request.getFilterOrganization().getHasValue(), request.getFilterOrganization().getOrganizationIdsList()
-        );
+        IsDefaultFilter isDefaultFilter = toIsDefaultFilter(request);
+        OrganizationFilter organizationFilter = toOrganizationFilter(request);
+        UsersFilter usersFilter = toUsersFilter(request);
+        TeamFields fields = ReadMaskMapper.toTeamFields(request.getReadMask());
 
-        UsersFilter usersFilter = new UsersFilter(
-                request.getFilterUser().getHasValue(), request.getFilterUser().getAny(), request.getFilterUser().getUserIdsList()
-        );
-
-        ListEntityWithCount<TeamEntity> organizations = teamService.get(
+        ListEntityWithCursor<TeamEntity> organizations = teamService.get(
                 paginationType, request.getPagination().getLimit(), request.getPagination().getOffset(),
-                request.getPagination().getCursor(), sortType, request.getWithCount(), isDefaultFilter, organizationFilter, usersFilter);
+                request.getPagination().getCursor(), sortType, request.getWithCount(), toCountStrategy(request.getCountStrategy()),
+                isDefaultFilter, organizationFilter, usersFilter,
+                fields);
 
         List<Team> organizationProtos = organizations.getData().stream()
-                .map(ProtoMapper::convert).toList();
-        GetTeamsResponse response = GetTeamsResponse.newBuilder()
+                .map(team -> ProtoMapper.convert(team, fields)).toList();
+        GetTeamsResponse.Builder responseBuilder = GetTeamsResponse.newBuilder()
                 .addAllTeams(organizationProtos)
                 .setCount(
                         Count.newBuilder().setIsValid(request.getWithCount())
-                                .setCount(organizations.getCount()).build()
-                )
-                .build();
+                                .setCount(organizations.getCount())
+                                .setStrategy(toCountStrategyProto(organizations.getCountStrategy())).build()
+                );
+        if (organizations.getNextCursor() != null) {
+            responseBuilder.setNextCursor(organizations.getNextCursor());
+        }
+        GetTeamsResponse response = responseBuilder.build();
 
         responseObserver.onNext(response);
         responseObserver.onCompleted();
@@ -104,12 +119,7 @@ public class TeamServiceHandler extends TeamServiceGrpc.TeamServiceImplBase {
 
     @Override
     public void getTeamsWithUsers(GetTeamsWithUsersRequest request, StreamObserver<GetTeamsWithUsersResponse> responseObserver) {
-        TeamWithUsersSortType sortType = switch (request.getSort().getOrderField()) {
-            case TEAM_WITH_USERS_ORDER_FIELD_NAME -> (request.getSort().getOrder() == SortOrder.SORT_ORDER_ASC) ?
-                    TeamWithUsersSortType.NAME_ASC : TeamWithUsersSortType.NAME_DESC;
-            default -> (request.getSort().getOrder() == SortOrder.SORT_ORDER_ASC) ?
-                    TeamWithUsersSortType.CREATED_AT_ASC : TeamWithUsersSortType.CREATED_AT_DESC;
-        };
+        TeamWithUsersSortType sortType = toSortType(request);
         PaginationType paginationType;
         switch (request.getPagination().getType()) {
             case PAGINATION_TYPE_CURSOR -> paginationType = PaginationType.CURSOR;
@@ -117,30 +127,55 @@ public class TeamServiceHandler extends TeamServiceGrpc.TeamServiceImplBase {
             default -> paginationType = PaginationType.NONE;
         }
 
-        IsDefaultFilter isDefaultFilter = new IsDefaultFilter(
-                request.getFilterIsDefault().getHasValue(), request.getFilterIsDefault().getIsDefault()
-        );
-
-        OrganizationFilter organizationFilter = new OrganizationFilter(
-                request.getFilterOrganization().getHasValue(), request.getFilterOrganization().getOrganizationIdsList()
-        );
-
-        UsersFilter usersFilter = new UsersFilter(
-                request.getFilterUser().getHasValue(), request.getFilterUser().getAny(), request.getFilterUser().getUserIdsList()
-        );
+        IsDefaultFilter isDefaultFilter = toIsDefaultFilter(request);
+        OrganizationFilter organizationFilter = toOrganizationFilter(request);
+        UsersFilter usersFilter = toUsersFilter(request);
+        TeamFields fields = ReadMaskMapper.toTeamWithUsersFields(request.getReadMask());
 
-        ListEntityWithCount<TeamEntity> teams = teamService.getWithUsers(
+        ListEntityWithCursor<TeamEntity> teams = teamService.getWithUsers(
                 paginationType, request.getPagination().getLimit(), request.getPagination().getOffset(),
-                request.getPagination().getCursor(), sortType, request.getWithCount(), isDefaultFilter, organizationFilter, usersFilter);
+                request.getPagination().getCursor(), sortType, request.getWithCount(), toCountStrategy(request.getCountStrategy()),
+                isDefaultFilter, organizationFilter, usersFilter,
+                fields, request.getUsersLimit());
 
         List<TeamWithUsers> organizationProtos = teams.getData().stream()
-                .map(ProtoMapper::convertWithUsers).toList();
-        GetTeamsWithUsersResponse response = GetTeamsWithUsersResponse.newBuilder()
+                .map(team -> ProtoMapper.convertWithUsers(team, fields)).toList();
+        GetTeamsWithUsersResponse.Builder responseBuilder = GetTeamsWithUsersResponse.newBuilder()
                 .addAllTeams(organizationProtos)
                 .setCount(
                         Count.newBuilder().setIsValid(request.getWithCount())
-                                .setCount(teams.getCount()).build()
-                )
+                                .setCount(teams.getCount())
+                                .setStrategy(toCountStrategyProto(teams.getCountStrategy())).build()
+                );
+        if (teams.getNextCursor() != null) {
+            responseBuilder.setNextCursor(teams.getNextCursor());
+        }
+        GetTeamsWithUsersResponse response = responseBuilder.build();
+
+        responseObserver.onNext(response);
+        responseObserver.onCompleted();
+    }
+
+    @Override
+    public void isMemberOfTeams(IsMemberOfTeamsRequest request, StreamObserver<IsMemberOfTeamsResponse> responseObserver) {
+        BitSet members = teamService.isMemberOfTeams(request.getUserId(), request.getTeamIdsList());
+
+        // i番目のビット(バイト内は下位ビットから)がteam_ids[i]に対応する
+        IsMemberOfTeamsResponse response = IsMemberOfTeamsResponse.newBuilder()
+                .setMembers(ByteString.copyFrom(members.toByteArray()))
+                .build();
+
+        responseObserver.onNext(response);
+        responseObserver.onCompleted();
+    }
+
+    @Override
+    public void areMembersOfTeam(AreMembersOfTeamRequest request, StreamObserver<AreMembersOfTeamResponse> responseObserver) {
+        BitSet members = teamService.areMembersOfTeam(request.getTeamId(), request.getUserIdsList());
+
+        // i番目のビット(バイト内は下位ビットから)がuser_ids[i]に対応する
+        AreMembersOfTeamResponse response = AreMembersOfTeamResponse.newBuilder()
+                .setMembers(ByteString.copyFrom(members.toByteArray()))
                 .build();
 
         responseObserver.onNext(response);
@@ -152,12 +187,15 @@ public class TeamServiceHandler extends TeamServiceGrpc.TeamServiceImplBase {
         TeamSortType sortType = switch (request.getSort().getOrderField()) {
             case TEAM_ORDER_FIELD_NAME -> (request.getSort().getOrder() == SortOrder.SORT_ORDER_ASC) ?
                     TeamSortType.NAME_ASC : TeamSortType.NAME_DESC;
+            case TEAM_ORDER_FIELD_MEMBER_COUNT -> (request.getSort().getOrder() == SortOrder.SORT_ORDER_ASC) ?
+                    TeamSortType.MEMBER_COUNT_ASC : TeamSortType.MEMBER_COUNT_DESC;
             default -> (request.getSort().getOrder() == SortOrder.SORT_ORDER_ASC) ?
                     TeamSortType.CREATED_AT_ASC : TeamSortType.CREATED_AT_DESC;
         };
+        TeamFields fields = ReadMaskMapper.toTeamFields(request.getReadMask());
         List<Team> organizationProtos = this.teamService.getByTeamIds(
-                        request.getTeamIdsList(), sortType).stream()
-                .map(ProtoMapper::convert).toList();
+                        request.getTeamIdsList(), sortType, fields).stream()
+                .map(team -> ProtoMapper.convert(team, fields)).toList();
         GetPluralTeamsResponse response = GetPluralTeamsResponse.newBuilder()
                 .addAllTeams(organizationProtos)
                 .build();
@@ -168,15 +206,11 @@ public class TeamServiceHandler extends TeamServiceGrpc.TeamServiceImplBase {
     
     @Override
     public void getPluralTeamsWithUsers(GetPluralTeamsWithUsersRequest request, StreamObserver<GetPluralTeamsWithUsersResponse> responseObserver) {
-        TeamWithUsersSortType sortType = switch (request.getSort().getOrderField()) {
-            case TEAM_WITH_USERS_ORDER_FIELD_NAME -> (request.getSort().getOrder() == SortOrder.SORT_ORDER_ASC) ?
-                    TeamWithUsersSortType.NAME_ASC : TeamWithUsersSortType.NAME_DESC;
-            default -> (request.getSort().getOrder() == SortOrder.SORT_ORDER_ASC) ?
-                    TeamWithUsersSortType.CREATED_AT_ASC : TeamWithUsersSortType.CREATED_AT_DESC;
-        };
+        // リクエストのID順で返す(重複IDは除外)
+        TeamFields fields = ReadMaskMapper.toTeamWithUsersFields(request.getReadMask());
         List<TeamWithUsers> organizationProtos = this.teamService.getByTeamIdsWithUsers(
-                        request.getTeamIdsList(), sortType).stream()
-                .map(ProtoMapper::convertWithUsers).toList();
+                        request.getTeamIdsList(), fields).stream()
+                .map(team -> ProtoMapper.convertWithUsers(team, fields)).toList();
         GetPluralTeamsWithUsersResponse response = GetPluralTeamsWithUsersResponse.newBuilder()
                 .addAllTeams(organizationProtos)
                 .build();
@@ -187,10 +221,7 @@ public class TeamServiceHandler extends TeamServiceGrpc.TeamServiceImplBase {
 
     @Override
     public void getUsersOnTeam(GetUsersOnTeamRequest request, StreamObserver<GetUsersOnTeamResponse> responseObserver) {
-        UserOnTeamSortType sortType = switch (request.getSort().getOrderField()) {
-            default -> (request.getSort().getOrder() == SortOrder.SORT_ORDER_ASC) ?
-                    UserOnTeamSortType.ADD_AT_ASC : UserOnTeamSortType.ADD_AT_DESC;
-        };
+        UserOnTeamSortType sortType = toSortType(request);
         PaginationType paginationType;
         switch (request.getPagination().getType()) {
             case PAGINATION_TYPE_CURSOR -> paginationType = PaginationType.CURSOR;
@@ -198,20 +229,24 @@ public class TeamServiceHandler extends TeamServiceGrpc.TeamServiceImplBase {
             default -> paginationType = PaginationType.NONE;
         }
 
-        ListEntityWithCount<TeamUserEntity> organizations = teamService.getUsersOnTeam(
+        ListEntityWithCursor<TeamUserEntity> organizations = teamService.getUsersOnTeam(
                 request.getTeamId(), paginationType, request.getPagination().getLimit(), request.getPagination().getOffset(),
                 request.getPagination().getCursor(), sortType, request.getWithCount());
 
         List<UserOnTeam> userOnTeams = organizations.getData().stream()
                 .map(ProtoMapper::convert).toList();
 
-        GetUsersOnTeamResponse response = GetUsersOnTeamResponse.newBuilder()
+        GetUsersOnTeamResponse.Builder responseBuilder = GetUsersOnTeamResponse.newBuilder()
                 .addAllUsers(userOnTeams)
                 .setCount(
                         Count.newBuilder().setIsValid(request.getWithCount())
-                                .setCount(organizations.getCount()).build()
-                )
-                .build();
+                                .setCount(organizations.getCount())
+                                .setStrategy(toCountStrategyProto(organizations.getCountStrategy())).build()
+                );
+        if (organizations.getNextCursor() != null) {
+            responseBuilder.setNextCursor(organizations.getNextCursor());
+        }
+        GetUsersOnTeamResponse response = responseBuilder.build();
 
         responseObserver.onNext(response);
         responseObserver.onCompleted();
@@ -219,15 +254,7 @@ public class TeamServiceHandler extends TeamServiceGrpc.TeamServiceImplBase {
 
     @Override
     public void getTeamsOnUser(GetTeamsOnUserRequest request, StreamObserver<GetTeamsOnUserResponse> responseObserver) {
-
-        TeamOnUserSortType sortType = switch (request.getSort().getOrderField()) {
-            case TEAM_ON_USER_ORDER_FIELD_CREATE -> (request.getSort().getOrder() == SortOrder.SORT_ORDER_ASC) ?
-                    TeamOnUserSortType.CREATED_AT_ASC : TeamOnUserSortType.CREATED_AT_DESC;
-            case TEAM_ON_USER_ORDER_FIELD_NAME -> (request.getSort().getOrder() == SortOrder.SORT_ORDER_ASC) ?
-                    TeamOnUserSortType.NAME_ASC : TeamOnUserSortType.NAME_DESC;
-            default -> (request.getSort().getOrder() == SortOrder.SORT_ORDER_ASC) ?
-                    TeamOnUserSortType.ADD_AT_ASC : TeamOnUserSortType.ADD_AT_DESC;
-        };
+        TeamOnUserSortType sortType = toSortType(request);
 
         PaginationType paginationType;
         switch (request.getPagination().getType()) {
@@ -236,25 +263,162 @@ public class TeamServiceHandler extends TeamServiceGrpc.TeamServiceImplBase {
             default -> paginationType = PaginationType.NONE;
         }
 
-        ListEntityWithCount<TeamUserEntity> organizations = teamService.getTeamsOnUser(
+        TeamFields fields = ReadMaskMapper.toTeamOnUserFields(request.getReadMask());
+
+        ListEntityWithCursor<TeamUserEntity> organizations = teamService.getTeamsOnUser(
                 request.getUserId(), paginationType, request.getPagination().getLimit(), request.getPagination().getOffset(),
-                request.getPagination().getCursor(), sortType, request.getWithCount());
+                request.getPagination().getCursor(), sortType, request.getWithCount(), fields);
 
         List<TeamOnUser> organizationOnUsers = organizations.getData().stream()
-                .map(ProtoMapper::convertOnUser).toList();
+                .map(teamUser -> ProtoMapper.convertOnUser(teamUser, fields)).toList();
 
-        GetTeamsOnUserResponse response = GetTeamsOnUserResponse.newBuilder()
+        GetTeamsOnUserResponse.Builder responseBuilder = GetTeamsOnUserResponse.newBuilder()
                 .addAllTeams(organizationOnUsers)
                 .setCount(
                         Count.newBuilder().setIsValid(request.getWithCount())
-                                .setCount(organizations.getCount()).build()
-                )
-                .build();
+                                .setCount(organizations.getCount())
+                                .setStrategy(toCountStrategyProto(organizations.getCountStrategy())).build()
+                );
+        if (organizations.getNextCursor() != null) {
+            responseBuilder.setNextCursor(organizations.getNextCursor());
+        }
+        GetTeamsOnUserResponse response = responseBuilder.build();
 
         responseObserver.onNext(response);
         responseObserver.onCompleted();
     }
 
+    @Override
+    public void streamTeams(GetTeamsRequest request, StreamObserver<GetTeamsResponse> responseObserver) {
+        TeamSortType sortType = toSortType(request);
+        IsDefaultFilter isDefaultFilter = toIsDefaultFilter(request);
+        OrganizationFilter organizationFilter = toOrganizationFilter(request);
+        UsersFilter usersFilter = toUsersFilter(request);
+        TeamFields fields = ReadMaskMapper.toTeamFields(request.getReadMask());
+
+        stream(responseObserver, out -> teamService.streamTeams(
+                sortType, isDefaultFilter, organizationFilter, usersFilter, streamProperties.getChunkSize(),
+                chunk -> out.send(GetTeamsResponse.newBuilder()
+                        .addAllTeams(chunk.stream().map(team -> ProtoMapper.convert(team, fields)).toList())
+                        .setCount(Count.newBuilder().setIsValid(false).build())
+                        .build())));
+    }
+
+    @Override
+    public void streamTeamsWithUsers(GetTeamsWithUsersRequest request, StreamObserver<GetTeamsWithUsersResponse> responseObserver) {
+        TeamWithUsersSortType sortType = toSortType(request);
+        IsDefaultFilter isDefaultFilter = toIsDefaultFilter(request);
+        OrganizationFilter organizationFilter = toOrganizationFilter(request);
+        UsersFilter usersFilter = toUsersFilter(request);
+        TeamFields fields = ReadMaskMapper.toTeamWithUsersFields(request.getReadMask());
+
+        stream(responseObserver, out -> teamService.streamTeamsWithUsers(
+                sortType, isDefaultFilter, organizationFilter, usersFilter, fields.users(), request.getUsersLimit(),
+                streamProperties.getChunkSize(),
+                chunk -> out.send(GetTeamsWithUsersResponse.newBuilder()
+                        .addAllTeams(chunk.stream().map(team -> ProtoMapper.convertWithUsers(team, fields)).toList())
+                        .setCount(Count.newBuilder().setIsValid(false).build())
+                        .build())));
+    }
+
+    @Override
+    public void streamUsersOnTeam(GetUsersOnTeamRequest request, StreamObserver<GetUsersOnTeamResponse> responseObserver) {
+        UserOnTeamSortType sortType = toSortType(request);
+
+        stream(responseObserver, out -> teamService.streamUsersOnTeam(
+                request.getTeamId(), sortType, streamProperties.getChunkSize(),
+                chunk -> out.send(GetUsersOnTeamResponse.newBuilder()
+                        .addAllUsers(chunk.stream().map(ProtoMapper::convert).toList())
+                        .setCount(Count.newBuilder().setIsValid(false).build())
+                        .build())));
+    }
+
+    @Override
+    public void streamTeamsOnUser(GetTeamsOnUserRequest request, StreamObserver<GetTeamsOnUserResponse> responseObserver) {
+        TeamOnUserSortType sortType = toSortType(request);
+        TeamFields fields = ReadMaskMapper.toTeamOnUserFields(request.getReadMask());
+
+        stream(responseObserver, out -> teamService.streamTeamsOnUser(
+                request.getUserId(), sortType, streamProperties.getChunkSize(),
+                chunk -> out.send(GetTeamsOnUserResponse.newBuilder()
+                        .addAllTeams(chunk.stream().map(teamUser -> ProtoMapper.convertOnUser(teamUser, fields)).toList())
+                        .setCount(Count.newBuilder().setIsValid(false).build())
+                        .build())));
+    }
+
+    /**
+     * 送信を別スレッドで行い, gRPCのonReady通知を受け取れるようにする.
+     * DBのカーソルはチャンク単位でしか進めないため, クライアントが遅い場合は読み込みも止まる.
+     * 待機が長引いた場合はDEADLINE_EXCEEDEDで打ち切り, トランザクションを終えてコネクションをプールへ返す.
+     */
+    private <T> void stream(StreamObserver<T> responseObserver, Consumer<FlowControlledStreamObserver<T>> producer) {
+        FlowControlledStreamObserver<T> out = new FlowControlledStreamObserver<>(
+                responseObserver, streamProperties.getIdleTimeout(), streamProperties.getMaxDuration());
+        try {
+            teamStreamExecutor.execute(() -> {
+                try {
+                    producer.accept(out);
+                    out.complete();
+                } catch (StatusRuntimeException e) {
+                    out.fail(e);
+                } catch (Exception e) {
+                    log.error("Failed to stream response", e);
+                    out.fail(Status.INTERNAL.withDescription(e.getMessage()).withCause(e).asRuntimeException());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            out.fail(Status.RESOURCE_EXHAUSTED.withDescription("Too many concurrent streams").asRuntimeException());
+        }
+    }
+
+    /**
+     * (teamId, userId)の組をチャンクで受け取り, COPYで一時テーブルへ流し込んでから1文でマージする.
+     * 受け取ったチャンクはその場でDBへ送るため, 件数に関わらずメモリ使用量は一定.
+     * 取り込みは1トランザクションで, ストリームが正常に終了した場合のみ反映する.
+     * 同時実行数の上限に達している場合はRESOURCE_EXHAUSTED, クライアントが送信を止めた場合はDEADLINE_EXCEEDEDを返す.
+     */
+    @Override
+    public StreamObserver<ImportTeamUsersRequest> importTeamUsers(StreamObserver<ImportTeamUsersResponse> responseObserver) {
+        TeamUserCopyImporter.Session session = teamService.openMembershipImport();
+        try {
+            return new MembershipImportStreamObserver(
+                    session,
+                    opened -> toImportTeamUsersResponse(teamService.finishMembershipImport(opened)),
+                    responseObserver,
+                    membershipImportExecutor,
+                    membershipImportTimer,
+                    membershipImportProperties.getIdleTimeout(),
+                    membershipImportProperties.getMaxDuration());
+        } catch (RuntimeException e) {
+            session.close();
+            throw e;
+        }
+    }
+
+    private static ImportTeamUsersResponse toImportTeamUsersResponse(TeamUserCopyImporter.Result result) {
+        return ImportTeamUsersResponse.newBuilder()
+                .setReceived(result.received())
+                .setRejected(result.rejected())
+                .setDuplicates(result.duplicates())
+                .setInserted(result.inserted())
+                .setAlreadyMembers(result.alreadyMembers())
+                .setMissingTeams(result.missingTeams())
+                .addAllAlreadyMemberSamples(result.alreadyMemberSamples().stream()
+                        .map(TeamServiceHandler::toImportTeamUser)
+                        .toList())
+                .addAllMissingTeamSamples(result.missingTeamSamples().stream()
+                        .map(TeamServiceHandler::toImportTeamUser)
+                        .toList())
+                .build();
+    }
+
+    private static ImportTeamUser toImportTeamUser(TeamUserCopyImporter.Row row) {
+        return ImportTeamUser.newBuilder()
+                .setTeamId(row.teamId())
+                .setUserId(row.userId())
+                .build();
+    }
+
     @Override
     public void createTeam(CreateTeamRequest request, StreamObserver<CreateTeamResponse> responseObserver) {
         String operatorId = request.getOperatorId();
@@ -299,4 +463,112 @@ public class TeamServiceHandler extends TeamServiceGrpc.TeamServiceImplBase {
         responseObserver.onNext(response);
         responseObserver.onCompleted();
     }
+
+    /**
+     * チームのメンバーを指定したユーザー集合に一致させるSagaを開始する. 結果はジョブのイベントで通知する.
+     */
+    @Override
+    public void reconcileTeamUsers(ReconcileTeamUsersRequest request, StreamObserver<ReconcileTeamUsersResponse> responseObserver) {
+        String jobId = teamService.beginReconcileUsers(
+                request.getOperatorId(), request.getTeamId(), request.getUserIdsList());
+
+        ReconcileTeamUsersResponse response = ReconcileTeamUsersResponse.newBuilder()
+                .setJobId(jobId)
+                .build();
+
+        responseObserver.onNext(response);
+        responseObserver.onCompleted();
+    }
+
+    private CountStrategy toCountStrategy(build.buf.gen.cresplanex.nova.v1.CountStrategy countStrategy) {
+        return switch (countStrategy) {
+            case COUNT_STRATEGY_CACHED_EXACT -> CountStrategy.CACHED_EXACT;
+            case COUNT_STRATEGY_ESTIMATED -> CountStrategy.ESTIMATED;
+            default -> CountStrategy.EXACT;
+        };
+    }
+
+    private build.buf.gen.cresplanex.nova.v1.CountStrategy toCountStrategyProto(CountStrategy countStrategy) {
+        return switch (countStrategy) {
+            case EXACT -> build.buf.gen.cresplanex.nova.v1.CountStrategy.COUNT_STRATEGY_EXACT;
+            case CACHED_EXACT -> build.buf.gen.cresplanex.nova.v1.CountStrategy.COUNT_STRATEGY_CACHED_EXACT;
+            case ESTIMATED -> build.buf.gen.cresplanex.nova.v1.CountStrategy.COUNT_STRATEGY_ESTIMATED;
+        };
+    }
+
+    private TeamSortType toSortType(GetTeamsRequest request) {
+        return switch (request.getSort().getOrderField()) {
+            case TEAM_ORDER_FIELD_NAME -> (request.getSort().getOrder() == SortOrder.SORT_ORDER_ASC) ?
+                    TeamSortType.NAME_ASC : TeamSortType.NAME_DESC;
+            case TEAM_ORDER_FIELD_MEMBER_COUNT -> (request.getSort().getOrder() == SortOrder.SORT_ORDER_ASC) ?
+                    TeamSortType.MEMBER_COUNT_ASC : TeamSortType.MEMBER_COUNT_DESC;
+            default -> (request.getSort().getOrder() == SortOrder.SORT_ORDER_ASC) ?
+                    TeamSortType.CREATED_AT_ASC : TeamSortType.CREATED_AT_DESC;
+        };
+    }
+
+    private TeamWithUsersSortType toSortType(GetTeamsWithUsersRequest request) {
+        return switch (request.getSort().getOrderField()) {
+            case TEAM_WITH_USERS_ORDER_FIELD_NAME -> (request.getSort().getOrder() == SortOrder.SORT_ORDER_ASC) ?
+                    TeamWithUsersSortType.NAME_ASC : TeamWithUsersSortType.NAME_DESC;
+            case TEAM_WITH_USERS_ORDER_FIELD_MEMBER_COUNT -> (request.getSort().getOrder() == SortOrder.SORT_ORDER_ASC) ?
+                    TeamWithUsersSortType.MEMBER_COUNT_ASC : TeamWithUsersSortType.MEMBER_COUNT_DESC;
+            default -> (request.getSort().getOrder() == SortOrder.SORT_ORDER_ASC) ?
+                    TeamWithUsersSortType.CREATED_AT_ASC : TeamWithUsersSortType.CREATED_AT_DESC;
+        };
+    }
+
+    private UserOnTeamSortType toSortType(GetUsersOnTeamRequest request) {
+        return switch (request.getSort().getOrderField()) {
+            default -> (request.getSort().getOrder() == SortOrder.SORT_ORDER_ASC) ?
+                    UserOnTeamSortType.ADD_AT_ASC : UserOnTeamSortType.ADD_AT_DESC;
+        };
+    }
+
+    private TeamOnUserSortType toSortType(GetTeamsOnUserRequest request) {
+        return switch (request.getSort().getOrderField()) {
+            case TEAM_ON_USER_ORDER_FIELD_CREATE -> (request.getSort().getOrder() == SortOrder.SORT_ORDER_ASC) ?
+                    TeamOnUserSortType.CREATED_AT_ASC : TeamOnUserSortType.CREATED_AT_DESC;
+            case TEAM_ON_USER_ORDER_FIELD_NAME -> (request.getSort().getOrder() == SortOrder.SORT_ORDER_ASC) ?
+                    TeamOnUserSortType.NAME_ASC : TeamOnUserSortType.NAME_DESC;
+            default -> (request.getSort().getOrder() == SortOrder.SORT_ORDER_ASC) ?
+                    TeamOnUserSortType.ADD_AT_ASC : TeamOnUserSortType.ADD_AT_DESC;
+        };
+    }
+
+    private IsDefaultFilter toIsDefaultFilter(GetTeamsRequest request) {
+        return new IsDefaultFilter(
+                request.getFilterIsDefault().getHasValue(), request.getFilterIsDefault().getIsDefault()
+        );
+    }
+
+    private IsDefaultFilter toIsDefaultFilter(GetTeamsWithUsersRequest request) {
+        return new IsDefaultFilter(
+                request.getFilterIsDefault().getHasValue(), request.getFilterIsDefault().getIsDefault()
+        );
+    }
+
+    private OrganizationFilter toOrganizationFilter(GetTeamsRequest request) {
+        return new OrganizationFilter(
+                request.getFilterOrganization().getHasValue(), request.getFilterOrganization().getOrganizationIdsList()
+        );
+    }
+
+    private OrganizationFilter toOrganizationFilter(GetTeamsWithUsersRequest request) {
+        return new OrganizationFilter(
+                request.getFilterOrganization().getHasValue(), request.getFilterOrganization().getOrganizationIdsList()
+        );
+    }
+
+    private UsersFilter toUsersFilter(GetTeamsRequest request) {
+        return new UsersFilter(
+                request.getFilterUser().getHasValue(), request.getFilterUser().getAny(), request.getFilterUser().getUserIdsList()
+        );
+    }
+
+    private UsersFilter toUsersFilter(GetTeamsWithUsersRequest request) {
+        return new UsersFilter(
+                request.getFilterUser().getHasValue(), request.getFilterUser().getAny(), request.getFilterUser().getUserIdsList()
+        );
+    }
 }
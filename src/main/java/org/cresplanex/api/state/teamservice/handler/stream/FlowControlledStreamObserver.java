@@ -0,0 +1,90 @@
+package org.cresplanex.api.state.teamservice.handler.stream;
+
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * gRPCのフロー制御に従ってレスポンスを送信するStreamObserver.
+ * クライアント側の受信バッファが空くまで(isReady)送信スレッドを待機させ,
+ * 送信キューにメッセージが溜まり続けることを防ぐ.
+ * onReadyはgRPCのコールバックスレッドで通知されるため, 送信はハンドラとは別スレッドで行うこと.
+ * 送信側は待機中も読み込みのトランザクションとDBコネクションを保持しているため,
+ * 1メッセージの待機がidleTimeoutを, Stream全体がmaxDurationを超えた場合はDEADLINE_EXCEEDEDで打ち切る.
+ */
+public class FlowControlledStreamObserver<T> {
+
+    private final ServerCallStreamObserver<T> observer;
+    private final Object readyLock = new Object();
+    private final long idleTimeoutNanos;
+    private final long deadlineNanos;
+    private volatile boolean cancelled;
+
+    /**
+     * @param responseObserver レスポンスのStreamObserver
+     * @param idleTimeout 1メッセージの送信でクライアントの受信を待つ最大時間
+     * @param maxDuration Stream全体の最大処理時間
+     */
+    public FlowControlledStreamObserver(StreamObserver<T> responseObserver, Duration idleTimeout, Duration maxDuration) {
+        this.observer = (ServerCallStreamObserver<T>) responseObserver;
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        this.deadlineNanos = System.nanoTime() + maxDuration.toNanos();
+        this.observer.setOnReadyHandler(this::signal);
+        this.observer.setOnCancelHandler(() -> {
+            cancelled = true;
+            signal();
+        });
+    }
+
+    public void send(T message) {
+        long now = System.nanoTime();
+        if (now - deadlineNanos >= 0) {
+            throw Status.DEADLINE_EXCEEDED.withDescription("Stream exceeded its maximum duration").asRuntimeException();
+        }
+        long waitUntil = now + Math.min(idleTimeoutNanos, deadlineNanos - now);
+        synchronized (readyLock) {
+            while (!observer.isReady() && !cancelled) {
+                long remaining = waitUntil - System.nanoTime();
+                if (remaining <= 0) {
+                    throw Status.DEADLINE_EXCEEDED.withDescription("Client did not read the stream in time").asRuntimeException();
+                }
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(readyLock, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw Status.CANCELLED.withDescription("Interrupted while waiting for the client")
+                            .withCause(e).asRuntimeException();
+                }
+            }
+        }
+        if (cancelled) {
+            throw Status.CANCELLED.withDescription("Client cancelled the stream").asRuntimeException();
+        }
+        observer.onNext(message);
+    }
+
+    public void complete() {
+        if (!cancelled) {
+            observer.onCompleted();
+        }
+    }
+
+    public void fail(Throwable t) {
+        if (!cancelled) {
+            observer.onError(t);
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    private void signal() {
+        synchronized (readyLock) {
+            readyLock.notifyAll();
+        }
+    }
+}
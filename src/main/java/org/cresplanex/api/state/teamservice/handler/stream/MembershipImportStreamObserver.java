@@ -0,0 +1,211 @@
+package org.cresplanex.api.state.teamservice.handler.stream;
+
+import build.buf.gen.team.v1.ImportTeamUser;
+import build.buf.gen.team.v1.ImportTeamUsersRequest;
+import build.buf.gen.team.v1.ImportTeamUsersResponse;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import lombok.extern.slf4j.Slf4j;
+import org.cresplanex.api.state.teamservice.exception.TooManyMembershipImportsException;
+import org.cresplanex.api.state.teamservice.repository.TeamUserCopyImporter;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * importTeamUsersのリクエストを受け取るStreamObserver.
+ * COPYへの書き込みはDBを待つことがあるため, gRPCのコールバックスレッドではなくwriterで1つずつ順に行い,
+ * 1メッセージを書き込み終えてから次のメッセージを要求する(受信側のフロー制御).
+ * 取り込みは終了までトランザクションとDBコネクション, 同時実行数の枠を保持するため,
+ * クライアントが次のメッセージを送らないままidleTimeoutを, 受信全体がmaxDurationを超えた場合は
+ * DEADLINE_EXCEEDEDで打ち切り, 取り込みを取り消して接続を返す.
+ * 取り消し(Session.close)もwriterで行い, 書き込み中のSessionを別スレッドから操作しない.
+ */
+@Slf4j
+public class MembershipImportStreamObserver implements StreamObserver<ImportTeamUsersRequest> {
+
+    private final TeamUserCopyImporter.Session session;
+    private final Function<TeamUserCopyImporter.Session, ImportTeamUsersResponse> finisher;
+    private final ServerCallStreamObserver<ImportTeamUsersResponse> responseObserver;
+    private final Executor writer;
+    private final ScheduledExecutorService timer;
+    private final long idleTimeoutNanos;
+    private final ScheduledFuture<?> maxDurationTimer;
+
+    /**
+     * レスポンスを返した(または取り消された)か. 応答はコールバック, writer, timerのいずれか1つからのみ返す.
+     */
+    private final AtomicBoolean terminated = new AtomicBoolean();
+    private CompletableFuture<Void> tail = CompletableFuture.completedFuture(null);
+    private volatile ScheduledFuture<?> idleTimer;
+    private volatile long lastActivityNanos;
+    private volatile boolean awaitingClient;
+    private volatile boolean halfClosed;
+
+    /**
+     * @param session 開始済みの取り込み
+     * @param finisher 取り込みをマージしてレスポンスを作る処理
+     * @param responseObserver レスポンスのStreamObserver
+     * @param writer COPYへの書き込みを行うスレッド
+     * @param timer idleTimeoutとmaxDurationを監視するスレッド
+     * @param idleTimeout クライアントの次のメッセージを待つ最大時間
+     * @param maxDuration 受信全体の最大時間
+     */
+    public MembershipImportStreamObserver(
+            TeamUserCopyImporter.Session session,
+            Function<TeamUserCopyImporter.Session, ImportTeamUsersResponse> finisher,
+            StreamObserver<ImportTeamUsersResponse> responseObserver,
+            Executor writer,
+            ScheduledExecutorService timer,
+            Duration idleTimeout,
+            Duration maxDuration
+    ) {
+        this.session = session;
+        this.finisher = finisher;
+        this.responseObserver = (ServerCallStreamObserver<ImportTeamUsersResponse>) responseObserver;
+        this.writer = writer;
+        this.timer = timer;
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        // ハンドラから戻る前に呼ぶ必要がある
+        this.responseObserver.disableAutoRequest();
+        this.maxDurationTimer = timer.schedule(
+                () -> expire("Import exceeded its maximum duration"), maxDuration.toNanos(), TimeUnit.NANOSECONDS);
+        scheduleIdleCheck(idleTimeoutNanos);
+        requestNext();
+    }
+
+    @Override
+    public void onNext(ImportTeamUsersRequest request) {
+        awaitingClient = false;
+        enqueue(() -> write(request));
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        // クライアントによる取り消し. 何も反映しない
+        halfClosed = true;
+        cancelTimers();
+        terminated.set(true);
+        enqueue(session::close);
+    }
+
+    @Override
+    public void onCompleted() {
+        halfClosed = true;
+        cancelTimers();
+        enqueue(this::finish);
+    }
+
+    private void write(ImportTeamUsersRequest request) {
+        if (terminated.get()) {
+            return;
+        }
+        try {
+            for (ImportTeamUser user : request.getUsersList()) {
+                session.add(user.getTeamId(), user.getUserId());
+            }
+        } catch (Exception e) {
+            if (terminated.compareAndSet(false, true)) {
+                cancelTimers();
+                session.close();
+                respondError(e);
+            }
+            return;
+        }
+        requestNext();
+    }
+
+    private void finish() {
+        if (!terminated.compareAndSet(false, true)) {
+            session.close();
+            return;
+        }
+        ImportTeamUsersResponse response;
+        try {
+            response = finisher.apply(session);
+        } catch (Exception e) {
+            respondError(e);
+            return;
+        } finally {
+            session.close();
+        }
+        responseObserver.onNext(response);
+        responseObserver.onCompleted();
+    }
+
+    private void expire(String reason) {
+        if (!terminated.compareAndSet(false, true)) {
+            return;
+        }
+        cancelTimers();
+        log.warn("Membership import aborted: {}", reason);
+        responseObserver.onError(Status.DEADLINE_EXCEEDED.withDescription(reason).asRuntimeException());
+        enqueue(session::close);
+    }
+
+    private void requestNext() {
+        lastActivityNanos = System.nanoTime();
+        awaitingClient = true;
+        responseObserver.request(1);
+    }
+
+    private void scheduleIdleCheck(long delayNanos) {
+        idleTimer = timer.schedule(this::checkIdle, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 書き込み中はクライアントを待っていないため, 次のメッセージを要求してからの時間だけを数える.
+     */
+    private void checkIdle() {
+        if (terminated.get() || halfClosed) {
+            return;
+        }
+        long idle = awaitingClient ? System.nanoTime() - lastActivityNanos : 0;
+        if (idle >= idleTimeoutNanos) {
+            expire("Client did not send the next message in time");
+        } else {
+            scheduleIdleCheck(idleTimeoutNanos - idle);
+        }
+    }
+
+    private void cancelTimers() {
+        maxDurationTimer.cancel(false);
+        ScheduledFuture<?> idle = idleTimer;
+        if (idle != null) {
+            idle.cancel(false);
+        }
+    }
+
+    /**
+     * writerで前のタスクの後に実行する. 各タスクは例外を投げないため, 後続のタスクは必ず実行される.
+     */
+    private synchronized void enqueue(Runnable task) {
+        tail = tail.thenRunAsync(task, writer);
+    }
+
+    private void respondError(Exception e) {
+        Status status = toStatus(e);
+        if (status.getCode() == Status.Code.INTERNAL) {
+            log.error("Failed to import team users", e);
+        }
+        responseObserver.onError(status.asRuntimeException());
+    }
+
+    private static Status toStatus(Exception e) {
+        if (e instanceof StatusRuntimeException statusException) {
+            return statusException.getStatus();
+        }
+        if (e instanceof TooManyMembershipImportsException) {
+            return Status.RESOURCE_EXHAUSTED.withDescription(e.getMessage()).withCause(e);
+        }
+        return Status.INTERNAL.withDescription(e.getMessage()).withCause(e);
+    }
+}
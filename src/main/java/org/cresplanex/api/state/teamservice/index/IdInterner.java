@@ -0,0 +1,135 @@
+package org.cresplanex.api.state.teamservice.index;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * IDの文字列に0から連番のint序数を割り当てる.
+ * オープンアドレス法のint配列で引き当てるため, Integerのボクシングやエントリオブジェクトを持たない.
+ * 序数は一度割り当てたら変わらず, 再利用もしない.
+ * 書き込み(intern)は呼び出し側で直列化すること. 読み込み(ordinalOf/idOf)はロック不要.
+ *
+ * <p>配列の再作成が不要なinternは, 読み込み側が参照中のTableと同じ配列へ書き込む.
+ * その要素は新しいTableのvolatileな公開より前に書かれるため, 公開後のTableを読んだ側には見えるが,
+ * 古いTableを読んだ側からは見えたり見えなかったりする. 読み込み側は自分のTableのsize未満の序数だけを有効とし,
+ * それ以降の要素は未登録として扱う. 書き込みは空きスロットと未使用の要素にのみ行うため,
+ * 古いTableの範囲の内容が変わることはない.</p>
+ */
+public class IdInterner {
+
+    private static final int ABSENT = -1;
+
+    /**
+     * slots[i]は序数+1(0は空き). 要素数の2倍以上を保つ.
+     */
+    private volatile Table table;
+
+    private record Table(int[] slots, String[] ids, int size) {
+    }
+
+    public IdInterner() {
+        this(1024);
+    }
+
+    public IdInterner(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize) * 2 - 1) << 1;
+        this.table = new Table(new int[capacity], new String[Math.max(16, expectedSize)], 0);
+    }
+
+    /**
+     * 序数を取得し, 未登録であれば割り当てる.
+     *
+     * @param id ID
+     * @return 序数
+     */
+    public int intern(String id) {
+        Table current = table;
+        int found = find(current, id);
+        if (found != ABSENT) {
+            return found;
+        }
+        int ordinal = current.size();
+        if (ordinal == current.ids().length || (ordinal + 1) * 2 > current.slots().length) {
+            // 古いTableを参照中の読み込み側が, 範囲外の序数を引かないよう配列を作り直す
+            int capacity = (ordinal + 1) * 2 > current.slots().length
+                    ? current.slots().length * 2 : current.slots().length;
+            current = rehash(new Table(current.slots(), Arrays.copyOf(current.ids(), ordinal * 2), ordinal), capacity);
+        }
+        String[] ids = current.ids();
+        ids[ordinal] = id;
+        int[] slots = current.slots();
+        slots[slotFor(slots, id)] = ordinal + 1;
+        // 新しいTableをvolatileで公開し, 読み込み側から書き込んだ要素が見えるようにする.
+        // 公開前に同じ配列を読んだ側は, size以上の序数を無視する(find)
+        table = new Table(slots, ids, ordinal + 1);
+        return ordinal;
+    }
+
+    /**
+     * @param id ID
+     * @return 序数. 未登録の場合は-1
+     */
+    public int ordinalOf(String id) {
+        return find(table, id);
+    }
+
+    /**
+     * @param ordinal 序数
+     * @return ID
+     */
+    public String idOf(int ordinal) {
+        Table current = table;
+        return current.ids()[Objects.checkIndex(ordinal, current.size())];
+    }
+
+    public int size() {
+        return table.size();
+    }
+
+    /**
+     * 登録済みのIDを序数順に返す(スナップショットの書き出し用).
+     */
+    public String[] ids() {
+        Table current = table;
+        return Arrays.copyOf(current.ids(), current.size());
+    }
+
+    private static int find(Table table, String id) {
+        int[] slots = table.slots();
+        int mask = slots.length - 1;
+        int i = spread(id.hashCode()) & mask;
+        while (true) {
+            int slot = slots[i];
+            if (slot == 0) {
+                return ABSENT;
+            }
+            // size以上の序数は公開前のintern中の要素で, idsの要素がまだ見えない場合がある
+            if (slot <= table.size() && id.equals(table.ids()[slot - 1])) {
+                return slot - 1;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    private static int slotFor(int[] slots, String id) {
+        int mask = slots.length - 1;
+        int i = spread(id.hashCode()) & mask;
+        while (slots[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    private static Table rehash(Table current, int capacity) {
+        int[] slots = new int[capacity];
+        String[] ids = current.ids();
+        for (int ordinal = 0; ordinal < current.size(); ordinal++) {
+            slots[slotFor(slots, ids[ordinal])] = ordinal + 1;
+        }
+        return new Table(slots, ids, current.size());
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
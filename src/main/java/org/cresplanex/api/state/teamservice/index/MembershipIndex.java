@@ -0,0 +1,611 @@
+package org.cresplanex.api.state.teamservice.index;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.cresplanex.api.state.common.enums.PaginationType;
+import org.cresplanex.api.state.teamservice.cache.TeamChangeListener;
+import org.cresplanex.api.state.teamservice.config.MembershipIndexProperties;
+import org.cresplanex.api.state.teamservice.cursor.ListEntityWithCursor;
+import org.cresplanex.api.state.teamservice.cursor.TeamUserCursor;
+import org.cresplanex.api.state.teamservice.entity.TeamEntity;
+import org.cresplanex.api.state.teamservice.entity.TeamUserEntity;
+import org.cresplanex.api.state.teamservice.enums.TeamOnUserSortType;
+import org.cresplanex.api.state.teamservice.service.MembershipIndexLoader;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+import static org.cresplanex.api.state.teamservice.index.Timestamps.fromMicros;
+import static org.cresplanex.api.state.teamservice.index.Timestamps.toMicros;
+
+/**
+ * ユーザー→所属チームのメンバーシップインデックス.
+ * チームとユーザーのIDをIdInternerで序数に変換し, ユーザーの序数ごとに所属チームの序数を昇順のint配列で保持する.
+ * IDの文字列は序数ごとに1つだけ保持し, メンバーシップあたりの保持量はint/long/TeamUserのIDのみ.
+ * 起動時にteams/team_userから構築し, 以降はTeamChangeListenerとしてチーム単位で差分更新する.
+ * スナップショットファイルがあれば, それを読み込んだうえでウォーターマーク以降の差分だけをDBから読み込み直す.
+ * 構築中に通知されたチームは構築完了後に読み込み直す.
+ * 通知を取りこぼした場合に備え, 定期的にDBと照合して差のあるチームを読み込み直す(reconcile).
+ * 読み込み側はロックを取らず, 書き込み(構築/更新)は1つのロックで直列化する.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MembershipIndex implements TeamChangeListener, MeterBinder {
+
+    private static final Comparator<Entry> ADD_AT_ASC = Comparator
+            .comparing(Entry::addedAt)
+            .thenComparing(Entry::teamUserId);
+    private static final Comparator<Entry> ADD_AT_DESC = ADD_AT_ASC.reversed();
+
+    private final MembershipIndexProperties properties;
+    private final MembershipIndexLoader loader;
+
+    private final Object writeLock = new Object();
+    private final IdInterner teamIds = new IdInterner();
+    private final IdInterner userIds = new IdInterner();
+    /**
+     * チームの序数 → TeamRow(削除済みはnull).
+     */
+    private volatile TeamRow[] teams = new TeamRow[1024];
+    /**
+     * ユーザーの序数 → UserTeams(所属なしはnull).
+     */
+    private volatile UserTeams[] users = new UserTeams[1024];
+
+    private volatile boolean ready;
+    private volatile LocalDateTime reconciledAt = LocalDateTime.now();
+    private volatile boolean failed;
+    private final Set<String> pendingTeamIds = new HashSet<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void bootstrap() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        Thread.ofPlatform().name("membership-index-bootstrap").start(() -> {
+            try {
+                build();
+            } catch (Exception e) {
+                // 構築に失敗した場合はインデックスを使わず, DBから返し続ける
+                log.error("Failed to build membership index", e);
+                synchronized (writeLock) {
+                    failed = true;
+                    pendingTeamIds.clear();
+                }
+            }
+        });
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public boolean isFailed() {
+        return failed;
+    }
+
+    private void build() {
+        long started = System.nanoTime();
+        reconciledAt = LocalDateTime.now();
+        Set<String> changedTeamIds = new HashSet<>();
+        Path snapshotPath = snapshotPath();
+        MembershipSnapshotFile.Snapshot snapshot = snapshotPath == null ? null : readSnapshot(snapshotPath);
+
+        // 構築中は更新を保留するため, 書き込むのはこのスレッドのみ. ロックは最後の反映時だけ取る
+        if (snapshot != null) {
+            restore(snapshot);
+            changedTeamIds.addAll(findChangedSince(snapshot.watermark()));
+        } else {
+            load();
+        }
+
+        int refreshed;
+        synchronized (writeLock) {
+            changedTeamIds.addAll(pendingTeamIds);
+            pendingTeamIds.clear();
+            for (String teamId : changedTeamIds) {
+                refreshLocked(teamId);
+            }
+            refreshed = changedTeamIds.size();
+            ready = true;
+        }
+        log.info("Membership index built from {}: {} teams, {} users, {} teams refreshed in {} ms",
+                snapshot != null ? "snapshot" : "database",
+                teamIds.size(), userIds.size(), refreshed, (System.nanoTime() - started) / 1_000_000);
+
+        if (snapshot == null) {
+            writeSnapshot();
+        }
+    }
+
+    private void load() {
+        List<IntList> members = new ArrayList<>();
+        UserTeamsBuilder builder = new UserTeamsBuilder();
+
+        loader.loadAll(properties.getBootstrapChunkSize(),
+                chunk -> chunk.forEach(team -> {
+                    putTeam(TeamRow.of(team, null));
+                    members.add(new IntList());
+                }),
+                chunk -> chunk.forEach(teamUser -> {
+                    int ordinal = teamIds.ordinalOf(teamUser.getTeamId());
+                    if (ordinal < 0) {
+                        // 読み込み中に作成されたチーム. 通知により構築後に読み込み直す
+                        return;
+                    }
+                    int user = userIds.intern(teamUser.getUserId());
+                    builder.add(user, ordinal, teamUser.getTeamUserId(), toMicros(teamUser.getCreatedAt()));
+                    members.get(ordinal).add(user);
+                }));
+        builder.flush();
+
+        TeamRow[] rows = teams;
+        for (int i = 0; i < members.size(); i++) {
+            rows[i] = rows[i].withMembers(members.get(i).toArray());
+        }
+    }
+
+    private MembershipSnapshotFile.Snapshot readSnapshot(Path path) {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try {
+            MembershipSnapshotFile.Snapshot snapshot = MembershipSnapshotFile.read(path);
+            for (UserTeams memberships : snapshot.users()) {
+                if (memberships == null) {
+                    continue;
+                }
+                for (int team : memberships.teams) {
+                    if (team < 0 || team >= snapshot.teamIds().length) {
+                        throw new IOException("Team ordinal out of range: " + team);
+                    }
+                }
+            }
+            return snapshot;
+        } catch (IOException e) {
+            log.warn("Ignoring membership snapshot {}, building from database", path, e);
+            return null;
+        }
+    }
+
+    private void restore(MembershipSnapshotFile.Snapshot snapshot) {
+        // 空のIdInternerへ序数順に登録するため, スナップショットと同じ序数が割り当たる
+        for (String teamId : snapshot.teamIds()) {
+            teamIds.intern(teamId);
+        }
+        for (String userId : snapshot.userIds()) {
+            userIds.intern(userId);
+        }
+
+        IntList[] members = new IntList[snapshot.teamIds().length];
+        UserTeams[] byUser = snapshot.users();
+        for (int user = 0; user < byUser.length; user++) {
+            if (byUser[user] == null) {
+                continue;
+            }
+            for (int team : byUser[user].teams) {
+                if (members[team] == null) {
+                    members[team] = new IntList();
+                }
+                members[team].add(user);
+            }
+        }
+        TeamRow[] rows = Arrays.copyOf(snapshot.teams(), Math.max(snapshot.teams().length, 1024));
+        for (int i = 0; i < snapshot.teams().length; i++) {
+            if (rows[i] != null) {
+                rows[i] = rows[i].withMembers(members[i] == null ? new int[0] : members[i].toArray());
+            }
+        }
+        teams = rows;
+        users = Arrays.copyOf(byUser, Math.max(byUser.length, 1024));
+    }
+
+    /**
+     * スナップショットに反映されていない可能性のあるチームを求める.
+     * 作成/更新日時とメンバーの追加日時に加え, 削除はチームの有無とメンバー数の比較で検出する.
+     */
+    private Set<String> findChangedSince(LocalDateTime watermark) {
+        Set<String> changed = loader.findTeamIdsChangedSince(watermark);
+        changed.addAll(findDrifted());
+        return changed;
+    }
+
+    /**
+     * チームの有無とメンバー数がDBと異なるチームを求める.
+     */
+    private Set<String> findDrifted() {
+        Set<String> changed = new HashSet<>();
+        Set<String> existing = loader.findAllTeamIds();
+        Map<String, Long> memberCounts = loader.countMembersByTeam();
+
+        TeamRow[] rows = teams;
+        for (int ordinal = 0; ordinal < teamIds.size(); ordinal++) {
+            String teamId = teamIds.idOf(ordinal);
+            TeamRow row = rows[ordinal];
+            boolean exists = existing.contains(teamId);
+            if (row == null ? exists
+                    : !exists || row.memberUsers().length != memberCounts.getOrDefault(teamId, 0L)) {
+                changed.add(teamId);
+            }
+        }
+        for (String teamId : existing) {
+            if (teamIds.ordinalOf(teamId) < 0) {
+                changed.add(teamId);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * 変更の通知を取りこぼした場合に備え, 前回以降に作成/更新されたチームと, 有無やメンバー数がDBと異なるチームを読み込み直す.
+     * 通知による更新と同じくロック内で読み込むため, 通知と前後しても古い状態には戻らない.
+     */
+    @Scheduled(
+            initialDelayString = "${app.membership-index.reconcile-interval:PT15M}",
+            fixedDelayString = "${app.membership-index.reconcile-interval:PT15M}")
+    public void reconcile() {
+        if (!properties.isEnabled() || !ready || failed) {
+            return;
+        }
+        LocalDateTime started = LocalDateTime.now();
+        Set<String> changed = findChangedSince(reconciledAt.minus(properties.getSnapshotWatermarkMargin()));
+        synchronized (writeLock) {
+            for (String teamId : changed) {
+                refreshLocked(teamId);
+            }
+        }
+        reconciledAt = started;
+        if (!changed.isEmpty()) {
+            log.info("Membership index reconciled: {} teams refreshed", changed.size());
+        }
+    }
+
+    /**
+     * 現在のインデックスをスナップショットファイルへ書き出す.
+     * 配列の参照のみをロック内で複製し, 書き込みはロック外で行う(TeamRow/UserTeamsは不変).
+     */
+    @Scheduled(
+            initialDelayString = "${app.membership-index.snapshot-interval:PT10M}",
+            fixedDelayString = "${app.membership-index.snapshot-interval:PT10M}")
+    @PreDestroy
+    public void writeSnapshot() {
+        Path path = snapshotPath();
+        if (path == null || !ready) {
+            return;
+        }
+        MembershipSnapshotFile.Snapshot snapshot;
+        synchronized (writeLock) {
+            LocalDateTime watermark = LocalDateTime.now().minus(properties.getSnapshotWatermarkMargin());
+            snapshot = new MembershipSnapshotFile.Snapshot(
+                    watermark, teamIds.ids(), teams.clone(), userIds.ids(), users.clone());
+        }
+        try {
+            MembershipSnapshotFile.write(path, snapshot);
+            log.debug("Membership snapshot written to {} (watermark {})", path, snapshot.watermark());
+        } catch (IOException e) {
+            log.warn("Failed to write membership snapshot {}", path, e);
+        }
+    }
+
+    private Path snapshotPath() {
+        String path = properties.getSnapshotPath();
+        return path == null || path.isBlank() ? null : Path.of(path);
+    }
+
+    @Override
+    public void onTeamChanged(String teamId, String organizationId, long version) {
+        if (!properties.isEnabled() || failed) {
+            return;
+        }
+        synchronized (writeLock) {
+            if (!ready) {
+                pendingTeamIds.add(teamId);
+                return;
+            }
+            // 同じチームの更新が前後しないよう, 読み込みもロック内で行う
+            refreshLocked(teamId);
+        }
+    }
+
+    private void refreshLocked(String teamId) {
+        Optional<TeamEntity> loaded = loader.loadTeam(teamId);
+        int ordinal = teamIds.ordinalOf(teamId);
+        TeamRow current = ordinal < 0 ? null : teams[ordinal];
+        int[] previousMembers = current == null || current.memberUsers() == null
+                ? new int[0] : current.memberUsers();
+
+        if (loaded.isEmpty()) {
+            if (ordinal >= 0) {
+                for (int user : previousMembers) {
+                    updateUser(user, memberships -> memberships.without(ordinal));
+                }
+                setTeam(ordinal, null);
+            }
+            return;
+        }
+
+        TeamEntity team = loaded.get();
+        List<TeamUserEntity> teamUsers = team.getTeamUsers();
+        int[] memberUsers = new int[teamUsers.size()];
+        for (int i = 0; i < memberUsers.length; i++) {
+            memberUsers[i] = userIds.intern(teamUsers.get(i).getUserId());
+        }
+        TeamRow row = TeamRow.of(team, memberUsers);
+        int teamOrdinal = ordinal >= 0 ? ordinal : putTeam(row);
+        setTeam(teamOrdinal, row);
+
+        int[] remaining = memberUsers.clone();
+        Arrays.sort(remaining);
+        for (int user : previousMembers) {
+            if (Arrays.binarySearch(remaining, user) < 0) {
+                updateUser(user, memberships -> memberships.without(teamOrdinal));
+            }
+        }
+        for (int i = 0; i < memberUsers.length; i++) {
+            TeamUserEntity teamUser = teamUsers.get(i);
+            long added = toMicros(teamUser.getCreatedAt());
+            updateUser(memberUsers[i], memberships -> memberships.with(teamOrdinal, teamUser.getTeamUserId(), added));
+        }
+    }
+
+    private int putTeam(TeamRow row) {
+        int ordinal = teamIds.intern(row.teamId());
+        TeamRow[] rows = teams;
+        if (ordinal >= rows.length) {
+            rows = Arrays.copyOf(rows, Math.max(rows.length * 2, ordinal + 1));
+        }
+        rows[ordinal] = row;
+        teams = rows;
+        return ordinal;
+    }
+
+    private void setTeam(int ordinal, TeamRow row) {
+        TeamRow[] rows = teams;
+        rows[ordinal] = row;
+        // volatileの再書き込みで読み込み側へ公開する
+        teams = rows;
+    }
+
+    private void setUser(int user, UserTeams memberships) {
+        UserTeams[] current = users;
+        if (user >= current.length) {
+            current = Arrays.copyOf(current, Math.max(current.length * 2, user + 1));
+        }
+        current[user] = memberships;
+        users = current;
+    }
+
+    private void updateUser(int user, UnaryOperator<UserTeams> update) {
+        UserTeams[] current = users;
+        UserTeams memberships = user < current.length && current[user] != null ? current[user] : UserTeams.EMPTY;
+        setUser(user, nullIfEmpty(update.apply(memberships)));
+    }
+
+    private static UserTeams nullIfEmpty(UserTeams memberships) {
+        return memberships.size() == 0 ? null : memberships;
+    }
+
+    /**
+     * ユーザーの所属チームをインデックスから返す. 並び順とカーソルはDBから取得する場合と同じ.
+     * チーム名の順序(NAME_*)はDBの照合順序に依存し, Javaの文字列順とは一致しないため, インデックスからは返さない.
+     * 同じカーソルをインデックスとDBのどちらで解釈しても, 行を読み飛ばしたり重複したりしないようにするため.
+     *
+     * @return インデックスが無効もしくは構築中の場合, NAME_*の並びの場合は空
+     */
+    public Optional<ListEntityWithCursor<TeamUserEntity>> getTeamsOnUser(
+            String userId,
+            PaginationType paginationType,
+            int limit,
+            int offset,
+            TeamUserCursor after,
+            TeamOnUserSortType sortType,
+            boolean withCount
+    ) {
+        if (!properties.isEnabled() || !ready || !serves(sortType)) {
+            return Optional.empty();
+        }
+
+        UserTeams memberships = membershipsOf(userIds.ordinalOf(userId));
+        TeamRow[] rows = teams;
+        List<Entry> entries = new ArrayList<>(memberships.size());
+        for (int i = 0; i < memberships.size(); i++) {
+            TeamRow row = rows[memberships.teams[i]];
+            if (row != null) {
+                entries.add(new Entry(row, memberships.teamUserIds[i], fromMicros(memberships.addedAt[i])));
+            }
+        }
+        Comparator<Entry> order = comparator(sortType);
+        entries.sort(order);
+
+        int from;
+        int to;
+        String nextCursor = null;
+        switch (paginationType) {
+            case CURSOR -> {
+                from = after == null ? 0 : firstAfter(entries, probe(sortType, after), order);
+                to = Math.min(from + limit, entries.size());
+                if (to < entries.size() && to > from) {
+                    nextCursor = cursorOf(sortType, entries.get(to - 1)).encode(sortType);
+                }
+            }
+            case OFFSET -> {
+                from = Math.min(offset, entries.size());
+                to = Math.min(from + limit, entries.size());
+            }
+            default -> {
+                from = 0;
+                to = entries.size();
+            }
+        }
+
+        List<TeamUserEntity> data = entries.subList(from, to).stream()
+                .map(entry -> entry.toEntity(userId))
+                .toList();
+        return Optional.of(new ListEntityWithCursor<>(data, withCount ? entries.size() : 0, nextCursor));
+    }
+
+    private UserTeams membershipsOf(int user) {
+        UserTeams[] byUser = users;
+        return user < 0 || user >= byUser.length || byUser[user] == null ? UserTeams.EMPTY : byUser[user];
+    }
+
+    private static int firstAfter(List<Entry> entries, Entry probe, Comparator<Entry> order) {
+        int low = 0;
+        int high = entries.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (order.compare(entries.get(mid), probe) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static boolean serves(TeamOnUserSortType sortType) {
+        return sortType != TeamOnUserSortType.NAME_ASC && sortType != TeamOnUserSortType.NAME_DESC;
+    }
+
+    private static Comparator<Entry> comparator(TeamOnUserSortType sortType) {
+        return switch (sortType) {
+            case ADD_AT_ASC -> ADD_AT_ASC;
+            case ADD_AT_DESC -> ADD_AT_DESC;
+            case NAME_ASC, NAME_DESC -> throw new IllegalArgumentException("Not served by the index: " + sortType);
+            case CREATED_AT_ASC -> Comparator.comparing(Entry::teamCreatedAt).thenComparing(ADD_AT_DESC);
+            case CREATED_AT_DESC -> Comparator.comparing(Entry::teamCreatedAt).reversed().thenComparing(ADD_AT_DESC);
+        };
+    }
+
+    private static Entry probe(TeamOnUserSortType sortType, TeamUserCursor cursor) {
+        TeamRow team = switch (sortType) {
+            case ADD_AT_ASC, ADD_AT_DESC -> new TeamRow(null, null, null, null, false, null, null);
+            case NAME_ASC, NAME_DESC -> throw new IllegalArgumentException("Not served by the index: " + sortType);
+            case CREATED_AT_ASC, CREATED_AT_DESC -> new TeamRow(null, null, null, null, false, cursor.sortKeyAsTimestamp(), null);
+        };
+        return new Entry(team, cursor.teamUserId(), cursor.createdAt());
+    }
+
+    private static TeamUserCursor cursorOf(TeamOnUserSortType sortType, Entry entry) {
+        String sortKey = switch (sortType) {
+            case ADD_AT_ASC, ADD_AT_DESC -> entry.addedAt().toString();
+            case NAME_ASC, NAME_DESC -> throw new IllegalArgumentException("Not served by the index: " + sortType);
+            case CREATED_AT_ASC, CREATED_AT_DESC -> entry.teamCreatedAt().toString();
+        };
+        return new TeamUserCursor(sortKey, entry.addedAt(), entry.teamUserId());
+    }
+
+    private record Entry(TeamRow team, String teamUserId, LocalDateTime addedAt) {
+
+        LocalDateTime teamCreatedAt() {
+            return team.createdAt();
+        }
+
+        TeamUserEntity toEntity(String userId) {
+            TeamUserEntity teamUser = new TeamUserEntity();
+            teamUser.setTeamUserId(teamUserId);
+            teamUser.setTeamId(team.teamId());
+            teamUser.setUserId(userId);
+            teamUser.setTeam(team.toEntity());
+            return teamUser;
+        }
+    }
+
+    /**
+     * userId順に並んだTeamUserから, ユーザーごとのUserTeamsを組み立てる.
+     */
+    private class UserTeamsBuilder {
+
+        private int user = -1;
+        private int size;
+        private int[] ordinals = new int[16];
+        private String[] teamUserIds = new String[16];
+        private long[] addedAt = new long[16];
+
+        void add(int user, int team, String teamUserId, long added) {
+            if (user != this.user) {
+                flush();
+                this.user = user;
+            }
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+                teamUserIds = Arrays.copyOf(teamUserIds, size * 2);
+                addedAt = Arrays.copyOf(addedAt, size * 2);
+            }
+            ordinals[size] = team;
+            teamUserIds[size] = teamUserId;
+            addedAt[size] = added;
+            size++;
+        }
+
+        void flush() {
+            if (user >= 0 && size > 0) {
+                setUser(user, UserTeams.sorted(ordinals, teamUserIds, addedAt, size));
+            }
+            size = 0;
+        }
+    }
+
+    /**
+     * 構築時にチームごとのメンバーを集める可変長のint配列.
+     */
+    private static class IntList {
+
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("team.membership.index.teams", teamIds, IdInterner::size)
+                .description("Number of team ordinals in the membership index")
+                .register(registry);
+        Gauge.builder("team.membership.index.users", userIds, IdInterner::size)
+                .description("Number of user ordinals in the membership index")
+                .register(registry);
+        Gauge.builder("team.membership.index.memberships", this, MembershipIndex::membershipCount)
+                .description("Number of memberships held in the membership index")
+                .register(registry);
+    }
+
+    private double membershipCount() {
+        long count = 0;
+        for (UserTeams memberships : users) {
+            if (memberships != null) {
+                count += memberships.size();
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,34 @@
+package org.cresplanex.api.state.teamservice.index;
+
+import lombok.RequiredArgsConstructor;
+import org.cresplanex.api.state.teamservice.config.MembershipIndexProperties;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * メンバーシップインデックスの構築(スナップショットからの追い付きを含む)が終わるまでOUT_OF_SERVICEを返す.
+ * readinessグループに含め, 構築中のPodにトラフィックを流さない.
+ * 構築に失敗した場合はDBから返せるため, UPとする.
+ */
+@Component
+@RequiredArgsConstructor
+public class MembershipIndexHealthIndicator implements HealthIndicator {
+
+    private final MembershipIndexProperties properties;
+    private final MembershipIndex membershipIndex;
+
+    @Override
+    public Health health() {
+        if (!properties.isEnabled()) {
+            return Health.up().withDetail("state", "disabled").build();
+        }
+        if (membershipIndex.isFailed()) {
+            return Health.up().withDetail("state", "failed").withDetail("fallback", "database").build();
+        }
+        if (!membershipIndex.isReady()) {
+            return Health.outOfService().withDetail("state", "building").build();
+        }
+        return Health.up().withDetail("state", "ready").build();
+    }
+}
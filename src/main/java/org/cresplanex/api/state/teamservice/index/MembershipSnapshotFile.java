@@ -0,0 +1,166 @@
+package org.cresplanex.api.state.teamservice.index;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+
+/**
+ * メンバーシップインデックスのスナップショットファイルの書き込み/読み込み.
+ * 読み込みはMappedByteBufferで行い, ヒープへのファイル全体のコピーを作らない.
+ *
+ * <pre>
+ * int magic, int formatVersion, long watermark(エポックマイクロ秒)
+ * int teamCount, { string teamId, byte present, [string organizationId, string name, string description, byte isDefault, long createdAt] }
+ * int userCount, { string userId, int size, { int teamOrdinal, string teamUserId, long addedAt } }
+ * string: int length(nullは-1) + UTF-8
+ * </pre>
+ * チームとユーザーは序数順に並べ, 読み込み時に同じ序数が割り当たるようにする.
+ */
+final class MembershipSnapshotFile {
+
+    private static final int MAGIC = 0x544D5348;
+    private static final int FORMAT_VERSION = 1;
+
+    private MembershipSnapshotFile() {
+    }
+
+    /**
+     * @param watermark この時刻以降の変更はスナップショットに含まれていない可能性がある
+     * @param teamIds チームの序数順のID
+     * @param teams チームの序数 → TeamRow(削除済みはnull)
+     * @param userIds ユーザーの序数順のID
+     * @param users ユーザーの序数 → UserTeams(所属なしはnull)
+     */
+    record Snapshot(LocalDateTime watermark, String[] teamIds, TeamRow[] teams, String[] userIds, UserTeams[] users) {
+    }
+
+    /**
+     * 一時ファイルに書き込んでから置き換えるため, 書き込み途中のファイルを読み込むことはない.
+     */
+    static void write(Path path, Snapshot snapshot) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeLong(Timestamps.toMicros(snapshot.watermark()));
+
+                out.writeInt(snapshot.teamIds().length);
+                for (int i = 0; i < snapshot.teamIds().length; i++) {
+                    writeString(out, snapshot.teamIds()[i]);
+                    TeamRow row = i < snapshot.teams().length ? snapshot.teams()[i] : null;
+                    out.writeByte(row == null ? 0 : 1);
+                    if (row != null) {
+                        writeString(out, row.organizationId());
+                        writeString(out, row.name());
+                        writeString(out, row.description());
+                        out.writeByte(row.isDefault() ? 1 : 0);
+                        out.writeLong(Timestamps.toMicros(row.createdAt()));
+                    }
+                }
+
+                out.writeInt(snapshot.userIds().length);
+                for (int i = 0; i < snapshot.userIds().length; i++) {
+                    writeString(out, snapshot.userIds()[i]);
+                    UserTeams memberships = i < snapshot.users().length && snapshot.users()[i] != null
+                            ? snapshot.users()[i] : UserTeams.EMPTY;
+                    out.writeInt(memberships.size());
+                    for (int j = 0; j < memberships.size(); j++) {
+                        out.writeInt(memberships.teams[j]);
+                        writeString(out, memberships.teamUserIds[j]);
+                        out.writeLong(memberships.addedAt[j]);
+                    }
+                }
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * @return 読み込んだスナップショット. TeamRowのメンバーはユーザー側から組み立て直す必要がある
+     * @throws IOException ファイルが読めない, もしくは形式が不正な場合
+     */
+    static Snapshot read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                throw new IOException("Unsupported membership snapshot: " + path);
+            }
+            LocalDateTime watermark = Timestamps.fromMicros(buffer.getLong());
+
+            int teamCount = buffer.getInt();
+            String[] teamIds = new String[teamCount];
+            TeamRow[] teams = new TeamRow[teamCount];
+            for (int i = 0; i < teamCount; i++) {
+                teamIds[i] = readString(buffer);
+                if (buffer.get() != 0) {
+                    String organizationId = readString(buffer);
+                    String name = readString(buffer);
+                    String description = readString(buffer);
+                    boolean isDefault = buffer.get() != 0;
+                    LocalDateTime createdAt = Timestamps.fromMicros(buffer.getLong());
+                    teams[i] = new TeamRow(teamIds[i], organizationId, name, description, isDefault, createdAt, null);
+                }
+            }
+
+            int userCount = buffer.getInt();
+            String[] userIds = new String[userCount];
+            UserTeams[] users = new UserTeams[userCount];
+            for (int i = 0; i < userCount; i++) {
+                userIds[i] = readString(buffer);
+                int size = buffer.getInt();
+                if (size == 0) {
+                    continue;
+                }
+                int[] ordinals = new int[size];
+                String[] teamUserIds = new String[size];
+                long[] addedAt = new long[size];
+                for (int j = 0; j < size; j++) {
+                    ordinals[j] = buffer.getInt();
+                    teamUserIds[j] = readString(buffer);
+                    addedAt[j] = buffer.getLong();
+                }
+                users[i] = new UserTeams(ordinals, teamUserIds, addedAt);
+            }
+            return new Snapshot(watermark, teamIds, teams, userIds, users);
+        } catch (BufferUnderflowException | IllegalArgumentException | NegativeArraySizeException e) {
+            throw new IOException("Truncated membership snapshot: " + path, e);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(MappedByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > buffer.remaining()) {
+            throw new IllegalArgumentException("string length exceeds remaining bytes");
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
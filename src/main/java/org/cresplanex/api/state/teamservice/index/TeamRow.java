@@ -0,0 +1,46 @@
+package org.cresplanex.api.state.teamservice.index;
+
+import org.cresplanex.api.state.teamservice.entity.TeamEntity;
+
+import java.time.LocalDateTime;
+
+/**
+ * インデックスが保持するTeamの値. メンバーの差分を求めるため, 所属ユーザーの序数も持つ.
+ */
+record TeamRow(
+        String teamId,
+        String organizationId,
+        String name,
+        String description,
+        boolean isDefault,
+        LocalDateTime createdAt,
+        int[] memberUsers
+) {
+
+    static TeamRow of(TeamEntity team, int[] memberUsers) {
+        return new TeamRow(
+                team.getTeamId(),
+                team.getOrganizationId(),
+                team.getName(),
+                team.getDescription(),
+                team.isDefault(),
+                team.getCreatedAt(),
+                memberUsers
+        );
+    }
+
+    TeamRow withMembers(int[] memberUsers) {
+        return new TeamRow(teamId, organizationId, name, description, isDefault, createdAt, memberUsers);
+    }
+
+    TeamEntity toEntity() {
+        TeamEntity team = new TeamEntity();
+        team.setTeamId(teamId);
+        team.setOrganizationId(organizationId);
+        team.setName(name);
+        team.setDescription(description);
+        team.setDefault(isDefault);
+        team.setMemberCount(memberUsers == null ? 0 : memberUsers.length);
+        return team;
+    }
+}
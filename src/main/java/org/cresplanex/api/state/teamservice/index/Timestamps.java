@@ -0,0 +1,23 @@
+package org.cresplanex.api.state.teamservice.index;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * インデックス内でLocalDateTimeをlong(UTCとしてのエポックマイクロ秒)で保持するための変換.
+ * PostgreSQLのtimestampの精度はマイクロ秒のため, 往復しても値は変わらない.
+ */
+final class Timestamps {
+
+    private Timestamps() {
+    }
+
+    static long toMicros(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + dateTime.getNano() / 1_000;
+    }
+
+    static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(
+                Math.floorDiv(micros, 1_000_000L), (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+}
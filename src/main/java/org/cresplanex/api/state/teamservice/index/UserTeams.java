@@ -0,0 +1,97 @@
+package org.cresplanex.api.state.teamservice.index;
+
+import java.util.Arrays;
+
+/**
+ * 1ユーザーが所属するチームの集合.
+ * チームの序数を昇順のint配列で持ち, TeamUserのIDと追加日時を同じ添字の並列配列で持つ.
+ * 不変で, 変更は新しいインスタンスを返す(読み込み側はロック不要).
+ */
+final class UserTeams {
+
+    static final UserTeams EMPTY = new UserTeams(new int[0], new String[0], new long[0]);
+
+    final int[] teams;
+    final String[] teamUserIds;
+    /**
+     * TeamUserの作成日時(UTCとしてのエポックマイクロ秒).
+     */
+    final long[] addedAt;
+
+    UserTeams(int[] teams, String[] teamUserIds, long[] addedAt) {
+        this.teams = teams;
+        this.teamUserIds = teamUserIds;
+        this.addedAt = addedAt;
+    }
+
+    /**
+     * 序数順に並んでいない配列から作成する. 引数の配列は並べ替えられる.
+     */
+    static UserTeams sorted(int[] teams, String[] teamUserIds, long[] addedAt, int size) {
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(teams[a], teams[b]));
+        int[] sortedTeams = new int[size];
+        String[] sortedTeamUserIds = new String[size];
+        long[] sortedAddedAt = new long[size];
+        for (int i = 0; i < size; i++) {
+            sortedTeams[i] = teams[order[i]];
+            sortedTeamUserIds[i] = teamUserIds[order[i]];
+            sortedAddedAt[i] = addedAt[order[i]];
+        }
+        return new UserTeams(sortedTeams, sortedTeamUserIds, sortedAddedAt);
+    }
+
+    int size() {
+        return teams.length;
+    }
+
+    UserTeams with(int team, String teamUserId, long added) {
+        int i = Arrays.binarySearch(teams, team);
+        if (i >= 0) {
+            String[] newTeamUserIds = teamUserIds.clone();
+            long[] newAddedAt = addedAt.clone();
+            newTeamUserIds[i] = teamUserId;
+            newAddedAt[i] = added;
+            return new UserTeams(teams, newTeamUserIds, newAddedAt);
+        }
+        int at = -i - 1;
+        int size = teams.length;
+        int[] newTeams = new int[size + 1];
+        String[] newTeamUserIds = new String[size + 1];
+        long[] newAddedAt = new long[size + 1];
+        System.arraycopy(teams, 0, newTeams, 0, at);
+        System.arraycopy(teamUserIds, 0, newTeamUserIds, 0, at);
+        System.arraycopy(addedAt, 0, newAddedAt, 0, at);
+        newTeams[at] = team;
+        newTeamUserIds[at] = teamUserId;
+        newAddedAt[at] = added;
+        System.arraycopy(teams, at, newTeams, at + 1, size - at);
+        System.arraycopy(teamUserIds, at, newTeamUserIds, at + 1, size - at);
+        System.arraycopy(addedAt, at, newAddedAt, at + 1, size - at);
+        return new UserTeams(newTeams, newTeamUserIds, newAddedAt);
+    }
+
+    UserTeams without(int team) {
+        int i = Arrays.binarySearch(teams, team);
+        if (i < 0) {
+            return this;
+        }
+        int size = teams.length;
+        if (size == 1) {
+            return EMPTY;
+        }
+        int[] newTeams = new int[size - 1];
+        String[] newTeamUserIds = new String[size - 1];
+        long[] newAddedAt = new long[size - 1];
+        System.arraycopy(teams, 0, newTeams, 0, i);
+        System.arraycopy(teamUserIds, 0, newTeamUserIds, 0, i);
+        System.arraycopy(addedAt, 0, newAddedAt, 0, i);
+        System.arraycopy(teams, i + 1, newTeams, i, size - i - 1);
+        System.arraycopy(teamUserIds, i + 1, newTeamUserIds, i, size - i - 1);
+        System.arraycopy(addedAt, i + 1, newAddedAt, i, size - i - 1);
+        return new UserTeams(newTeams, newTeamUserIds, newAddedAt);
+    }
+}
@@ -9,6 +9,7 @@ import build.buf.gen.team.v1.UserOnTeam;
 import org.cresplanex.api.state.common.utils.ValueFromNullable;
 import org.cresplanex.api.state.teamservice.entity.TeamEntity;
 import org.cresplanex.api.state.teamservice.entity.TeamUserEntity;
+import org.cresplanex.api.state.teamservice.repository.projection.TeamFields;
 
 import java.util.List;
 
@@ -22,9 +23,34 @@ public class ProtoMapper {
                 .setName(teamEntity.getName())
                 .setDescription(ValueFromNullable.toNullableString(teamEntity.getDescription()))
                 .setIsDefault(teamEntity.isDefault())
+                .setMemberCount(teamEntity.getMemberCount())
                 .build();
     }
 
+    /**
+     * read_maskで指定されたフィールドのみを設定する. teamIdは常に設定する.
+     */
+    public static Team convert(TeamEntity teamEntity, TeamFields fields) {
+        Team.Builder builder = Team.newBuilder()
+                .setTeamId(teamEntity.getTeamId());
+        if (fields.organizationId()) {
+            builder.setOrganizationId(teamEntity.getOrganizationId());
+        }
+        if (fields.name()) {
+            builder.setName(teamEntity.getName());
+        }
+        if (fields.description()) {
+            builder.setDescription(ValueFromNullable.toNullableString(teamEntity.getDescription()));
+        }
+        if (fields.isDefault()) {
+            builder.setIsDefault(teamEntity.isDefault());
+        }
+        if (fields.memberCount()) {
+            builder.setMemberCount(teamEntity.getMemberCount());
+        }
+        return builder.build();
+    }
+
     public static UserOnTeam convert(TeamUserEntity userOnTeamEntity) {
         return UserOnTeam.newBuilder()
                 .setUserId(userOnTeamEntity.getUserId())
@@ -56,4 +82,21 @@ public class ProtoMapper {
                 .addAllUsers(convert(teamEntity.getTeamUsers()))
                 .build();
     }
+
+    public static TeamOnUser convertOnUser(TeamUserEntity teamUserEntity, TeamFields fields) {
+        return TeamOnUser.newBuilder()
+                .setTeam(convert(teamUserEntity.getTeam(), fields))
+                .build();
+    }
+
+    public static TeamWithUsers convertWithUsers(TeamEntity teamEntity, TeamFields fields) {
+        TeamWithUsers.Builder builder = TeamWithUsers.newBuilder()
+                .setTeam(convert(teamEntity, fields));
+        if (fields.users()) {
+            builder.addAllUsers(convert(teamEntity.getTeamUsers()))
+                    .setUsersTotalCount((int) Math.max(teamEntity.getUsersTotalCount(), teamEntity.getTeamUsers().size()))
+                    .setUsersTruncated(teamEntity.isUsersTruncated());
+        }
+        return builder.build();
+    }
 }
@@ -0,0 +1,99 @@
+package org.cresplanex.api.state.teamservice.mapper.proto;
+
+import com.google.protobuf.FieldMask;
+import org.cresplanex.api.state.teamservice.exception.InvalidReadMaskException;
+import org.cresplanex.api.state.teamservice.repository.projection.TeamFields;
+
+/**
+ * リクエストのread_mask(FieldMask)を, 読み込む列を表すTeamFieldsへ変換する.
+ * read_maskが空の場合はすべてのフィールドを返す.
+ */
+public class ReadMaskMapper {
+
+    private static final String TEAM_PREFIX = "team.";
+
+    /**
+     * Teamに対するread_mask(例: "name", "description").
+     */
+    public static TeamFields toTeamFields(FieldMask mask) {
+        if (mask.getPathsCount() == 0) {
+            return TeamFields.ALL;
+        }
+        Builder builder = new Builder();
+        for (String path : mask.getPathsList()) {
+            builder.addTeamField(path, path);
+        }
+        return builder.build(false);
+    }
+
+    /**
+     * TeamWithUsersに対するread_mask(例: "team.name", "users").
+     * "users"を含まない場合はメンバーを読み込まない.
+     */
+    public static TeamFields toTeamWithUsersFields(FieldMask mask) {
+        if (mask.getPathsCount() == 0) {
+            return TeamFields.ALL;
+        }
+        Builder builder = new Builder();
+        boolean users = false;
+        for (String path : mask.getPathsList()) {
+            if (path.equals("users") || path.startsWith("users.")) {
+                users = true;
+            } else {
+                builder.addNestedTeamField(path);
+            }
+        }
+        return builder.build(users);
+    }
+
+    /**
+     * TeamOnUserに対するread_mask(例: "team.name").
+     */
+    public static TeamFields toTeamOnUserFields(FieldMask mask) {
+        if (mask.getPathsCount() == 0) {
+            return TeamFields.ALL;
+        }
+        Builder builder = new Builder();
+        for (String path : mask.getPathsList()) {
+            builder.addNestedTeamField(path);
+        }
+        return builder.build(false);
+    }
+
+    private static class Builder {
+
+        private boolean organizationId;
+        private boolean name;
+        private boolean description;
+        private boolean isDefault;
+        private boolean memberCount;
+
+        void addNestedTeamField(String path) {
+            if (path.equals("team")) {
+                organizationId = name = description = isDefault = memberCount = true;
+            } else if (path.startsWith(TEAM_PREFIX)) {
+                addTeamField(path.substring(TEAM_PREFIX.length()), path);
+            } else {
+                throw new InvalidReadMaskException(path);
+            }
+        }
+
+        void addTeamField(String field, String path) {
+            switch (field) {
+                case "team_id" -> {
+                    // 常に返す
+                }
+                case "organization_id" -> organizationId = true;
+                case "name" -> name = true;
+                case "description" -> description = true;
+                case "is_default" -> isDefault = true;
+                case "member_count" -> memberCount = true;
+                default -> throw new InvalidReadMaskException(path);
+            }
+        }
+
+        TeamFields build(boolean users) {
+            return new TeamFields(organizationId, name, description, isDefault, memberCount, users);
+        }
+    }
+}
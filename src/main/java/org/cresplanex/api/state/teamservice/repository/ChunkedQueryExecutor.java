@@ -0,0 +1,85 @@
+package org.cresplanex.api.state.teamservice.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Specificationに一致する行を前方専用のJDBCカーソルで読み, チャンク単位でコールバックする.
+ * チャンクごとに永続化コンテキストをクリアするため, 結果件数に関わらずヒープ使用量は一定.
+ * トランザクション内(readOnly可)で呼び出すこと(PostgreSQLはトランザクション外ではfetchSizeを無視する).
+ */
+@Repository
+public class ChunkedQueryExecutor {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * @param domainClass エンティティクラス
+     * @param spec 検索条件
+     * @param sort ソート
+     * @param chunkSize 1チャンクあたりの件数(JDBCのfetchSizeにも利用)
+     * @param chunkConsumer チャンクの処理. 呼び出し後にチャンク内のエンティティはdetachされる
+     * @return 読み込んだ総件数
+     */
+    public <T> long forEachChunk(
+            Class<T> domainClass,
+            Specification<T> spec,
+            Sort sort,
+            int chunkSize,
+            Consumer<List<T>> chunkConsumer
+    ) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<T> query = criteriaBuilder.createQuery(domainClass);
+        Root<T> root = query.from(domainClass);
+        Predicate predicate = spec.toPredicate(root, query, criteriaBuilder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.select(root);
+        query.orderBy(QueryUtils.toOrders(sort, root, criteriaBuilder));
+
+        TypedQuery<T> typedQuery = entityManager.createQuery(query)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, chunkSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true);
+
+        long total = 0;
+        List<T> chunk = new ArrayList<>(chunkSize);
+        try (Stream<T> rows = typedQuery.getResultStream()) {
+            Iterator<T> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == chunkSize) {
+                    total += flush(chunk, chunkConsumer);
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                total += flush(chunk, chunkConsumer);
+            }
+        }
+        return total;
+    }
+
+    private <T> int flush(List<T> chunk, Consumer<List<T>> chunkConsumer) {
+        chunkConsumer.accept(chunk);
+        entityManager.clear();
+        return chunk.size();
+    }
+}
@@ -0,0 +1,87 @@
+package org.cresplanex.api.state.teamservice.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import org.cresplanex.api.state.teamservice.cache.TeamCountKey;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * PostgreSQLの統計情報から一覧の件数を推定する(CountStrategy.ESTIMATED).
+ * 条件がない場合はpg_class.reltuplesを, 条件がある場合は同じ条件のSELECTをEXPLAINしたプランナの推定行数を返す.
+ * どちらも実行計画を立てるだけで行は読まないため, 件数に比例したコストはかからない.
+ * 推定値は直近のANALYZEに依存し, 正確な件数とは一致しない.
+ */
+@Repository
+public class CountEstimator {
+
+    private static final Pattern PLAN_ROWS = Pattern.compile("\"Plan Rows\"\\s*:\\s*(\\d+)");
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * TeamSpecificationsのwithIsDefaultFilter/withOrganizationFilter/withBelongUsersFilterと同じ条件で推定する.
+     *
+     * @param key 条件
+     * @return 推定件数. 統計情報がない場合は空
+     */
+    public OptionalLong estimateTeams(TeamCountKey key) {
+        if (key.isDefault() == null && key.organizationIds() == null && key.userIds() == null) {
+            OptionalLong reltuples = reltuples("teams");
+            if (reltuples.isPresent()) {
+                return reltuples;
+            }
+        }
+
+        StringBuilder sql = new StringBuilder("SELECT 1 FROM teams t WHERE TRUE");
+        List<Object> parameters = new ArrayList<>();
+        if (key.isDefault() != null) {
+            parameters.add(key.isDefault());
+            sql.append(" AND t.is_default = ?").append(parameters.size());
+        }
+        if (key.organizationIds() != null) {
+            parameters.add(key.organizationIds().toArray(String[]::new));
+            sql.append(" AND t.organization_id = ANY(CAST(?").append(parameters.size()).append(" AS varchar[]))");
+        }
+        if (key.userIds() != null) {
+            parameters.add(key.userIds().toArray(String[]::new));
+            if (key.anyUser()) {
+                sql.append(" AND EXISTS (SELECT 1 FROM team_user tu WHERE tu.team_id = t.team_id")
+                        .append(" AND tu.user_id = ANY(CAST(?").append(parameters.size()).append(" AS varchar[])))");
+            } else {
+                sql.append(" AND t.team_id IN (SELECT tu.team_id FROM team_user tu")
+                        .append(" WHERE tu.user_id = ANY(CAST(?").append(parameters.size()).append(" AS varchar[]))");
+                parameters.add((long) key.userIds().size());
+                sql.append(" GROUP BY tu.team_id HAVING count(DISTINCT tu.user_id) = ?").append(parameters.size()).append(")");
+            }
+        }
+        return explainRows(sql.toString(), parameters);
+    }
+
+    private OptionalLong reltuples(String table) {
+        Object result = entityManager
+                .createNativeQuery("SELECT CAST(reltuples AS bigint) FROM pg_class WHERE oid = CAST(?1 AS regclass)")
+                .setParameter(1, table)
+                .getSingleResult();
+        long rows = ((Number) result).longValue();
+        // 一度もANALYZEされていない場合は-1
+        return rows < 0 ? OptionalLong.empty() : OptionalLong.of(rows);
+    }
+
+    private OptionalLong explainRows(String sql, List<Object> parameters) {
+        Query query = entityManager.createNativeQuery("EXPLAIN (FORMAT JSON) " + sql);
+        for (int i = 0; i < parameters.size(); i++) {
+            query.setParameter(i + 1, parameters.get(i));
+        }
+        // 最初のPlan Rowsが最上位ノード(結果全体)の推定行数
+        Matcher matcher = PLAN_ROWS.matcher(String.valueOf(query.getSingleResult()));
+        return matcher.find() ? OptionalLong.of(Long.parseLong(matcher.group(1))) : OptionalLong.empty();
+    }
+}
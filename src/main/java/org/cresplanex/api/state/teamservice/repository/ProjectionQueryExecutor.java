@@ -0,0 +1,165 @@
+package org.cresplanex.api.state.teamservice.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.From;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.cresplanex.api.state.teamservice.entity.TeamEntity;
+import org.cresplanex.api.state.teamservice.entity.TeamUserEntity;
+import org.cresplanex.api.state.teamservice.repository.projection.TeamFields;
+import org.cresplanex.api.state.teamservice.repository.projection.TeamUserView;
+import org.cresplanex.api.state.teamservice.repository.projection.TeamView;
+import org.cresplanex.api.state.teamservice.specification.Joins;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Specificationに一致する行を, protoに必要な列のみのTupleで読み込みTeamView/TeamUserViewへ変換する.
+ * エンティティを経由しないため, 永続化コンテキストへの登録, スナップショットの保持, 遅延ロードのプロキシが発生しない.
+ * 読み込む列はTeamFields(リクエストのread_mask)で指定でき, 不要な列(descriptionなど)はSELECTしない.
+ * JOINしたTeamが必要な場合はfetchではなくJOINの列を選択するため, TeamUserSpecifications.fetchTeamは指定しないこと.
+ */
+@Repository
+public class ProjectionQueryExecutor {
+
+    /**
+     * 件数を制限しない場合のlimit.
+     */
+    public static final int UNLIMITED = -1;
+
+    private static final String TEAM_PREFIX = "team_";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * @param spec 検索条件
+     * @param sort ソート
+     * @param offset 読み飛ばす件数
+     * @param limit 最大件数. UNLIMITEDの場合は制限しない
+     * @param fields 読み込む列
+     * @return Teamの射影のリスト
+     */
+    public List<TeamView> findTeams(
+            Specification<TeamEntity> spec, Sort sort, int offset, int limit, TeamFields fields) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = criteriaBuilder.createTupleQuery();
+        Root<TeamEntity> root = query.from(TeamEntity.class);
+        query.multiselect(teamColumns(root, fields, ""));
+        applyWhereAndOrder(query, root, spec, sort, criteriaBuilder);
+
+        List<Tuple> rows = page(entityManager.createQuery(query), offset, limit).getResultList();
+        List<TeamView> views = new ArrayList<>(rows.size());
+        for (Tuple row : rows) {
+            views.add(toTeamView(row, fields, ""));
+        }
+        return views;
+    }
+
+    /**
+     * @param spec 検索条件
+     * @param sort ソート("team.name"などJOIN先の属性も指定できる)
+     * @param offset 読み飛ばす件数
+     * @param limit 最大件数. UNLIMITEDの場合は制限しない
+     * @param teamFields JOINして射影に含めるTeamの列. nullの場合はJOINしない
+     * @return TeamUserの射影のリスト
+     */
+    public List<TeamUserView> findTeamUsers(
+            Specification<TeamUserEntity> spec, Sort sort, int offset, int limit, TeamFields teamFields) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = criteriaBuilder.createTupleQuery();
+        Root<TeamUserEntity> root = query.from(TeamUserEntity.class);
+
+        List<Selection<?>> columns = new ArrayList<>(List.of(
+                root.get("teamUserId").alias("teamUserId"),
+                root.get("teamId").alias("teamId"),
+                root.get("userId").alias("userId"),
+                root.get("createdAt").alias("createdAt")));
+        if (teamFields != null) {
+            // 検索条件(カーソル)とソートの"team.*"もJoinsで同じJOINを再利用する
+            Join<TeamUserEntity, TeamEntity> team = Joins.getOrCreate(root, "team");
+            columns.addAll(teamColumns(team, teamFields, TEAM_PREFIX));
+        }
+        query.multiselect(columns);
+        applyWhereAndOrder(query, root, spec, sort, criteriaBuilder);
+
+        List<Tuple> rows = page(entityManager.createQuery(query), offset, limit).getResultList();
+        List<TeamUserView> views = new ArrayList<>(rows.size());
+        for (Tuple row : rows) {
+            views.add(new TeamUserView(
+                    row.get("teamUserId", String.class),
+                    row.get("teamId", String.class),
+                    row.get("userId", String.class),
+                    row.get("createdAt", LocalDateTime.class),
+                    teamFields != null ? toTeamView(row, teamFields, TEAM_PREFIX) : null));
+        }
+        return views;
+    }
+
+    private static List<Selection<?>> teamColumns(From<?, TeamEntity> team, TeamFields fields, String prefix) {
+        List<Selection<?>> columns = new ArrayList<>(7);
+        columns.add(team.get("teamId").alias(prefix + "teamId"));
+        columns.add(team.get("createdAt").alias(prefix + "createdAt"));
+        if (fields.organizationId()) {
+            columns.add(team.get("organizationId").alias(prefix + "organizationId"));
+        }
+        if (fields.name()) {
+            columns.add(team.get("name").alias(prefix + "name"));
+        }
+        if (fields.description()) {
+            columns.add(team.get("description").alias(prefix + "description"));
+        }
+        if (fields.isDefault()) {
+            columns.add(team.get("isDefault").alias(prefix + "isDefault"));
+        }
+        if (fields.memberCount()) {
+            columns.add(team.get("memberCount").alias(prefix + "memberCount"));
+        }
+        return columns;
+    }
+
+    private static TeamView toTeamView(Tuple row, TeamFields fields, String prefix) {
+        return new TeamView(
+                row.get(prefix + "teamId", String.class),
+                fields.organizationId() ? row.get(prefix + "organizationId", String.class) : null,
+                fields.name() ? row.get(prefix + "name", String.class) : null,
+                fields.description() ? row.get(prefix + "description", String.class) : null,
+                fields.isDefault() && row.get(prefix + "isDefault", Boolean.class),
+                fields.memberCount() ? row.get(prefix + "memberCount", Integer.class) : 0,
+                row.get(prefix + "createdAt", LocalDateTime.class));
+    }
+
+    private static <T> void applyWhereAndOrder(
+            CriteriaQuery<Tuple> query, Root<T> root, Specification<T> spec, Sort sort, CriteriaBuilder criteriaBuilder) {
+        Predicate predicate = spec.toPredicate(root, query, criteriaBuilder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(Joins.toOrders(sort, root, criteriaBuilder));
+    }
+
+    private static TypedQuery<Tuple> page(TypedQuery<Tuple> query, int offset, int limit) {
+        // スカラーの射影は管理対象を作らないが, 念のため読み込み専用として実行する
+        query.setHint(HibernateHints.HINT_READ_ONLY, true);
+        if (offset > 0) {
+            query.setFirstResult(offset);
+        }
+        if (limit != UNLIMITED) {
+            query.setMaxResults(limit);
+        }
+        return query;
+    }
+}
@@ -0,0 +1,385 @@
+package org.cresplanex.api.state.teamservice.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.cresplanex.api.state.teamservice.entity.TeamEntity;
+import org.cresplanex.api.state.teamservice.entity.TeamUserEntity;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.Generator;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * TeamUserの追加を1文で行う.
+ * チームの取得, 既存メンバーの確認, INSERT ... ON CONFLICT (team_id, user_id) DO NOTHING, teams.member_countの加算を
+ * データ変更CTEでまとめ, ユーザー数に関わらず1往復で実行する.
+ * ユーザーは配列パラメータとしてunnestで展開するため, 件数ごとにSQLやプランが増えない.
+ *
+ * <p>既存メンバーが1人でもいれば何も挿入しない(AlreadyExistTeamUserExceptionの従来の意味を保つ).
+ * 確認から挿入までの間に並行して追加されたユーザーはON CONFLICTで読み飛ばされるため,
+ * その場合は今回挿入した行を取り消し, 読み飛ばされたユーザーを既存メンバーとして返す.</p>
+ *
+ * <p>メンバーの照合(reconcile)も, 望ましいメンバー集合とteam_userとのアンチジョインで差分を求め,
+ * 追加と削除を1文で反映する. 照合の前にlockTeamでチームをロックし, 呼び出し側が存在とデフォルトチームでないことを
+ * 確認してから書き込む.</p>
+ *
+ * <p>補償(undo)の削除も件数に関わらず1文で行う. 既に削除済みの行は対象にならないため, 再実行しても結果は変わらない.</p>
+ *
+ * <p>メンバーを変更した文はすべて, member_countと同時にteamsのversionとupdated_atを進める.
+ * キャッシュは通知されたversionより古い値を格納せず, 他のノードは更新日時による差分読み込みで変更を検出するため.</p>
+ */
+@Repository
+public class TeamMembershipWriter {
+
+    private static final String TEAM_BY_ID =
+            "SELECT team_id, organization_id FROM teams WHERE team_id = :key";
+
+    private static final String DEFAULT_TEAM_BY_ORGANIZATION_ID =
+            "SELECT team_id, organization_id FROM teams WHERE organization_id = :key AND is_default = true";
+
+    private static final String INSERT_MEMBERS = """
+            WITH team AS (%s),
+            input AS (
+                SELECT u.team_user_id, u.user_id
+                FROM unnest(CAST(:teamUserIds AS varchar[]), CAST(:userIds AS varchar[])) AS u(team_user_id, user_id)
+            ),
+            existing AS (
+                SELECT tu.user_id FROM team_user tu JOIN team t ON tu.team_id = t.team_id
+                WHERE tu.user_id = ANY(CAST(:userIds AS varchar[]))
+            ),
+            inserted AS (
+                INSERT INTO team_user (team_user_id, team_id, user_id, version, created_at, created_by)
+                SELECT i.team_user_id, t.team_id, i.user_id, 0, :createdAt, :createdBy
+                FROM input i CROSS JOIN team t
+                WHERE NOT EXISTS (SELECT 1 FROM existing)
+                ON CONFLICT (team_id, user_id) DO NOTHING
+                RETURNING team_user_id, user_id, created_at, version
+            ),
+            counted AS (
+                UPDATE teams SET member_count = member_count + (SELECT count(*) FROM inserted),
+                    version = version + 1, updated_at = :createdAt, updated_by = :createdBy
+                WHERE team_id = (SELECT team_id FROM team) AND EXISTS (SELECT 1 FROM inserted)
+            )
+            SELECT 'T', t.team_id, t.organization_id, CAST(NULL AS timestamp), CAST(NULL AS integer) FROM team t
+            UNION ALL SELECT 'E', NULL, e.user_id, NULL, NULL FROM existing e
+            UNION ALL SELECT 'I', n.team_user_id, n.user_id, n.created_at, n.version FROM inserted n
+            """;
+
+    private static final String DELETE_MEMBERS = """
+            WITH deleted AS (
+                DELETE FROM team_user WHERE team_user_id = ANY(CAST(:teamUserIds AS varchar[])) RETURNING team_id
+            )
+            UPDATE teams SET member_count = member_count - (SELECT count(*) FROM deleted),
+                version = version + 1, updated_at = :now, updated_by = :operator
+            WHERE team_id = :teamId
+            """;
+
+    /**
+     * 照合の前にteamsの行をロックし, 存在とデフォルトチームかどうかを確認する.
+     * ロックはトランザクションの終了まで保持するため, 同じチームの照合は直列になる.
+     */
+    private static final String LOCK_TEAM =
+            "SELECT team_id, organization_id, is_default FROM teams WHERE team_id = :teamId FOR UPDATE";
+
+    /**
+     * LOCK_TEAMでロックしたチームに対して実行する. 存在とデフォルトチームでないことは呼び出し側で確認済みとする.
+     */
+    private static final String RECONCILE_MEMBERS = """
+            WITH desired AS (
+                SELECT d.team_user_id, d.user_id
+                FROM unnest(CAST(:teamUserIds AS varchar[]), CAST(:userIds AS varchar[])) AS d(team_user_id, user_id)
+            ),
+            removed AS (
+                DELETE FROM team_user tu
+                WHERE tu.team_id = :teamId
+                  AND NOT EXISTS (SELECT 1 FROM desired d WHERE d.user_id = tu.user_id)
+                RETURNING tu.team_user_id, tu.user_id
+            ),
+            added AS (
+                INSERT INTO team_user (team_user_id, team_id, user_id, version, created_at, created_by)
+                SELECT d.team_user_id, :teamId, d.user_id, 0, :now, :operator
+                FROM desired d
+                WHERE NOT EXISTS (SELECT 1 FROM team_user tu WHERE tu.team_id = :teamId AND tu.user_id = d.user_id)
+                ON CONFLICT (team_id, user_id) DO NOTHING
+                RETURNING team_user_id, user_id, created_at, version
+            ),
+            counted AS (
+                UPDATE teams SET member_count = member_count + (SELECT count(*) FROM added) - (SELECT count(*) FROM removed),
+                    version = version + 1, updated_at = :now, updated_by = :operator
+                WHERE team_id = :teamId
+                  AND (EXISTS (SELECT 1 FROM added) OR EXISTS (SELECT 1 FROM removed))
+            )
+            SELECT 'A', a.team_user_id, a.user_id, a.created_at, a.version FROM added a
+            UNION ALL SELECT 'R', r.team_user_id, r.user_id, CAST(NULL AS timestamp), CAST(NULL AS integer) FROM removed r
+            """;
+
+    private static final String REMOVE_MEMBERS = """
+            WITH deleted AS (
+                DELETE FROM team_user WHERE team_user_id = ANY(CAST(:teamUserIds AS varchar[])) RETURNING team_id
+            ),
+            removed AS (
+                SELECT team_id, count(*) AS removed FROM deleted GROUP BY team_id
+            )
+            UPDATE teams t SET member_count = t.member_count - r.removed,
+                version = t.version + 1, updated_at = :now, updated_by = :operator
+            FROM removed r
+            WHERE t.team_id = r.team_id
+            RETURNING t.team_id, CAST(r.removed AS integer)
+            """;
+
+    /**
+     * team_userはteam_user_team_id_fkのON DELETE CASCADEで同じ文の中で削除される.
+     */
+    private static final String DELETE_TEAM =
+            "DELETE FROM teams WHERE team_id = :teamId RETURNING member_count";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final AuditorAware<String> auditorProvider;
+
+    public TeamMembershipWriter(AuditorAware<String> auditorProvider) {
+        this.auditorProvider = auditorProvider;
+    }
+
+    /**
+     * @param team 追加先のチーム(teamIdとorganizationIdのみ). 存在しない場合はnull
+     * @param added 追加したTeamUser
+     * @param alreadyMemberUserIds 既にメンバーだったユーザー. 空でない場合は何も追加していない
+     */
+    public record Result(TeamEntity team, List<TeamUserEntity> added, List<String> alreadyMemberUserIds) {
+    }
+
+    /**
+     * @param team 照合したチーム(teamId, organizationId, isDefaultのみ)
+     * @param added 追加したTeamUser
+     * @param removed 削除したTeamUser
+     * @param unchanged 既にメンバーだったため変更しなかったユーザー数
+     */
+    public record Reconciliation(TeamEntity team, List<TeamUserEntity> added, List<TeamUserEntity> removed, int unchanged) {
+    }
+
+    /**
+     * @param removedUsers 削除したTeamUserの件数
+     * @param teamIds 削除したTeamUserが属していた(もしくは削除した)チームID
+     */
+    public record Removal(int removedUsers, List<String> teamIds) {
+    }
+
+    /**
+     * @param teamId チームID
+     * @param userIds 追加するユーザーID(重複は除く)
+     * @return 追加結果
+     */
+    public Result addToTeam(String teamId, List<String> userIds) {
+        return add(TEAM_BY_ID, teamId, userIds);
+    }
+
+    /**
+     * @param organizationId 組織ID
+     * @param userIds 追加するユーザーID(重複は除く)
+     * @return 追加結果
+     */
+    public Result addToDefaultTeam(String organizationId, List<String> userIds) {
+        return add(DEFAULT_TEAM_BY_ORGANIZATION_ID, organizationId, userIds);
+    }
+
+    private Result add(String teamQuery, String key, List<String> userIds) {
+        List<String> uniqueUserIds = userIds.stream().distinct().toList();
+        String[] teamUserIds = generateIds(uniqueUserIds.size());
+
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = entityManager.createNativeQuery(INSERT_MEMBERS.formatted(teamQuery))
+                .setParameter("key", key)
+                .setParameter("teamUserIds", teamUserIds)
+                .setParameter("userIds", uniqueUserIds.toArray(String[]::new))
+                .setParameter("createdAt", LocalDateTime.now())
+                .setParameter("createdBy", auditorProvider.getCurrentAuditor().orElseThrow())
+                .getResultList();
+
+        TeamEntity team = null;
+        List<String> existing = new ArrayList<>();
+        List<TeamUserEntity> added = new ArrayList<>(uniqueUserIds.size());
+        for (Object[] row : rows) {
+            switch ((String) row[0]) {
+                case "T" -> {
+                    team = new TeamEntity();
+                    team.setTeamId((String) row[1]);
+                    team.setOrganizationId((String) row[2]);
+                }
+                case "E" -> existing.add((String) row[2]);
+                default -> {
+                    // 挿入した行の値(DBの精度に丸めたcreated_atとversion)をそのまま返す
+                    TeamUserEntity teamUser = new TeamUserEntity();
+                    teamUser.setTeamUserId((String) row[1]);
+                    teamUser.setUserId((String) row[2]);
+                    teamUser.setCreatedAt(toLocalDateTime(row[3]));
+                    teamUser.setVersion(((Number) row[4]).intValue());
+                    added.add(teamUser);
+                }
+            }
+        }
+        if (team == null) {
+            return new Result(null, List.of(), List.of());
+        }
+        if (!existing.isEmpty()) {
+            return new Result(team, List.of(), existing);
+        }
+
+        if (added.size() < uniqueUserIds.size()) {
+            // 確認の後に並行して追加されたユーザーがいる. 今回の分を取り消し, 追加されなかったユーザーを返す
+            Set<String> addedUserIds = new HashSet<>(added.size() * 2);
+            added.forEach(teamUser -> addedUserIds.add(teamUser.getUserId()));
+            entityManager.createNativeQuery(DELETE_MEMBERS)
+                    .setParameter("teamUserIds", added.stream().map(TeamUserEntity::getTeamUserId).toArray(String[]::new))
+                    .setParameter("teamId", team.getTeamId())
+                    .setParameter("now", LocalDateTime.now())
+                    .setParameter("operator", auditorProvider.getCurrentAuditor().orElseThrow())
+                    .executeUpdate();
+            return new Result(team, List.of(), uniqueUserIds.stream()
+                    .filter(userId -> !addedUserIds.contains(userId))
+                    .toList());
+        }
+
+        for (TeamUserEntity teamUser : added) {
+            teamUser.setTeamId(team.getTeamId());
+            teamUser.setTeam(team);
+        }
+        return new Result(team, added, List.of());
+    }
+
+    /**
+     * 照合の対象のチームをトランザクションの終了までロックする.
+     * 呼び出し側は存在とデフォルトチームでないことを確認してからreconcileを呼ぶ.
+     *
+     * @param teamId チームID
+     * @return チーム(teamId, organizationId, isDefaultのみ). 存在しない場合はnull
+     */
+    public TeamEntity lockTeam(String teamId) {
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = entityManager.createNativeQuery(LOCK_TEAM)
+                .setParameter("teamId", teamId)
+                .getResultList();
+        if (rows.isEmpty()) {
+            return null;
+        }
+        Object[] row = rows.get(0);
+        TeamEntity team = new TeamEntity();
+        team.setTeamId((String) row[0]);
+        team.setOrganizationId((String) row[1]);
+        team.setDefault((Boolean) row[2]);
+        return team;
+    }
+
+    /**
+     * チームのメンバーを指定したユーザー集合に一致させる. 差分のみを追加/削除する.
+     *
+     * @param team lockTeamでロックしたチーム
+     * @param userIds 望ましいメンバーのユーザーID(重複は除く)
+     * @param operatorId 操作者ID. 追加した行のcreated_byとteamsのupdated_byに記録する
+     * @return 照合結果
+     */
+    public Reconciliation reconcile(TeamEntity team, List<String> userIds, String operatorId) {
+        List<String> uniqueUserIds = userIds.stream().distinct().toList();
+        // 追加の対象は文の中で決まるため, 全ユーザー分を採番しておく(使われないIDは捨てる)
+        String[] teamUserIds = generateIds(uniqueUserIds.size());
+
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = entityManager.createNativeQuery(RECONCILE_MEMBERS)
+                .setParameter("teamId", team.getTeamId())
+                .setParameter("teamUserIds", teamUserIds)
+                .setParameter("userIds", uniqueUserIds.toArray(String[]::new))
+                .setParameter("now", LocalDateTime.now())
+                .setParameter("operator", operatorId)
+                .getResultList();
+
+        List<TeamUserEntity> added = new ArrayList<>();
+        List<TeamUserEntity> removed = new ArrayList<>();
+        for (Object[] row : rows) {
+            TeamUserEntity teamUser = new TeamUserEntity();
+            teamUser.setTeamUserId((String) row[1]);
+            teamUser.setTeamId(team.getTeamId());
+            teamUser.setTeam(team);
+            teamUser.setUserId((String) row[2]);
+            if ("A".equals(row[0])) {
+                teamUser.setCreatedAt(toLocalDateTime(row[3]));
+                teamUser.setVersion(((Number) row[4]).intValue());
+                added.add(teamUser);
+            } else {
+                removed.add(teamUser);
+            }
+        }
+        return new Reconciliation(team, added, removed, uniqueUserIds.size() - added.size());
+    }
+
+    private static LocalDateTime toLocalDateTime(Object value) {
+        return value instanceof Timestamp timestamp ? timestamp.toLocalDateTime() : (LocalDateTime) value;
+    }
+
+    /**
+     * TeamUserを1文で削除し, チームごとの削除件数をteams.member_countから引く.
+     *
+     * @param teamUserIds 削除するTeamUserのID
+     * @return 削除結果(存在しないIDは無視する)
+     */
+    public Removal removeMembers(List<String> teamUserIds) {
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = entityManager.createNativeQuery(REMOVE_MEMBERS)
+                .setParameter("teamUserIds", teamUserIds.toArray(String[]::new))
+                .setParameter("now", LocalDateTime.now())
+                .setParameter("operator", auditorProvider.getCurrentAuditor().orElseThrow())
+                .getResultList();
+
+        int removedUsers = 0;
+        List<String> teamIds = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            teamIds.add((String) row[0]);
+            removedUsers += ((Number) row[1]).intValue();
+        }
+        return new Removal(removedUsers, teamIds);
+    }
+
+    /**
+     * Teamをメンバーごと1文で削除する.
+     *
+     * @param teamId チームID
+     * @return 削除結果(既に削除済みの場合はteamIdsが空)
+     */
+    public Removal deleteTeam(String teamId) {
+        @SuppressWarnings("unchecked")
+        List<Number> rows = entityManager.createNativeQuery(DELETE_TEAM)
+                .setParameter("teamId", teamId)
+                .getResultList();
+        if (rows.isEmpty()) {
+            return new Removal(0, List.of());
+        }
+        return new Removal(rows.get(0).intValue(), List.of(teamId));
+    }
+
+    /**
+     * エンティティに設定されたIDの生成器(@OriginalAutoGenerate)で, 永続化を経由せずにIDを採番する.
+     */
+    private String[] generateIds(int size) {
+        SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+        Generator generator = session.getFactory().getMappingMetamodel()
+                .getEntityDescriptor(TeamUserEntity.class)
+                .getGenerator();
+        if (!(generator instanceof BeforeExecutionGenerator beforeExecutionGenerator)) {
+            throw new IllegalStateException("TeamUserEntity id must be generated before insert");
+        }
+        String[] ids = new String[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = (String) beforeExecutionGenerator.generate(session, new TeamUserEntity(), null, EventType.INSERT);
+        }
+        return ids;
+    }
+}
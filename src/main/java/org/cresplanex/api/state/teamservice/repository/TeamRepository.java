@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -37,4 +38,56 @@ public interface TeamRepository extends JpaRepository<TeamEntity, String>, JpaSp
      */
     @Query("SELECT o FROM TeamEntity o WHERE o.organizationId = :organizationId AND o.isDefault = :isDefault")
     Optional<TeamEntity> findByOrganizationIdAndIsDefault(String organizationId, boolean isDefault);
+
+    /**
+     * Teamのメンバー数(teams.member_count)のみを取得。
+     *
+     * @param teamId チームID
+     * @return メンバー数
+     */
+    @Query("SELECT o.memberCount FROM TeamEntity o WHERE o.teamId = :teamId")
+    Optional<Integer> findMemberCountById(String teamId);
+
+    /**
+     * Teamの現在のversionと組織IDのみを取得。
+     *
+     * @param teamId チームID
+     * @return versionと組織ID
+     */
+    @Query("SELECT CAST(o.version AS Long) AS version, o.organizationId AS organizationId FROM TeamEntity o WHERE o.teamId = :teamId")
+    Optional<TeamChangeState> findChangeStateById(String teamId);
+
+    /**
+     * 指定したIDのうち, 存在しないTeamのIDのみを取得(unnestとのアンチジョイン)。
+     *
+     * @param teamIds チームIDリスト
+     * @return 存在しないチームIDのリスト(引数の順序)
+     */
+    @Query(value = "SELECT ids.team_id FROM unnest(CAST(:teamIds AS varchar[])) WITH ORDINALITY AS ids(team_id, ord) " +
+            "WHERE NOT EXISTS (SELECT 1 FROM teams t WHERE t.team_id = ids.team_id) ORDER BY ids.ord",
+            nativeQuery = true)
+    List<String> findMissingTeamIds(String[] teamIds);
+
+    /**
+     * 全TeamのIDのみを取得。
+     *
+     * @return チームIDのリスト
+     */
+    @Query("SELECT o.teamId FROM TeamEntity o")
+    List<String> findAllTeamIds();
+
+    /**
+     * 指定日時以降に作成もしくは更新されたTeamのIDを取得。
+     *
+     * @param since 日時
+     * @return チームIDのリスト
+     */
+    @Query("SELECT o.teamId FROM TeamEntity o WHERE o.createdAt >= :since OR o.updatedAt >= :since")
+    List<String> findTeamIdsChangedSince(LocalDateTime since);
+
+    interface TeamChangeState {
+        Long getVersion();
+
+        String getOrganizationId();
+    }
 }
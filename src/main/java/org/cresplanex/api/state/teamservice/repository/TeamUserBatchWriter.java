@@ -0,0 +1,102 @@
+package org.cresplanex.api.state.teamservice.repository;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.cresplanex.api.state.teamservice.config.BulkWriteProperties;
+import org.cresplanex.api.state.teamservice.entity.TeamEntity;
+import org.cresplanex.api.state.teamservice.entity.TeamUserEntity;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 作成したTeamへ大量の初期メンバーを書き込む.
+ * persistしたTeamUserはhibernate.jdbc.batch_size件ごとのJDBCバッチ(order_inserts)でINSERTし,
+ * pgjdbcのreWriteBatchedInsertsで複数行のINSERTに書き換えられる.
+ * flushChunkSize件ごとにflushとclearを行うため, 永続化コンテキストのエンティティとスナップショットは件数に比例しない.
+ * clearの後はTeamの参照をgetReferenceで取り直し, 追加のSELECTを発生させない.
+ */
+@Repository
+public class TeamUserBatchWriter implements MeterBinder {
+
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final BulkWriteProperties properties;
+
+    private final AtomicLong rows = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong writeNanos = new AtomicLong();
+    private final AtomicLong allocatedBytes = new AtomicLong();
+
+    public TeamUserBatchWriter(BulkWriteProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * @param team 保存済みのTeam
+     * @param users 追加するTeamUser(teamは設定しなくてよい)
+     * @return IDを採番したTeamUser(永続化コンテキストからは切り離されている)
+     */
+    @Transactional
+    public List<TeamUserEntity> insert(TeamEntity team, List<TeamUserEntity> users) {
+        long started = System.nanoTime();
+        long allocatedBefore = THREAD_MX_BEAN.getCurrentThreadAllocatedBytes();
+
+        // 保存済みのTeamをINSERTしてから, 永続化コンテキストを空にして始める
+        entityManager.flush();
+        entityManager.clear();
+        TeamEntity reference = entityManager.getReference(TeamEntity.class, team.getTeamId());
+
+        int chunkSize = Math.max(1, properties.getFlushChunkSize());
+        for (int i = 0; i < users.size(); i++) {
+            TeamUserEntity user = users.get(i);
+            user.setTeam(reference);
+            entityManager.persist(user);
+            if ((i + 1) % chunkSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+                reference = entityManager.getReference(TeamEntity.class, team.getTeamId());
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        for (TeamUserEntity user : users) {
+            user.setTeam(team);
+            user.setTeamId(team.getTeamId());
+        }
+
+        rows.addAndGet(users.size());
+        writes.incrementAndGet();
+        writeNanos.addAndGet(System.nanoTime() - started);
+        allocatedBytes.addAndGet(THREAD_MX_BEAN.getCurrentThreadAllocatedBytes() - allocatedBefore);
+        return users;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("team.bulk.write.rows", rows, AtomicLong::get)
+                .description("Team users inserted through the batched bulk write path")
+                .register(registry);
+        FunctionTimer.builder("team.bulk.write", this,
+                        writer -> writer.writes.get(), writer -> writer.writeNanos.get(), TimeUnit.NANOSECONDS)
+                .description("Time spent inserting initial team members in JDBC batches")
+                .register(registry);
+        FunctionCounter.builder("team.bulk.write.allocated", allocatedBytes, AtomicLong::get)
+                .description("Heap bytes allocated by the calling thread while writing team members in bulk")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+}
@@ -0,0 +1,443 @@
+package org.cresplanex.api.state.teamservice.repository;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.cresplanex.api.state.teamservice.config.MembershipImportProperties;
+import org.cresplanex.api.state.teamservice.entity.TeamUserEntity;
+import org.cresplanex.api.state.teamservice.exception.TooManyMembershipImportsException;
+import org.hibernate.StatelessSession;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.Generator;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.jdbc.UncategorizedSQLException;
+import org.springframework.jdbc.support.SQLErrorCodeSQLExceptionTranslator;
+import org.springframework.jdbc.support.SQLExceptionTranslator;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * (teamId, userId)の組を大量にTeamUserへ取り込む.
+ * 受け取った行はpgjdbcのCopyManagerでCOPY FROM STDINにより一時テーブルへ流し込み,
+ * 終了時に1文(INSERT ... SELECT ... ON CONFLICT (team_id, user_id) DO NOTHING)でteam_userへマージする.
+ * 行は固定長のバッファに溜めてCOPYへ送るだけで保持しないため, 取り込み件数に関わらずヒープ使用量は一定.
+ *
+ * <p>取り込みは1つの接続と1つのトランザクションで行い, マージに失敗した場合やcloseまでにfinishしなかった場合は
+ * 何も反映しない(一時テーブルはON COMMIT DROPのため, 接続をプールへ返しても残らない).
+ * 同時に処理する取り込みの数はSemaphoreで制限する.</p>
+ */
+@Slf4j
+@Repository
+public class TeamUserCopyImporter implements MeterBinder {
+
+    private static final String CREATE_STAGING_TABLE = """
+            CREATE TEMP TABLE team_user_import (
+                team_user_id varchar(100) NOT NULL,
+                team_id varchar(100) NOT NULL,
+                user_id varchar(100) NOT NULL
+            ) ON COMMIT DROP
+            """;
+
+    private static final String COPY_STAGING_TABLE =
+            "COPY team_user_import (team_user_id, team_id, user_id) FROM STDIN WITH (FORMAT csv)";
+
+    /**
+     * 重複を除いた行のうち, チームが存在するものを挿入し, 追加した件数をteams.member_countへ加算する.
+     * メンバーを追加したチームはversionとupdated_atも進め, 他のノードが更新日時による差分読み込みで検出できるようにする.
+     * 'S'は集計(重複除去後の件数, 挿入件数, チームが存在しない件数), 'M'はチームが存在しない行,
+     * 'E'は既にメンバーだった行(それぞれ最大reportSampleSize件), 'T'はメンバーを追加したチーム.
+     */
+    private static final String MERGE_STAGING_TABLE = """
+            WITH params AS (
+                SELECT CAST(? AS timestamp) AS now, CAST(? AS varchar) AS operator
+            ),
+            staged AS (
+                SELECT min(team_user_id) AS team_user_id, team_id, user_id
+                FROM team_user_import
+                GROUP BY team_id, user_id
+            ),
+            target AS (
+                SELECT s.team_user_id, s.team_id, s.user_id, t.team_id IS NOT NULL AS team_exists
+                FROM staged s LEFT JOIN teams t ON t.team_id = s.team_id
+            ),
+            inserted AS (
+                INSERT INTO team_user (team_user_id, team_id, user_id, version, created_at, created_by)
+                SELECT g.team_user_id, g.team_id, g.user_id, 0, p.now, p.operator
+                FROM target g CROSS JOIN params p
+                WHERE g.team_exists
+                ON CONFLICT (team_id, user_id) DO NOTHING
+                RETURNING team_user_id, team_id
+            ),
+            counted AS (
+                UPDATE teams t SET member_count = t.member_count + a.added,
+                    version = t.version + 1, updated_at = p.now, updated_by = p.operator
+                FROM (SELECT team_id, count(*) AS added FROM inserted GROUP BY team_id) a CROSS JOIN params p
+                WHERE t.team_id = a.team_id
+                RETURNING t.team_id
+            )
+            SELECT 'S', CAST(NULL AS varchar), CAST(NULL AS varchar),
+                   (SELECT count(*) FROM target), (SELECT count(*) FROM inserted),
+                   (SELECT count(*) FROM target WHERE NOT team_exists)
+            UNION ALL (
+                SELECT 'M', g.team_id, g.user_id, NULL, NULL, NULL
+                FROM target g WHERE NOT g.team_exists LIMIT ?
+            )
+            UNION ALL (
+                SELECT 'E', g.team_id, g.user_id, NULL, NULL, NULL
+                FROM target g
+                WHERE g.team_exists AND NOT EXISTS (SELECT 1 FROM inserted i WHERE i.team_user_id = g.team_user_id)
+                LIMIT ?
+            )
+            UNION ALL SELECT 'T', c.team_id, NULL, NULL, NULL, NULL FROM counted c
+            """;
+
+    private static final int ID_MAX_LENGTH = 100;
+
+    private final DataSource dataSource;
+    private final SessionFactoryImplementor sessionFactory;
+    private final AuditorAware<String> auditorProvider;
+    private final MembershipImportProperties properties;
+    private final SQLExceptionTranslator exceptionTranslator;
+    private final Semaphore permits;
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicLong stagedRows = new AtomicLong();
+    private final AtomicLong insertedRows = new AtomicLong();
+    private final AtomicLong merges = new AtomicLong();
+    private final AtomicLong mergeNanos = new AtomicLong();
+
+    public TeamUserCopyImporter(
+            DataSource dataSource,
+            EntityManagerFactory entityManagerFactory,
+            AuditorAware<String> auditorProvider,
+            MembershipImportProperties properties
+    ) {
+        this.dataSource = dataSource;
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        this.auditorProvider = auditorProvider;
+        this.properties = properties;
+        this.exceptionTranslator = new SQLErrorCodeSQLExceptionTranslator(dataSource);
+        this.permits = new Semaphore(properties.getMaxConcurrentImports());
+    }
+
+    /**
+     * @param teamId チームID
+     * @param userId ユーザーID
+     */
+    public record Row(String teamId, String userId) {
+    }
+
+    /**
+     * @param received 受け取った行数
+     * @param rejected IDが空または長すぎるため取り込まなかった行数
+     * @param duplicates 取り込み内で重複していた行数
+     * @param inserted 追加した行数
+     * @param alreadyMembers 既にメンバーだった行数
+     * @param missingTeams チームが存在しなかった行数
+     * @param alreadyMemberSamples 既にメンバーだった行(最大reportSampleSize件)
+     * @param missingTeamSamples チームが存在しなかった行(最大reportSampleSize件)
+     * @param changedTeamIds メンバーを追加したチーム
+     */
+    public record Result(
+            long received,
+            long rejected,
+            long duplicates,
+            long inserted,
+            long alreadyMembers,
+            long missingTeams,
+            List<Row> alreadyMemberSamples,
+            List<Row> missingTeamSamples,
+            List<String> changedTeamIds
+    ) {
+    }
+
+    /**
+     * 取り込みを開始する. 呼び出し側は必ずcloseすること.
+     *
+     * @return 取り込み
+     * @throws TooManyMembershipImportsException 同時に処理できる取り込みの上限に達している場合
+     */
+    public Session open() {
+        if (!permits.tryAcquire()) {
+            throw new TooManyMembershipImportsException(properties.getMaxConcurrentImports());
+        }
+        try {
+            return new Session();
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * 1つの取り込み. ストリームのコールバックは逐次呼び出されるため, スレッドセーフではない.
+     */
+    public final class Session implements AutoCloseable {
+
+        private final Connection connection;
+        private final StatelessSession idSession;
+        private final BeforeExecutionGenerator idGenerator;
+        private final CopyIn copyIn;
+        private final byte[] buffer;
+        private int position;
+
+        private long received;
+        private long rejected;
+        private long staged;
+        private boolean finished;
+        private boolean closed;
+
+        private Session() {
+            Connection acquired = null;
+            StatelessSession openedIdSession = null;
+            try {
+                acquired = dataSource.getConnection();
+                acquired.setAutoCommit(false);
+                try (Statement statement = acquired.createStatement()) {
+                    statement.execute(CREATE_STAGING_TABLE);
+                }
+                openedIdSession = sessionFactory.openStatelessSession();
+                this.idGenerator = idGenerator();
+                this.copyIn = acquired.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_STAGING_TABLE);
+            } catch (SQLException | RuntimeException e) {
+                closeQuietly(openedIdSession, acquired);
+                if (e instanceof SQLException sqlException) {
+                    throw translate("open membership import", COPY_STAGING_TABLE, sqlException);
+                }
+                throw (RuntimeException) e;
+            }
+            this.connection = acquired;
+            this.idSession = openedIdSession;
+            this.buffer = new byte[Math.max(properties.getCopyBufferSize(), 1024)];
+            active.incrementAndGet();
+        }
+
+        /**
+         * 1行をCOPYへ送る. バッファが一杯になった時点でDBへ書き込む.
+         *
+         * @param teamId チームID
+         * @param userId ユーザーID
+         */
+        public void add(String teamId, String userId) {
+            received++;
+            if (!isValidId(teamId) || !isValidId(userId)) {
+                rejected++;
+                return;
+            }
+            String teamUserId = (String) idGenerator.generate(
+                    (SharedSessionContractImplementor) idSession, new TeamUserEntity(), null, EventType.INSERT);
+            writeField(teamUserId);
+            writeByte(',');
+            writeField(teamId);
+            writeByte(',');
+            writeField(userId);
+            writeByte('\n');
+            staged++;
+        }
+
+        /**
+         * COPYを終了し, 一時テーブルの行をteam_userへマージしてコミットする.
+         *
+         * @return 取り込み結果
+         */
+        public Result finish() {
+            if (finished || closed) {
+                throw new IllegalStateException("Membership import already finished");
+            }
+            try {
+                flush();
+                long copied = copyIn.endCopy();
+                stagedRows.addAndGet(copied);
+
+                long started = System.nanoTime();
+                Result result;
+                try (PreparedStatement statement = connection.prepareStatement(MERGE_STAGING_TABLE)) {
+                    statement.setTimestamp(1, Timestamp.valueOf(LocalDateTime.now()));
+                    statement.setString(2, auditorProvider.getCurrentAuditor().orElseThrow());
+                    statement.setInt(3, properties.getReportSampleSize());
+                    statement.setInt(4, properties.getReportSampleSize());
+                    try (ResultSet rs = statement.executeQuery()) {
+                        result = toResult(rs);
+                    }
+                }
+                connection.commit();
+                finished = true;
+                merges.incrementAndGet();
+                mergeNanos.addAndGet(System.nanoTime() - started);
+                insertedRows.addAndGet(result.inserted());
+                return result;
+            } catch (SQLException e) {
+                throw translate("merge membership import", MERGE_STAGING_TABLE, e);
+            }
+        }
+
+        private Result toResult(ResultSet rs) throws SQLException {
+            long distinct = 0;
+            long inserted = 0;
+            long missingTeams = 0;
+            List<Row> alreadyMemberSamples = new ArrayList<>();
+            List<Row> missingTeamSamples = new ArrayList<>();
+            List<String> changedTeamIds = new ArrayList<>();
+            while (rs.next()) {
+                switch (rs.getString(1)) {
+                    case "S" -> {
+                        distinct = rs.getLong(4);
+                        inserted = rs.getLong(5);
+                        missingTeams = rs.getLong(6);
+                    }
+                    case "M" -> missingTeamSamples.add(new Row(rs.getString(2), rs.getString(3)));
+                    case "E" -> alreadyMemberSamples.add(new Row(rs.getString(2), rs.getString(3)));
+                    default -> changedTeamIds.add(rs.getString(2));
+                }
+            }
+            return new Result(
+                    received,
+                    rejected,
+                    staged - distinct,
+                    inserted,
+                    distinct - inserted - missingTeams,
+                    missingTeams,
+                    alreadyMemberSamples,
+                    missingTeamSamples,
+                    changedTeamIds);
+        }
+
+        /**
+         * 終了していない場合はCOPYを取り消してロールバックし, 接続をプールへ返す.
+         */
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                if (copyIn.isActive()) {
+                    copyIn.cancelCopy();
+                }
+                if (!finished) {
+                    connection.rollback();
+                }
+            } catch (SQLException e) {
+                log.warn("Failed to abort membership import", e);
+            } finally {
+                closeQuietly(idSession, connection);
+                active.decrementAndGet();
+                permits.release();
+            }
+        }
+
+        private void writeField(String value) {
+            // CSV形式で常に引用符で囲み, 引用符は二重にする
+            writeByte('"');
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            for (byte b : bytes) {
+                if (b == '"') {
+                    writeByte('"');
+                }
+                writeByte(b);
+            }
+            writeByte('"');
+        }
+
+        private void writeByte(int b) {
+            if (position == buffer.length) {
+                flush();
+            }
+            buffer[position++] = (byte) b;
+        }
+
+        private void flush() {
+            if (position == 0) {
+                return;
+            }
+            try {
+                copyIn.writeToCopy(buffer, 0, position);
+            } catch (SQLException e) {
+                throw translate("copy membership import", COPY_STAGING_TABLE, e);
+            }
+            position = 0;
+        }
+    }
+
+    private static boolean isValidId(String id) {
+        return id != null && !id.isBlank() && id.length() <= ID_MAX_LENGTH;
+    }
+
+    /**
+     * エンティティに設定されたIDの生成器(@OriginalAutoGenerate)を取得する.
+     */
+    private BeforeExecutionGenerator idGenerator() {
+        Generator generator = sessionFactory.getMappingMetamodel()
+                .getEntityDescriptor(TeamUserEntity.class)
+                .getGenerator();
+        if (!(generator instanceof BeforeExecutionGenerator beforeExecutionGenerator)) {
+            throw new IllegalStateException("TeamUserEntity id must be generated before insert");
+        }
+        return beforeExecutionGenerator;
+    }
+
+    private DataAccessException translate(String task, String sql, SQLException e) {
+        DataAccessException translated = exceptionTranslator.translate(task, sql, e);
+        return translated != null ? translated : new UncategorizedSQLException(task, sql, e);
+    }
+
+    private static void closeQuietly(StatelessSession idSession, Connection connection) {
+        if (idSession != null) {
+            try {
+                idSession.close();
+            } catch (RuntimeException e) {
+                log.warn("Failed to close id generation session", e);
+            }
+        }
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                log.warn("Failed to release membership import connection", e);
+            }
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("team.membership.import.active", active, AtomicInteger::get)
+                .description("Membership imports holding a connection")
+                .register(registry);
+        FunctionCounter.builder("team.membership.import.staged", stagedRows, AtomicLong::get)
+                .description("Rows copied into the membership import staging table")
+                .register(registry);
+        FunctionCounter.builder("team.membership.import.inserted", insertedRows, AtomicLong::get)
+                .description("Team users inserted by membership imports")
+                .register(registry);
+        FunctionTimer.builder("team.membership.import.merge", this,
+                        importer -> importer.merges.get(), importer -> importer.mergeNanos.get(), TimeUnit.NANOSECONDS)
+                .description("Time to merge the staging table into team_user")
+                .register(registry);
+    }
+}
@@ -6,17 +6,95 @@ import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
 public interface TeamUserRepository extends JpaRepository<TeamUserEntity, String>, JpaSpecificationExecutor<TeamUserEntity> {
     /**
      * 特定のteamIdとuserIdsに紐づくTeamUserEntityのリストを取得。
+     * userIdsは1つの配列パラメータとしてバインドするため, 件数に関わらずプランは1つ。
      *
      * @param teamId チームID
      * @param userIds ユーザーIDリスト
      * @return TeamUserEntityのリスト
      */
-    @Query("SELECT ou FROM TeamUserEntity ou WHERE ou.teamId = :teamId AND ou.userId IN :userIds")
-    List<TeamUserEntity> findAllByTeamIdAndUserIds(String teamId, List<String> userIds);
+    @Query(value = "SELECT * FROM team_user WHERE team_id = :teamId AND user_id = ANY(CAST(:userIds AS varchar[]))",
+            nativeQuery = true)
+    List<TeamUserEntity> findAllByTeamIdAndUserIds(String teamId, String[] userIds);
+
+    /**
+     * ユーザーが所属するTeamのうち, 指定したTeamのIDのみを取得。
+     *
+     * @param userId ユーザーID
+     * @param teamIds チームIDリスト
+     * @return 所属しているチームIDのリスト
+     */
+    @Query(value = "SELECT team_id FROM team_user WHERE user_id = :userId AND team_id = ANY(CAST(:teamIds AS varchar[]))",
+            nativeQuery = true)
+    List<String> findTeamIdsByUserIdAndTeamIds(String userId, String[] teamIds);
+
+    /**
+     * Teamのメンバーのうち, 指定したユーザーのIDのみを取得。(team_id, user_id)のインデックスのみで引き当てる。
+     *
+     * @param teamId チームID
+     * @param userIds ユーザーIDリスト
+     * @return 所属しているユーザーIDのリスト
+     */
+    @Query(value = "SELECT user_id FROM team_user WHERE team_id = :teamId AND user_id = ANY(CAST(:userIds AS varchar[]))",
+            nativeQuery = true)
+    List<String> findUserIdsByTeamIdAndUserIds(String teamId, String[] userIds);
+
+    /**
+     * 指定日時以降にTeamUserが追加されたTeamのIDを取得。
+     *
+     * @param since 日時
+     * @return チームIDのリスト
+     */
+    @Query("SELECT DISTINCT ou.teamId FROM TeamUserEntity ou WHERE ou.createdAt >= :since")
+    List<String> findTeamIdsWithUsersAddedSince(LocalDateTime since);
+
+    /**
+     * Teamごとのメンバー数を取得。(team_id, ...)のインデックスのみで集計する。
+     *
+     * @return チームIDとメンバー数のリスト
+     */
+    @Query("SELECT ou.teamId AS teamId, COUNT(ou) AS count FROM TeamUserEntity ou GROUP BY ou.teamId")
+    List<TeamMemberCount> countMembersGroupByTeamId();
+
+    /**
+     * 指定したTeamごとに, 追加日時順の先頭limit件のメンバーとteams.member_countを取得。
+     * チームごとのLATERAL副問い合わせが(team_id, created_at, team_user_id)のインデックスを先頭からlimit件だけ読むため,
+     * メンバーの多いチームでも読み込む行数はチーム数×limitで抑えられる。
+     * メンバーのいないチームもteamUserId/userIdがnullの1行として返す。
+     *
+     * @param teamIds チームIDリスト
+     * @param limit チームごとの最大件数
+     * @return チームID, 追加日時順に並んだメンバーのリスト
+     */
+    @Query(value = "SELECT t.team_id AS \"teamId\", t.member_count AS \"memberCount\", " +
+            "m.team_user_id AS \"teamUserId\", m.user_id AS \"userId\" " +
+            "FROM teams t LEFT JOIN LATERAL (" +
+            "SELECT tu.team_user_id, tu.user_id, tu.created_at FROM team_user tu WHERE tu.team_id = t.team_id " +
+            "ORDER BY tu.created_at, tu.team_user_id LIMIT :limit) m ON true " +
+            "WHERE t.team_id = ANY(CAST(:teamIds AS varchar[])) " +
+            "ORDER BY t.team_id, m.created_at, m.team_user_id",
+            nativeQuery = true)
+    List<TeamMemberRow> findTopMembersByTeamIds(String[] teamIds, int limit);
+
+    interface TeamMemberRow {
+        String getTeamUserId();
+
+        String getTeamId();
+
+        int getMemberCount();
+
+        String getUserId();
+    }
+
+    interface TeamMemberCount {
+        String getTeamId();
+
+        long getCount();
+    }
 }
@@ -0,0 +1,31 @@
+package org.cresplanex.api.state.teamservice.repository.projection;
+
+/**
+ * 読み込むTeamの列と, メンバーを読み込むかどうか.
+ * teamIdとcreatedAt(カーソル用)は常に読み込む. 読み込まない列はTeamViewでnull(isDefaultはfalse, memberCountは0)になる.
+ */
+public record TeamFields(
+        boolean organizationId,
+        boolean name,
+        boolean description,
+        boolean isDefault,
+        boolean memberCount,
+        boolean users
+) {
+
+    public static final TeamFields ALL = new TeamFields(true, true, true, true, true, true);
+
+    /**
+     * 名前順のカーソルを組み立てるため, nameを読み込む.
+     */
+    public TeamFields withName() {
+        return name ? this : new TeamFields(organizationId, true, description, isDefault, memberCount, users);
+    }
+
+    /**
+     * メンバー数順のカーソルを組み立てるため, memberCountを読み込む.
+     */
+    public TeamFields withMemberCount() {
+        return memberCount ? this : new TeamFields(organizationId, name, description, isDefault, true, users);
+    }
+}
@@ -0,0 +1,33 @@
+package org.cresplanex.api.state.teamservice.repository.projection;
+
+import org.cresplanex.api.state.teamservice.entity.TeamUserEntity;
+
+import java.time.LocalDateTime;
+
+/**
+ * 読み込み専用のTeamUserの列の射影. 永続化コンテキストに登録されず, プロキシも持たない.
+ *
+ * @param team JOINしたTeamの射影. JOINしていない場合はnull
+ */
+public record TeamUserView(
+        String teamUserId,
+        String teamId,
+        String userId,
+        LocalDateTime createdAt,
+        TeamView team
+) {
+
+    /**
+     * ProtoMapperへ渡すための, 管理されていないTeamUserEntityを作る.
+     */
+    public TeamUserEntity toEntity() {
+        TeamUserEntity teamUser = new TeamUserEntity();
+        teamUser.setTeamUserId(teamUserId);
+        teamUser.setTeamId(teamId);
+        teamUser.setUserId(userId);
+        if (team != null) {
+            teamUser.setTeam(team.toEntity());
+        }
+        return teamUser;
+    }
+}
@@ -0,0 +1,34 @@
+package org.cresplanex.api.state.teamservice.repository.projection;
+
+import org.cresplanex.api.state.teamservice.entity.TeamEntity;
+
+import java.time.LocalDateTime;
+
+/**
+ * 読み込み専用のTeamの列の射影. 永続化コンテキストに登録されず, プロキシも持たない.
+ * createdAtはカーソルの組み立てにのみ利用する. TeamFieldsで読み込まなかった列はnull(isDefaultはfalse, memberCountは0).
+ */
+public record TeamView(
+        String teamId,
+        String organizationId,
+        String name,
+        String description,
+        boolean isDefault,
+        int memberCount,
+        LocalDateTime createdAt
+) {
+
+    /**
+     * ProtoMapperへ渡すための, 管理されていないTeamEntityを作る.
+     */
+    public TeamEntity toEntity() {
+        TeamEntity team = new TeamEntity();
+        team.setTeamId(teamId);
+        team.setOrganizationId(organizationId);
+        team.setName(name);
+        team.setDescription(description);
+        team.setDefault(isDefault);
+        team.setMemberCount(memberCount);
+        return team;
+    }
+}
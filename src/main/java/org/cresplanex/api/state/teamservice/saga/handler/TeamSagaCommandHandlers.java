@@ -9,13 +9,19 @@ import org.cresplanex.api.state.common.saga.command.team.AddUsersDefaultTeamComm
 import org.cresplanex.api.state.common.saga.command.team.AddUsersTeamCommand;
 import org.cresplanex.api.state.common.saga.command.team.CreateDefaultTeamAndAddInitialDefaultTeamUserCommand;
 import org.cresplanex.api.state.common.saga.command.team.CreateTeamAndAddInitialTeamUserCommand;
+import org.cresplanex.api.state.common.saga.command.team.ReconcileUsersTeamCommand;
 import org.cresplanex.api.state.common.saga.reply.team.*;
 import org.cresplanex.api.state.common.saga.validate.team.TeamExistValidateCommand;
+import org.cresplanex.api.state.teamservice.cache.OrganizationGenerations;
+import org.cresplanex.api.state.teamservice.cache.TeamChangeNotifier;
 import org.cresplanex.api.state.teamservice.constants.ReservedTeamName;
 import org.cresplanex.api.state.teamservice.entity.TeamEntity;
 import org.cresplanex.api.state.teamservice.entity.TeamUserEntity;
 import org.cresplanex.api.state.teamservice.exception.AlreadyExistTeamUserException;
 import org.cresplanex.api.state.teamservice.exception.NotFoundTeamException;
+import org.cresplanex.api.state.teamservice.exception.NotAllowedOnDefaultTeamException;
+import org.cresplanex.api.state.teamservice.exception.TeamNotFoundException;
+import org.cresplanex.api.state.teamservice.repository.TeamMembershipWriter;
 import org.cresplanex.api.state.teamservice.mapper.dto.DtoMapper;
 import org.cresplanex.api.state.teamservice.service.TeamService;
 import org.cresplanex.core.commands.consumer.CommandHandlers;
@@ -39,6 +45,8 @@ import static org.cresplanex.core.saga.participant.SagaReplyMessageBuilder.withL
 public class TeamSagaCommandHandlers {
 
     private final TeamService teamService;
+    private final TeamChangeNotifier teamChangeNotifier;
+    private final OrganizationGenerations organizationGenerations;
 
     public CommandHandlers commandHandlers() {
         return SagaCommandHandlersBuilder
@@ -82,6 +90,11 @@ public class TeamSagaCommandHandlers {
                         this::handleUndoAddUsersDefaultTeamCommand
                 )
 
+                .onMessage(ReconcileUsersTeamCommand.Exec.class,
+                        ReconcileUsersTeamCommand.Exec.TYPE,
+                        this::handleReconcileUsersTeamCommand
+                )
+
                 .onMessage(TeamExistValidateCommand.class,
                         TeamExistValidateCommand.TYPE,
                         this::handleTeamExistValidateCommand
@@ -118,6 +131,8 @@ public class TeamSagaCommandHandlers {
                 return userEntity;
             }).toList();
             team = teamService.createAndAddUsers(command.getOperatorId(), team, users);
+            teamChangeNotifier.notifyAfterCommit(List.of(team.getTeamId()));
+            organizationGenerations.advanceAfterCommit(team.getOrganizationId());
             CreateTeamAndAddInitialTeamUserReply.Success reply = new CreateTeamAndAddInitialTeamUserReply.Success(
                     new CreateTeamAndAddInitialTeamUserReply.Success.Data(
                             DtoMapper.convert(team),
@@ -158,6 +173,8 @@ public class TeamSagaCommandHandlers {
                 return userEntity;
             }).toList();
             team = teamService.createAndAddUsers(command.getOperatorId(), team, users);
+            teamChangeNotifier.notifyAfterCommit(List.of(team.getTeamId()));
+            organizationGenerations.advanceAfterCommit(team.getOrganizationId());
             CreateDefaultTeamAndAddInitialDefaultTeamUserReply.Success reply = new CreateDefaultTeamAndAddInitialDefaultTeamUserReply.Success(
                     new CreateDefaultTeamAndAddInitialDefaultTeamUserReply.Success.Data(
                             DtoMapper.convert(team),
@@ -188,6 +205,9 @@ public class TeamSagaCommandHandlers {
         CreateTeamAndAddInitialTeamUserCommand.Undo command = cmd.getCommand();
             String teamId = command.getTeamId();
             teamService.undoCreate(teamId);
+            teamChangeNotifier.notifyAfterCommit(List.of(teamId));
+            // 補償は稀なため, 組織を読み込まずにすべての世代を無効にする
+            organizationGenerations.advanceAllAfterCommit();
             return withSuccess();
         } catch (Exception e) {
             return withException();
@@ -201,6 +221,9 @@ public class TeamSagaCommandHandlers {
             CreateDefaultTeamAndAddInitialDefaultTeamUserCommand.Undo command = cmd.getCommand();
             String teamId = command.getTeamId();
             teamService.undoCreate(teamId);
+            teamChangeNotifier.notifyAfterCommit(List.of(teamId));
+            // 補償は稀なため, 組織を読み込まずにすべての世代を無効にする
+            organizationGenerations.advanceAllAfterCommit();
             return withSuccess();
         } catch (Exception e) {
             return withException();
@@ -219,6 +242,10 @@ public class TeamSagaCommandHandlers {
             }).toList();
 
             List<TeamUserEntity> teamUsers = teamService.addUsers(command.getOperatorId(), command.getTeamId(), users);
+            teamChangeNotifier.notifyAfterCommit(List.of(command.getTeamId()));
+            organizationGenerations.advanceAfterCommit(teamUsers.stream()
+                    .map(teamUser -> teamUser.getTeam().getOrganizationId())
+                    .toList());
             AddUsersTeamReply.Success reply = new AddUsersTeamReply.Success(
                     new AddUsersTeamReply.Success.Data(
                             DtoMapper.convert(teamUsers)
@@ -259,6 +286,11 @@ public class TeamSagaCommandHandlers {
             }).toList();
 
             List<TeamUserEntity> teamUsers = teamService.addUsersToDefault(command.getOperatorId(), command.getOrganizationId(), users);
+            teamChangeNotifier.notifyAfterCommit(teamUsers.stream()
+                    .map(teamUser -> teamUser.getTeam().getTeamId())
+                    .distinct()
+                    .toList());
+            organizationGenerations.advanceAfterCommit(command.getOrganizationId());
             AddUsersDefaultTeamReply.Success reply = new AddUsersDefaultTeamReply.Success(
                     new AddUsersDefaultTeamReply.Success.Data(
                             DtoMapper.convert(teamUsers)
@@ -287,10 +319,62 @@ public class TeamSagaCommandHandlers {
         }
     }
 
+    private Message handleReconcileUsersTeamCommand(
+            CommandMessage<ReconcileUsersTeamCommand.Exec> cmd
+    ) {
+        try {
+            ReconcileUsersTeamCommand.Exec command = cmd.getCommand();
+            TeamMembershipWriter.Reconciliation result = teamService.reconcileUsers(
+                    command.getOperatorId(),
+                    command.getTeamId(),
+                    command.getUsers().stream().map(ReconcileUsersTeamCommand.Exec.User::getUserId).toList()
+            );
+            ReconcileUsersTeamReply.Success reply = new ReconcileUsersTeamReply.Success(
+                    new ReconcileUsersTeamReply.Success.Data(
+                            DtoMapper.convert(result.added()),
+                            DtoMapper.convert(result.removed()),
+                            result.unchanged()
+                    ),
+                    TeamServiceApplicationCode.SUCCESS,
+                    "Users reconciled successfully",
+                    LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME)
+            );
+            return withSuccess(reply, ReconcileUsersTeamReply.Success.TYPE);
+        } catch (TeamNotFoundException e) {
+            ReconcileUsersTeamReply.Failure reply = new ReconcileUsersTeamReply.Failure(
+                    null,
+                    TeamServiceApplicationCode.NOT_FOUND,
+                    "Team not found",
+                    LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME)
+            );
+            return withException(reply, ReconcileUsersTeamReply.Failure.TYPE);
+        } catch (NotAllowedOnDefaultTeamException e) {
+            // 書き込み時のロックで改めて判定した結果. 検証のステップと同じコードで失敗を返す
+            ReconcileUsersTeamReply.Failure reply = new ReconcileUsersTeamReply.Failure(
+                    null,
+                    TeamServiceApplicationCode.NOT_ALLOWED_ON_DEFAULT_TEAM,
+                    "Not allowed on default team",
+                    LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME)
+            );
+            return withException(reply, ReconcileUsersTeamReply.Failure.TYPE);
+        } catch (Exception e) {
+            ReconcileUsersTeamReply.Failure reply = new ReconcileUsersTeamReply.Failure(
+                    null,
+                    TeamServiceApplicationCode.INTERNAL_SERVER_ERROR,
+                    "Failed to reconcile users",
+                    LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME)
+            );
+            return withException(reply, ReconcileUsersTeamReply.Failure.TYPE);
+        }
+    }
+
     private Message handleUndoAddUsersTeamCommand(CommandMessage<AddUsersTeamCommand.Undo> cmd) {
         try {
             AddUsersTeamCommand.Undo command = cmd.getCommand();
-            teamService.undoAddUsers(command.getUserTeamIds());
+            List<String> teamIds = teamService.undoAddUsers(command.getUserTeamIds()).teamIds();
+            teamChangeNotifier.notifyAfterCommit(teamIds);
+            // 補償は稀なため, 組織を読み込まずにすべての世代を無効にする
+            organizationGenerations.advanceAllAfterCommit();
             return withSuccess();
         } catch (Exception e) {
             return withException();
@@ -300,7 +384,10 @@ public class TeamSagaCommandHandlers {
     private Message handleUndoAddUsersDefaultTeamCommand(CommandMessage<AddUsersDefaultTeamCommand.Undo> cmd) {
         try {
             AddUsersDefaultTeamCommand.Undo command = cmd.getCommand();
-            teamService.undoAddUsers(command.getUserTeamIds());
+            List<String> teamIds = teamService.undoAddUsers(command.getUserTeamIds()).teamIds();
+            teamChangeNotifier.notifyAfterCommit(teamIds);
+            // 補償は稀なため, 組織を読み込まずにすべての世代を無効にする
+            organizationGenerations.advanceAllAfterCommit();
             return withSuccess();
         } catch (Exception e) {
             return withException();
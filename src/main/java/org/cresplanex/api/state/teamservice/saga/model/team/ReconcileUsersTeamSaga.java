@@ -0,0 +1,171 @@
+package org.cresplanex.api.state.teamservice.saga.model.team;
+
+import org.cresplanex.api.state.common.constants.TeamServiceApplicationCode;
+import org.cresplanex.api.state.common.event.model.team.TeamDomainEvent;
+import org.cresplanex.api.state.common.event.model.team.TeamReconciledUsers;
+import org.cresplanex.api.state.common.event.publisher.AggregateDomainEventPublisher;
+import org.cresplanex.api.state.common.saga.SagaCommandChannel;
+import org.cresplanex.api.state.common.saga.data.team.ReconcileUsersTeamResultData;
+import org.cresplanex.api.state.common.saga.local.team.NotAllowedOnDefaultTeamException;
+import org.cresplanex.api.state.common.saga.local.team.NotFoundTeamException;
+import org.cresplanex.api.state.common.saga.local.team.WillAddedTeamUserDuplicatedException;
+import org.cresplanex.api.state.common.saga.model.SagaModel;
+import org.cresplanex.api.state.common.saga.reply.organization.OrganizationAndOrganizationUserExistValidateReply;
+import org.cresplanex.api.state.common.saga.reply.team.ReconcileUsersTeamReply;
+import org.cresplanex.api.state.common.saga.type.TeamSagaType;
+import org.cresplanex.api.state.teamservice.constants.ActionOnTeam;
+import org.cresplanex.api.state.teamservice.entity.TeamEntity;
+import org.cresplanex.api.state.teamservice.event.publisher.TeamDomainEventPublisher;
+import org.cresplanex.api.state.teamservice.saga.proxy.OrganizationServiceProxy;
+import org.cresplanex.api.state.teamservice.saga.proxy.TeamServiceProxy;
+import org.cresplanex.api.state.teamservice.saga.state.team.ReconcileUsersTeamSagaState;
+import org.cresplanex.api.state.teamservice.service.TeamLocalValidateService;
+import org.cresplanex.core.saga.orchestration.SagaDefinition;
+import org.springframework.stereotype.Component;
+
+/**
+ * チームのメンバーを指定したユーザー集合に一致させる.
+ * 照合は削除を含むため, デフォルトチームは書き込みの前にREMOVE_USERSとして拒否する.
+ * 望ましいメンバーは組織のメンバーであることを組織サービスで確認してから, 差分のみを1文で反映する.
+ * 照合は最後のステップで, 後続のステップが失敗することはないため補償は持たない.
+ */
+@Component
+public class ReconcileUsersTeamSaga extends SagaModel<
+        TeamEntity,
+        TeamDomainEvent,
+        ReconcileUsersTeamSaga.Action,
+        ReconcileUsersTeamSagaState> {
+
+    private final SagaDefinition<ReconcileUsersTeamSagaState> sagaDefinition;
+    private final TeamDomainEventPublisher domainEventPublisher;
+    private final TeamLocalValidateService teamLocalService;
+
+    public ReconcileUsersTeamSaga(
+            TeamLocalValidateService teamLocalService,
+            TeamServiceProxy teamService,
+            OrganizationServiceProxy organizationService,
+            TeamDomainEventPublisher domainEventPublisher
+    ) {
+        this.sagaDefinition = step()
+                .invokeLocal(this::validateTeam)
+                .onException(NotFoundTeamException.class, this::failureLocalExceptionPublish)
+                .onException(NotAllowedOnDefaultTeamException.class, this::failureLocalExceptionPublish)
+                .onException(WillAddedTeamUserDuplicatedException.class, this::failureLocalExceptionPublish)
+                .step()
+                .invokeParticipant(
+                        organizationService.organizationUserExistValidateCommand,
+                        ReconcileUsersTeamSagaState::makeOrganizationAndOrganizationUserExistValidateCommand
+                )
+                .onReply(
+                        OrganizationAndOrganizationUserExistValidateReply.Success.class,
+                        OrganizationAndOrganizationUserExistValidateReply.Success.TYPE,
+                        this::processedEventPublish
+                )
+                .onReply(
+                        OrganizationAndOrganizationUserExistValidateReply.Failure.class,
+                        OrganizationAndOrganizationUserExistValidateReply.Failure.TYPE,
+                        this::handleFailureReply
+                )
+                .step()
+                .invokeParticipant(
+                        teamService.reconcileUsersTeam,
+                        ReconcileUsersTeamSagaState::makeReconcileUsersTeamCommand
+                )
+                .onReply(
+                        ReconcileUsersTeamReply.Success.class,
+                        ReconcileUsersTeamReply.Success.TYPE,
+                        this::handleReconcileUsersTeamReply
+                )
+                .onReply(
+                        ReconcileUsersTeamReply.Failure.class,
+                        ReconcileUsersTeamReply.Failure.TYPE,
+                        this::handleFailureReply
+                )
+                .build();
+        this.teamLocalService = teamLocalService;
+        this.domainEventPublisher = domainEventPublisher;
+    }
+
+    @Override
+    protected AggregateDomainEventPublisher<TeamEntity, TeamDomainEvent>
+    getDomainEventPublisher() {
+        return domainEventPublisher;
+    }
+
+    @Override
+    protected Action[] getActions() {
+        return Action.values();
+    }
+
+    @Override
+    protected String getBeginEventType() {
+        return TeamReconciledUsers.BeginJobDomainEvent.TYPE;
+    }
+
+    @Override
+    protected String getProcessedEventType() {
+        return TeamReconciledUsers.ProcessedJobDomainEvent.TYPE;
+    }
+
+    @Override
+    protected String getFailedEventType() {
+        return TeamReconciledUsers.FailedJobDomainEvent.TYPE;
+    }
+
+    @Override
+    protected String getSuccessfullyEventType() {
+        return TeamReconciledUsers.SuccessJobDomainEvent.TYPE;
+    }
+
+    private void validateTeam(ReconcileUsersTeamSagaState state)
+            throws NotFoundTeamException, NotAllowedOnDefaultTeamException {
+        TeamEntity team = this.teamLocalService.validateTeam(
+                state.getInitialData().getTeamId(),
+                state.getInitialData().getUsers().stream().map(ReconcileUsersTeamSagaState.InitialData.User::getUserId).toList(),
+                ActionOnTeam.REMOVE_USERS
+        );
+        state.setOrganizationId(team.getOrganizationId());
+
+        this.localProcessedEventPublish(
+                state, TeamServiceApplicationCode.SUCCESS, "Team validated"
+        );
+    }
+
+    private void handleReconcileUsersTeamReply(
+            ReconcileUsersTeamSagaState state, ReconcileUsersTeamReply.Success reply) {
+        ReconcileUsersTeamReply.Success.Data data = reply.getData();
+        state.setAddedUsers(data.getAddedUsers());
+        state.setRemovedUsers(data.getRemovedUsers());
+        state.setUnchanged(data.getUnchanged());
+        this.processedEventPublish(state, reply);
+    }
+
+    @Override
+    public void onSagaCompletedSuccessfully(String sagaId, ReconcileUsersTeamSagaState data) {
+        // 追加と削除をまとめた1つのイベントとして発行する
+        ReconcileUsersTeamResultData resultData = new ReconcileUsersTeamResultData(
+                data.getAddedUsers(), data.getRemovedUsers(), data.getUnchanged());
+        successfullyEventPublish(data, resultData);
+    }
+
+    public enum Action {
+        VALIDATE_TEAM,
+        VALIDATE_ORGANIZATION_AND_ORGANIZATION_USER_EXIST,
+        RECONCILE_TEAM_USER
+    }
+
+    @Override
+    public SagaDefinition<ReconcileUsersTeamSagaState> getSagaDefinition() {
+        return sagaDefinition;
+    }
+
+    @Override
+    public String getSagaType() {
+        return TeamSagaType.RECONCILE_USERS_TEAM;
+    }
+
+    @Override
+    public String getSagaCommandSelfChannel() {
+        return SagaCommandChannel.TEAM;
+    }
+}
@@ -5,6 +5,7 @@ import org.cresplanex.api.state.common.saga.command.organization.AddUsersOrganiz
 import org.cresplanex.api.state.common.saga.command.organization.CreateOrganizationAndAddInitialOrganizationUserCommand;
 import org.cresplanex.api.state.common.saga.command.team.AddUsersTeamCommand;
 import org.cresplanex.api.state.common.saga.command.team.CreateTeamAndAddInitialTeamUserCommand;
+import org.cresplanex.api.state.common.saga.command.team.ReconcileUsersTeamCommand;
 import org.cresplanex.core.saga.simpledsl.CommandEndpoint;
 import org.cresplanex.core.saga.simpledsl.CommandEndpointBuilder;
 import org.springframework.stereotype.Component;
@@ -39,4 +40,11 @@ public class TeamServiceProxy {
             .withChannel(SagaCommandChannel.TEAM)
             .withCommandType(AddUsersTeamCommand.Undo.TYPE)
             .build();
+
+    public final CommandEndpoint<ReconcileUsersTeamCommand.Exec> reconcileUsersTeam
+            = CommandEndpointBuilder
+            .forCommand(ReconcileUsersTeamCommand.Exec.class)
+            .withChannel(SagaCommandChannel.TEAM)
+            .withCommandType(ReconcileUsersTeamCommand.Exec.TYPE)
+            .build();
 }
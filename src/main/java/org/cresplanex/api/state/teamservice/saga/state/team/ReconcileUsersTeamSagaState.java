@@ -0,0 +1,70 @@
+package org.cresplanex.api.state.teamservice.saga.state.team;
+
+import lombok.*;
+import org.cresplanex.api.state.common.dto.team.UserOnTeamDto;
+import org.cresplanex.api.state.common.saga.command.team.ReconcileUsersTeamCommand;
+import org.cresplanex.api.state.common.saga.state.SagaState;
+import org.cresplanex.api.state.common.saga.validate.organization.OrganizationAndOrganizationUserExistValidateCommand;
+import org.cresplanex.api.state.teamservice.entity.TeamEntity;
+import org.cresplanex.api.state.teamservice.saga.model.team.ReconcileUsersTeamSaga;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+public class ReconcileUsersTeamSagaState
+        extends SagaState<ReconcileUsersTeamSaga.Action, TeamEntity> {
+    private InitialData initialData;
+    private List<UserOnTeamDto> addedUsers = new ArrayList<>();
+    private List<UserOnTeamDto> removedUsers = new ArrayList<>();
+    private int unchanged;
+    private String operatorId;
+    private String organizationId;
+
+    @Override
+    public String getId() {
+        return initialData.teamId;
+    }
+
+    @Override
+    public Class<TeamEntity> getEntityClass() {
+        return TeamEntity.class;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class InitialData {
+        private String teamId;
+        private List<User> users;
+
+        @Data
+        @NoArgsConstructor
+        @AllArgsConstructor
+        @Builder
+        public static class User{
+            private String userId;
+        }
+    }
+
+    public OrganizationAndOrganizationUserExistValidateCommand makeOrganizationAndOrganizationUserExistValidateCommand() {
+        return new OrganizationAndOrganizationUserExistValidateCommand(
+                this.organizationId,
+                initialData.getUsers().stream()
+                        .map(ReconcileUsersTeamSagaState.InitialData.User::getUserId)
+                        .toList());
+    }
+
+    public ReconcileUsersTeamCommand.Exec makeReconcileUsersTeamCommand() {
+        return new ReconcileUsersTeamCommand.Exec(
+                this.operatorId,
+                initialData.getTeamId(),
+                initialData.getUsers().stream()
+                        .map(user -> new ReconcileUsersTeamCommand.Exec.User(user.getUserId()))
+                        .toList()
+        );
+    }
+}
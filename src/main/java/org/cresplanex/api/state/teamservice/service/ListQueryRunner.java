@@ -0,0 +1,204 @@
+package org.cresplanex.api.state.teamservice.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.cresplanex.api.state.teamservice.config.ListQueryProperties;
+import org.cresplanex.api.state.teamservice.exception.ListQueryTimeoutException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 一覧取得RPCの互いに独立したサブクエリ(ページと件数など)を並行して実行する.
+ * forkしたサブクエリは仮想スレッド上で, それぞれ別の読み取り専用トランザクション(別の接続)で実行する.
+ * 同時実行数はノード全体でSemaphoreにより制限し, 上限に達している場合は呼び出し元のスレッドで順に実行する.
+ * サブクエリごとにトランザクションのタイムアウトを設定し, 待ち合わせもfork時点からの制限時間で打ち切る.
+ *
+ * <pre>
+ * try (ListQueryRunner.Scope scope = listQueryRunner.open()) {
+ *     Supplier&lt;Long&gt; count = scope.fork("count", () -> repository.count(spec));
+ *     List&lt;T&gt; page = scope.call("page", () -> ...);
+ *     return new Result(page, count.get());
+ * }
+ * </pre>
+ */
+@Component
+public class ListQueryRunner implements MeterBinder {
+
+    private final ExecutorService teamListQueryExecutor;
+    private final ListQueryProperties properties;
+    private final TransactionTemplate transactionTemplate;
+    private final Semaphore permits;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong forked = new AtomicLong();
+    private final AtomicLong inline = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+    private final AtomicLong joins = new AtomicLong();
+    private final AtomicLong joinWaitNanos = new AtomicLong();
+
+    public ListQueryRunner(
+            ExecutorService teamListQueryExecutor,
+            ListQueryProperties properties,
+            PlatformTransactionManager transactionManager
+    ) {
+        this.teamListQueryExecutor = teamListQueryExecutor;
+        this.properties = properties;
+        this.permits = new Semaphore(properties.getMaxConcurrentSubqueries());
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        // 秒単位のため切り上げる
+        this.transactionTemplate.setTimeout((int) Math.max(1, (properties.getTimeout().toMillis() + 999) / 1000));
+    }
+
+    public Scope open() {
+        return new Scope();
+    }
+
+    /**
+     * サブクエリの実行範囲. closeの時点で開始していないサブクエリは取り消す.
+     */
+    public final class Scope implements AutoCloseable {
+
+        private final List<FutureTask<?>> tasks = new ArrayList<>();
+
+        private Scope() {
+        }
+
+        /**
+         * サブクエリを別のスレッドで開始する.
+         *
+         * @param name サブクエリ名(タイムアウト時のメッセージ用)
+         * @param query 実行する処理
+         * @return 結果を待ち合わせるSupplier. 制限時間を超えた場合はListQueryTimeoutException
+         */
+        public <T> Supplier<T> fork(String name, Supplier<T> query) {
+            if (!properties.isConcurrent() || !permits.tryAcquire()) {
+                inline.incrementAndGet();
+                // 接続を追加で使わないよう, 待ち合わせの時点で呼び出し元のスレッドで実行する
+                return () -> call(name, query);
+            }
+
+            // 開始前に取り消された場合も, 開始した場合もpermitを一度だけ返す
+            AtomicBoolean claimed = new AtomicBoolean();
+            FutureTask<T> task = new FutureTask<>(() -> {
+                if (!claimed.compareAndSet(false, true)) {
+                    return null;
+                }
+                inFlight.incrementAndGet();
+                try {
+                    return transactionTemplate.execute(status -> query.get());
+                } finally {
+                    inFlight.decrementAndGet();
+                    permits.release();
+                }
+            }) {
+                @Override
+                protected void done() {
+                    if (claimed.compareAndSet(false, true)) {
+                        permits.release();
+                    }
+                }
+            };
+
+            long started = System.nanoTime();
+            try {
+                teamListQueryExecutor.execute(task);
+            } catch (RejectedExecutionException e) {
+                task.cancel(false);
+                inline.incrementAndGet();
+                return () -> call(name, query);
+            }
+            forked.incrementAndGet();
+            tasks.add(task);
+            return () -> join(name, task, started);
+        }
+
+        /**
+         * サブクエリを呼び出し元のスレッドで実行する.
+         *
+         * @param name サブクエリ名
+         * @param query 実行する処理
+         * @return 結果
+         */
+        public <T> T call(String name, Supplier<T> query) {
+            return transactionTemplate.execute(status -> query.get());
+        }
+
+        private <T> T join(String name, FutureTask<T> task, long started) {
+            long waitStarted = System.nanoTime();
+            long remaining = properties.getTimeout().toNanos() - (waitStarted - started);
+            try {
+                return task.get(Math.max(0, remaining), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                // 仮想スレッドへの割り込みはソケットを閉じるため行わない. 実行中の文はトランザクションのタイムアウトで止まる
+                task.cancel(false);
+                timedOut.incrementAndGet();
+                throw new ListQueryTimeoutException(name, properties.getTimeout(), e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                if (e.getCause() instanceof Error error) {
+                    throw error;
+                }
+                throw new IllegalStateException(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                task.cancel(false);
+                throw new IllegalStateException("Interrupted while waiting for list subquery: " + name, e);
+            } finally {
+                joins.incrementAndGet();
+                joinWaitNanos.addAndGet(System.nanoTime() - waitStarted);
+            }
+        }
+
+        @Override
+        public void close() {
+            // 例外で抜けた場合に, 待ち合わせていないサブクエリが接続を取らないようにする
+            for (FutureTask<?> task : tasks) {
+                task.cancel(false);
+            }
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("team.list.query.in.flight", inFlight, AtomicInteger::get)
+                .description("List subqueries running on a separate connection")
+                .register(registry);
+        Gauge.builder("team.list.query.permits.available", permits, Semaphore::availablePermits)
+                .description("Remaining concurrent list subquery permits")
+                .register(registry);
+        FunctionCounter.builder("team.list.query.forked", forked, AtomicLong::get)
+                .description("List subqueries run concurrently on a virtual thread")
+                .register(registry);
+        FunctionCounter.builder("team.list.query.inline", inline, AtomicLong::get)
+                .description("List subqueries run on the caller thread because no permit was available")
+                .register(registry);
+        FunctionCounter.builder("team.list.query.timeouts", timedOut, AtomicLong::get)
+                .description("List subqueries that exceeded the time limit")
+                .register(registry);
+        FunctionTimer.builder("team.list.query.join.wait", this,
+                        runner -> runner.joins.get(), runner -> runner.joinWaitNanos.get(), TimeUnit.NANOSECONDS)
+                .description("Time the caller waited for forked list subqueries after its own query finished")
+                .register(registry);
+    }
+}
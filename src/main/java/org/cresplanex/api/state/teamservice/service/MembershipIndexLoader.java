@@ -0,0 +1,90 @@
+package org.cresplanex.api.state.teamservice.service;
+
+import lombok.RequiredArgsConstructor;
+import org.cresplanex.api.state.teamservice.entity.TeamEntity;
+import org.cresplanex.api.state.teamservice.entity.TeamUserEntity;
+import org.cresplanex.api.state.teamservice.repository.ChunkedQueryExecutor;
+import org.cresplanex.api.state.teamservice.repository.TeamRepository;
+import org.cresplanex.api.state.teamservice.repository.TeamUserRepository;
+import org.cresplanex.api.state.teamservice.specification.TeamUserSpecifications;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * メンバーシップインデックスの構築/更新のための読み込み.
+ */
+@Component
+@RequiredArgsConstructor
+public class MembershipIndexLoader {
+
+    private final TeamRepository teamRepository;
+    private final TeamUserRepository teamUserRepository;
+    private final ChunkedQueryExecutor chunkedQueryExecutor;
+
+    /**
+     * 全Teamと全TeamUserをチャンク単位で読み込む.
+     * TeamUserはuserIdごとに連続して渡される.
+     */
+    @Transactional(readOnly = true)
+    public void loadAll(
+            int chunkSize,
+            Consumer<List<TeamEntity>> teamConsumer,
+            Consumer<List<TeamUserEntity>> teamUserConsumer
+    ) {
+        chunkedQueryExecutor.forEachChunk(TeamEntity.class, Specification.where(null),
+                Sort.by(Sort.Order.asc("teamId")), chunkSize, teamConsumer);
+        chunkedQueryExecutor.forEachChunk(TeamUserEntity.class, Specification.where(null),
+                Sort.by(Sort.Order.asc("userId"), Sort.Order.asc("createdAt"), Sort.Order.asc("teamUserId")),
+                chunkSize, teamUserConsumer);
+    }
+
+    /**
+     * Teamとそのメンバーを読み込む.
+     *
+     * @param teamId チームID
+     * @return 削除済みの場合は空
+     */
+    @Transactional(readOnly = true)
+    public Optional<TeamEntity> loadTeam(String teamId) {
+        return teamRepository.findById(teamId).map(team -> {
+            team.setTeamUsers(teamUserRepository.findAll(
+                    Specification.where(TeamUserSpecifications.whereTeamId(teamId))));
+            return team;
+        });
+    }
+
+    /**
+     * 指定日時以降に作成/更新されたTeamと, メンバーが追加されたTeamのIDを取得する.
+     * メンバーの削除はここでは検出できないため, メンバー数の比較と合わせて利用する.
+     */
+    @Transactional(readOnly = true)
+    public Set<String> findTeamIdsChangedSince(LocalDateTime since) {
+        Set<String> teamIds = new HashSet<>(teamRepository.findTeamIdsChangedSince(since));
+        teamIds.addAll(teamUserRepository.findTeamIdsWithUsersAddedSince(since));
+        return teamIds;
+    }
+
+    @Transactional(readOnly = true)
+    public Set<String> findAllTeamIds() {
+        return new HashSet<>(teamRepository.findAllTeamIds());
+    }
+
+    @Transactional(readOnly = true)
+    public Map<String, Long> countMembersByTeam() {
+        Map<String, Long> counts = new HashMap<>();
+        teamUserRepository.countMembersGroupByTeamId()
+                .forEach(count -> counts.put(count.getTeamId(), count.getCount()));
+        return counts;
+    }
+}
@@ -1,46 +1,76 @@
 package org.cresplanex.api.state.teamservice.service;
 
 import lombok.extern.slf4j.Slf4j;
-import org.cresplanex.api.state.common.entity.ListEntityWithCount;
 import org.cresplanex.api.state.common.enums.PaginationType;
 import org.cresplanex.api.state.common.saga.local.LocalException;
 import org.cresplanex.api.state.common.saga.local.team.NotFoundTeamException;
 import org.cresplanex.api.state.common.service.BaseService;
+import org.cresplanex.api.state.teamservice.cache.OrganizationGenerations;
+import org.cresplanex.api.state.teamservice.cache.TeamCache;
+import org.cresplanex.api.state.teamservice.cache.TeamChangeNotifier;
+import org.cresplanex.api.state.teamservice.cache.TeamCountCache;
+import org.cresplanex.api.state.teamservice.cache.TeamCountKey;
+import org.cresplanex.api.state.teamservice.cache.TeamExistenceFilter;
+import org.cresplanex.api.state.teamservice.cache.TeamListCache;
+import org.cresplanex.api.state.teamservice.cache.TeamListKey;
+import org.cresplanex.api.state.teamservice.constants.ActionOnTeam;
+import org.cresplanex.api.state.teamservice.cursor.ListEntityWithCursor;
+import org.cresplanex.api.state.teamservice.cursor.TeamCursor;
+import org.cresplanex.api.state.teamservice.cursor.TeamUserCursor;
 import org.cresplanex.api.state.teamservice.entity.TeamEntity;
 import org.cresplanex.api.state.teamservice.entity.TeamUserEntity;
+import org.cresplanex.api.state.teamservice.enums.CountStrategy;
 import org.cresplanex.api.state.teamservice.enums.TeamOnUserSortType;
 import org.cresplanex.api.state.teamservice.enums.TeamSortType;
 import org.cresplanex.api.state.teamservice.enums.TeamWithUsersSortType;
 import org.cresplanex.api.state.teamservice.enums.UserOnTeamSortType;
 import org.cresplanex.api.state.teamservice.exception.AlreadyExistTeamUserException;
+import org.cresplanex.api.state.teamservice.exception.NotAllowedOnDefaultTeamException;
 import org.cresplanex.api.state.teamservice.exception.TeamNotFoundException;
 import org.cresplanex.api.state.teamservice.filter.team.IsDefaultFilter;
 import org.cresplanex.api.state.teamservice.filter.team.OrganizationFilter;
 import org.cresplanex.api.state.teamservice.filter.team.UsersFilter;
+import org.cresplanex.api.state.teamservice.index.MembershipIndex;
+import org.cresplanex.api.state.teamservice.repository.ChunkedQueryExecutor;
+import org.cresplanex.api.state.teamservice.repository.CountEstimator;
+import org.cresplanex.api.state.teamservice.repository.ProjectionQueryExecutor;
+import org.cresplanex.api.state.teamservice.repository.TeamMembershipWriter;
 import org.cresplanex.api.state.teamservice.repository.TeamRepository;
+import org.cresplanex.api.state.teamservice.repository.TeamUserBatchWriter;
+import org.cresplanex.api.state.teamservice.repository.TeamUserCopyImporter;
 import org.cresplanex.api.state.teamservice.repository.TeamUserRepository;
+import org.cresplanex.api.state.teamservice.repository.projection.TeamFields;
+import org.cresplanex.api.state.teamservice.repository.projection.TeamUserView;
+import org.cresplanex.api.state.teamservice.repository.projection.TeamView;
 import org.cresplanex.api.state.teamservice.saga.model.team.AddUsersTeamSaga;
 import org.cresplanex.api.state.teamservice.saga.model.team.CreateTeamSaga;
+import org.cresplanex.api.state.teamservice.saga.model.team.ReconcileUsersTeamSaga;
 import org.cresplanex.api.state.teamservice.saga.state.team.AddUsersTeamSagaState;
 import org.cresplanex.api.state.teamservice.saga.state.team.CreateTeamSagaState;
+import org.cresplanex.api.state.teamservice.saga.state.team.ReconcileUsersTeamSagaState;
 import org.cresplanex.api.state.teamservice.specification.TeamSpecifications;
 import org.cresplanex.api.state.teamservice.specification.TeamUserSpecifications;
 import org.cresplanex.core.saga.orchestration.SagaInstanceFactory;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
-import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Service;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
 
 @Slf4j
 @RequiredArgsConstructor
@@ -49,134 +79,325 @@ public class TeamService extends BaseService {
 
     private final TeamRepository teamRepository;
     private final TeamUserRepository teamUserRepository;
+    private final TeamMembershipWriter teamMembershipWriter;
+    private final TeamUserBatchWriter teamUserBatchWriter;
+    private final TeamUserCopyImporter teamUserCopyImporter;
+    private final ChunkedQueryExecutor chunkedQueryExecutor;
+    private final ProjectionQueryExecutor projectionQueryExecutor;
+    private final ListQueryRunner listQueryRunner;
+    private final TeamWithUsersLoader teamWithUsersLoader;
+    private final TeamSnapshotLoader teamSnapshotLoader;
+    private final TeamCache teamCache;
+    private final TeamExistenceFilter teamExistenceFilter;
+    private final TeamCountCache teamCountCache;
+    private final TeamListCache teamListCache;
+    private final CountEstimator countEstimator;
+    private final MembershipIndex membershipIndex;
+    private final TeamChangeNotifier teamChangeNotifier;
+    private final OrganizationGenerations organizationGenerations;
     private final SagaInstanceFactory sagaInstanceFactory;
 
     private final CreateTeamSaga createTeamSaga;
     private final AddUsersTeamSaga addUsersTeamSaga;
+    private final ReconcileUsersTeamSaga reconcileUsersTeamSaga;
 
-    @Transactional(readOnly = true)
     public TeamEntity findById(String teamId) {
-        return internalFindById(teamId);
+        return teamCache.get(teamId, teamSnapshotLoader::load).toEntity();
     }
 
-    @Transactional(readOnly = true)
     public TeamEntity findByIdWithUsers(String teamId) {
-        return teamRepository.findByIdWithUsers(teamId).orElseThrow(() -> new TeamNotFoundException(
-                TeamNotFoundException.FindType.BY_ID,
-                teamId
-        ));
-    }
-
-    private TeamEntity internalFindById(String teamId) {
-        return teamRepository.findById(teamId).orElseThrow(() -> new TeamNotFoundException(
-                TeamNotFoundException.FindType.BY_ID,
-                teamId
-        ));
+        return teamCache.getWithUsers(teamId, teamSnapshotLoader::loadWithUsers).toEntityWithUsers();
     }
 
-    @Transactional(readOnly = true)
-    public ListEntityWithCount<TeamEntity> get(
+    // サブクエリごとにListQueryRunnerでトランザクションを開始する
+    public ListEntityWithCursor<TeamEntity> get(
             PaginationType paginationType,
             int limit,
             int offset,
             String cursor,
             TeamSortType sortType,
             boolean withCount,
+            CountStrategy countStrategy,
             IsDefaultFilter isDefaultFilter,
             OrganizationFilter organizationFilter,
-            UsersFilter usersFilter
+            UsersFilter usersFilter,
+            TeamFields fields
     ) {
         Specification<TeamEntity> spec = Specification.where(
                 TeamSpecifications.withIsDefaultFilter(isDefaultFilter)
                         .and(TeamSpecifications.withOrganizationFilter(organizationFilter))
                         .and(TeamSpecifications.withBelongUsersFilter(usersFilter)));
+        TeamCountKey countKey = TeamCountKey.of(isDefaultFilter, organizationFilter, usersFilter);
 
-        Sort sort = createSort(sortType);
+        TeamListKey listKey = TeamListKey.of(countKey, sortType, paginationType, limit, offset, cursor, withCount, countStrategy);
 
-        Pageable pageable = switch (paginationType) {
-            case OFFSET -> PageRequest.of(offset / limit, limit, sort);
-            case CURSOR -> PageRequest.of(0, limit, sort); // TODO: Implement cursor pagination
-            default -> Pageable.unpaged(sort);
-        };
-
-        Page<TeamEntity> data = teamRepository.findAll(spec, pageable);
-
-        int count = 0;
-        if (withCount){
-            count = (int) data.getTotalElements();
-        }
-        return new ListEntityWithCount<>(
-                data.getContent(),
-                count
-        );
+        return findCachedTeamPage(listKey, fields, false, TeamWithUsersLoader.UNLIMITED_USERS, () -> findTeamPage(
+                spec, paginationType, limit, offset, cursor, sortType, withCount, countKey, countStrategy, fields, teams -> { }));
     }
 
-    @Transactional(readOnly = true)
-    public ListEntityWithCount<TeamEntity> getWithUsers(
+    // サブクエリごとにListQueryRunnerでトランザクションを開始する
+    public ListEntityWithCursor<TeamEntity> getWithUsers(
             PaginationType paginationType,
             int limit,
             int offset,
             String cursor,
             TeamWithUsersSortType sortType,
             boolean withCount,
+            CountStrategy countStrategy,
             IsDefaultFilter isDefaultFilter,
             OrganizationFilter organizationFilter,
-            UsersFilter usersFilter
+            UsersFilter usersFilter,
+            TeamFields fields,
+            int usersLimit
     ) {
         Specification<TeamEntity> spec = Specification.where(
                 TeamSpecifications.withIsDefaultFilter(isDefaultFilter)
                         .and(TeamSpecifications.withOrganizationFilter(organizationFilter))
                         .and(TeamSpecifications.withBelongUsersFilter(usersFilter)));
-//                        .and(TeamSpecifications.fetchTeamUsers()));
-
-        Sort sort = createSort(sortType);
+        TeamCountKey countKey = TeamCountKey.of(isDefaultFilter, organizationFilter, usersFilter);
+
+        // メンバーの読み込みはページのTeamに依存するため, ページと同じトランザクションで続けて行う(件数とは並行)
+        // read_maskでメンバーが不要な場合は2段階目の読み込みを行わない
+        // usersLimitを指定した場合, 大きなチームのメンバーは先頭のみ返し, 残りはgetUsersOnTeamで取得させる
+        TeamListKey listKey = TeamListKey.of(
+                countKey, toTeamSortType(sortType), paginationType, limit, offset, cursor, withCount, countStrategy);
+
+        return findCachedTeamPage(listKey, fields, fields.users(), usersLimit, () -> findTeamPage(
+                spec, paginationType, limit, offset, cursor, toTeamSortType(sortType), withCount, countKey, countStrategy, fields,
+                teams -> {
+                    if (fields.users()) {
+                        teamWithUsersLoader.attachUsers(teams, usersLimit);
+                    }
+                }));
+    }
 
-        Pageable pageable = switch (paginationType) {
-            case OFFSET -> PageRequest.of(offset / limit, limit, sort);
-            case CURSOR -> PageRequest.of(0, limit, sort); // TODO: Implement cursor pagination
-            default -> Pageable.unpaged(sort);
-        };
+    /**
+     * 一覧結果のキャッシュにページのチームIDがあれば, IDでTeamを読み込んで返す.
+     * ない場合はloaderで読み込み, 読み込む前のstampとともにチームIDと件数を格納する.
+     * キャッシュから返した件数は, EXACTで求めたものもCACHED_EXACTとして返す.
+     *
+     * @param listKey 一覧の条件
+     * @param fields 読み込む列
+     * @param withUsers メンバーを読み込むかどうか
+     * @param usersLimit チームごとのメンバー数の上限
+     * @param loader キャッシュにない場合の読み込み処理
+     * @return 一覧結果
+     */
+    private ListEntityWithCursor<TeamEntity> findCachedTeamPage(
+            TeamListKey listKey,
+            TeamFields fields,
+            boolean withUsers,
+            int usersLimit,
+            Supplier<ListEntityWithCursor<TeamEntity>> loader
+    ) {
+        if (!teamListCache.isEnabled()) {
+            return loader.get();
+        }
 
-        Page<TeamEntity> data = teamRepository.findAll(spec, pageable);
+        long[] stamp = teamListCache.stamp(listKey);
+        Optional<TeamListCache.Page> cached = teamListCache.get(listKey, stamp);
+        if (cached.isPresent()) {
+            TeamListCache.Page page = cached.get();
+            try (ListQueryRunner.Scope scope = listQueryRunner.open()) {
+                List<TeamEntity> teams = scope.call("teams.cached", () ->
+                        teamWithUsersLoader.loadByIds(page.teamIds(), fields, withUsers, usersLimit));
+                CountStrategy countStrategy = page.countStrategy() == CountStrategy.EXACT
+                        ? CountStrategy.CACHED_EXACT : page.countStrategy();
+                return new ListEntityWithCursor<>(
+                        teams, page.count(), page.nextCursor(), countStrategy == null ? CountStrategy.EXACT : countStrategy);
+            }
+        }
 
-        List<String> teamIds = data.getContent().stream()
-                .map(TeamEntity::getTeamId)
-                .toList();
+        ListEntityWithCursor<TeamEntity> result = loader.get();
+        teamListCache.put(listKey, new TeamListCache.Page(
+                result.getData().stream().map(TeamEntity::getTeamId).toList(),
+                result.getCount(),
+                listKey.countStrategy() == null ? null : result.getCountStrategy(),
+                result.getNextCursor(),
+                stamp));
+        return result;
+    }
 
-        Specification<TeamUserEntity> userSpec = Specification.where(
-                TeamUserSpecifications.whereTeamIds(teamIds));
+    @Transactional(readOnly = true)
+    public void streamTeams(
+            TeamSortType sortType,
+            IsDefaultFilter isDefaultFilter,
+            OrganizationFilter organizationFilter,
+            UsersFilter usersFilter,
+            int chunkSize,
+            Consumer<List<TeamEntity>> chunkConsumer
+    ) {
+        Specification<TeamEntity> spec = Specification.where(
+                TeamSpecifications.withIsDefaultFilter(isDefaultFilter)
+                        .and(TeamSpecifications.withOrganizationFilter(organizationFilter))
+                        .and(TeamSpecifications.withBelongUsersFilter(usersFilter)));
 
-        List<TeamUserEntity> users = teamUserRepository.findAll(userSpec);
+        chunkedQueryExecutor.forEachChunk(TeamEntity.class, spec, createSort(sortType), chunkSize, chunkConsumer);
+    }
 
-        Map<String, List<TeamUserEntity>> userMap = new HashMap<>();
+    @Transactional(readOnly = true)
+    public void streamTeamsWithUsers(
+            TeamWithUsersSortType sortType,
+            IsDefaultFilter isDefaultFilter,
+            OrganizationFilter organizationFilter,
+            UsersFilter usersFilter,
+            boolean withUsers,
+            int usersLimit,
+            int chunkSize,
+            Consumer<List<TeamEntity>> chunkConsumer
+    ) {
+        Specification<TeamEntity> spec = Specification.where(
+                TeamSpecifications.withIsDefaultFilter(isDefaultFilter)
+                        .and(TeamSpecifications.withOrganizationFilter(organizationFilter))
+                        .and(TeamSpecifications.withBelongUsersFilter(usersFilter)));
 
-        users.forEach(user -> {
-            if (userMap.containsKey(user.getTeamId())) {
-                userMap.get(user.getTeamId()).add(user);
-            } else {
-                List<TeamUserEntity> list = new ArrayList<>();
-                list.add(user);
-                userMap.put(user.getTeamId(), list);
+        chunkedQueryExecutor.forEachChunk(TeamEntity.class, spec, createSort(toTeamSortType(sortType)), chunkSize, chunk -> {
+            if (withUsers) {
+                teamWithUsersLoader.attachUsers(chunk, usersLimit);
             }
+            chunkConsumer.accept(chunk);
         });
+    }
 
-        data.getContent().forEach(team -> {
-            team.setTeamUsers(userMap.get(team.getTeamId()));
-        });
+    @Transactional(readOnly = true)
+    public void streamUsersOnTeam(
+            String teamId,
+            UserOnTeamSortType sortType,
+            int chunkSize,
+            Consumer<List<TeamUserEntity>> chunkConsumer
+    ) {
+        Specification<TeamUserEntity> spec = Specification
+                .where(TeamUserSpecifications.whereTeamId(teamId));
+
+        chunkedQueryExecutor.forEachChunk(TeamUserEntity.class, spec, createSort(sortType), chunkSize, chunkConsumer);
+    }
+
+    @Transactional(readOnly = true)
+    public void streamTeamsOnUser(
+            String userId,
+            TeamOnUserSortType sortType,
+            int chunkSize,
+            Consumer<List<TeamUserEntity>> chunkConsumer
+    ) {
+        Specification<TeamUserEntity> spec = Specification
+                .where(TeamUserSpecifications.whereUserId(userId)
+                        .and(TeamUserSpecifications.fetchTeam()));
 
+        chunkedQueryExecutor.forEachChunk(TeamUserEntity.class, spec, createSort(sortType), chunkSize, chunkConsumer);
+    }
 
-        int count = 0;
-        if (withCount){
-            count = (int) data.getTotalElements();
+    private ListEntityWithCursor<TeamEntity> findTeamPage(
+            Specification<TeamEntity> spec,
+            PaginationType paginationType,
+            int limit,
+            int offset,
+            String cursor,
+            TeamSortType sortType,
+            boolean withCount,
+            TeamCountKey countKey,
+            CountStrategy countStrategy,
+            TeamFields fields,
+            Consumer<List<TeamEntity>> pageLoaded
+    ) {
+        Sort sort = createSort(sortType);
+        TeamFields selected = withSortKey(fields, sortType);
+        TeamCursor after = (paginationType != PaginationType.CURSOR || cursor == null || cursor.isEmpty())
+                ? null : TeamCursor.decode(sortType, cursor);
+
+        try (ListQueryRunner.Scope scope = listQueryRunner.open()) {
+            // 件数はページに依存しないため, 別の接続で並行して求める
+            Supplier<TeamCount> count = countTeams(scope, spec, withCount, countKey, countStrategy);
+
+            ListEntityWithCursor<TeamEntity> page = scope.call("teams.page", () -> {
+                // エンティティを経由せず, protoとカーソルに必要な列のみを読み込む
+                List<TeamView> content;
+                String nextCursor = null;
+                if (paginationType == PaginationType.CURSOR) {
+                    // OFFSETを使わず, 直前ページ末尾のキーより後ろをインデックスから直接読む
+                    List<TeamView> rows = projectionQueryExecutor.findTeams(
+                            spec.and(TeamSpecifications.afterCursor(sortType, after)), sort, 0, limit + 1, selected);
+                    boolean hasNext = rows.size() > limit;
+                    content = hasNext ? rows.subList(0, limit) : rows;
+                    if (hasNext) {
+                        nextCursor = TeamCursor.of(sortType, content.get(content.size() - 1)).encode(sortType);
+                    }
+                } else {
+                    content = switch (paginationType) {
+                        case OFFSET -> projectionQueryExecutor.findTeams(spec, sort, offset / limit * limit, limit, selected);
+                        default -> projectionQueryExecutor.findTeams(spec, sort, 0, ProjectionQueryExecutor.UNLIMITED, selected);
+                    };
+                }
+                List<TeamEntity> teams = toTeamEntities(content);
+                pageLoaded.accept(teams);
+                return new ListEntityWithCursor<>(teams, 0, nextCursor);
+            });
+
+            TeamCount total = count.get();
+            return new ListEntityWithCursor<>(page.getData(), total.count(), page.getNextCursor(), total.strategy());
         }
-        return new ListEntityWithCount<>(
-                data.getContent(),
-                count
-        );
     }
 
-    @Transactional(readOnly = true)
-    public ListEntityWithCount<TeamUserEntity> getUsersOnTeam(
+    /**
+     * @param count 件数
+     * @param strategy 実際に件数を求めた方法
+     */
+    private record TeamCount(int count, CountStrategy strategy) {
+    }
+
+    private static final TeamCount NO_COUNT = new TeamCount(0, CountStrategy.EXACT);
+
+    /**
+     * 要求された方法で件数を求める. DBを参照する場合はscopeでforkする.
+     * CACHED_EXACTでキャッシュにない場合, ESTIMATEDで統計情報がない場合はcount(*)で数え, EXACTを返す.
+     */
+    private Supplier<TeamCount> countTeams(
+            ListQueryRunner.Scope scope,
+            Specification<TeamEntity> spec,
+            boolean withCount,
+            TeamCountKey countKey,
+            CountStrategy countStrategy
+    ) {
+        if (!withCount) {
+            return () -> NO_COUNT;
+        }
+        switch (countStrategy) {
+            case CACHED_EXACT -> {
+                // 数える前のstampで格納し, 数えている間の書き込みを取りこぼさない
+                long[] stamp = teamCountCache.stamp(countKey);
+                OptionalLong cached = teamCountCache.get(countKey, stamp);
+                if (cached.isPresent()) {
+                    TeamCount hit = new TeamCount((int) cached.getAsLong(), CountStrategy.CACHED_EXACT);
+                    return () -> hit;
+                }
+                return scope.fork("teams.count", () -> {
+                    long count = teamRepository.count(spec);
+                    teamCountCache.put(countKey, stamp, count);
+                    return new TeamCount((int) count, CountStrategy.EXACT);
+                });
+            }
+            case ESTIMATED -> {
+                return scope.fork("teams.count", () -> {
+                    OptionalLong estimated = countEstimator.estimateTeams(countKey);
+                    if (estimated.isPresent()) {
+                        return new TeamCount((int) Math.min(estimated.getAsLong(), Integer.MAX_VALUE), CountStrategy.ESTIMATED);
+                    }
+                    return new TeamCount((int) teamRepository.count(spec), CountStrategy.EXACT);
+                });
+            }
+            default -> {
+                return scope.fork("teams.count", () -> new TeamCount((int) teamRepository.count(spec), CountStrategy.EXACT));
+            }
+        }
+    }
+
+    private static List<TeamEntity> toTeamEntities(List<TeamView> views) {
+        return views.stream()
+                .map(TeamView::toEntity)
+                .toList();
+    }
+
+    // サブクエリごとにListQueryRunnerでトランザクションを開始する
+    public ListEntityWithCursor<TeamUserEntity> getUsersOnTeam(
             String teamId,
             PaginationType paginationType,
             int limit,
@@ -189,81 +410,183 @@ public class TeamService extends BaseService {
                 .where(TeamUserSpecifications.whereTeamId(teamId));
 
         Sort sort = createSort(sortType);
+        // メンバー数はteams.member_countで維持しているため, team_userを数えない
+        IntSupplier counter = () -> teamRepository.findMemberCountById(teamId).orElse(0);
 
-        Pageable pageable = switch (paginationType) {
-            case OFFSET -> PageRequest.of(offset / limit, limit, sort);
-            case CURSOR -> PageRequest.of(0, limit, sort); // TODO: Implement cursor pagination
-            default -> Pageable.unpaged(sort);
-        };
-
-        Page<TeamUserEntity> data = teamUserRepository.findAll(spec, pageable);
+        TeamUserCursor after = (paginationType != PaginationType.CURSOR || cursor == null || cursor.isEmpty())
+                ? null : TeamUserCursor.decode(sortType, cursor);
 
-        int count = 0;
-        if (withCount){
-            count = (int) data.getTotalElements();
-        }
-        return new ListEntityWithCount<>(
-                data.getContent(),
-                count
-        );
+        return findTeamUsersWithCount("usersOnTeam", withCount, counter, () -> paginationType == PaginationType.CURSOR
+                ? findTeamUserCursorPage(
+                        spec, TeamUserSpecifications.afterCursor(sortType, after), sort, limit, null,
+                        last -> TeamUserCursor.of(sortType, last).encode(sortType))
+                : findTeamUserPage(spec, paginationType, limit, offset, sort, null));
     }
 
-    @Transactional(readOnly = true)
-    public ListEntityWithCount<TeamUserEntity> getTeamsOnUser(
+    // インデックスから返す場合にトランザクションを開始しないよう, DBの場合はサブクエリごとのトランザクションで読み込む
+    public ListEntityWithCursor<TeamUserEntity> getTeamsOnUser(
             String userId,
             PaginationType paginationType,
             int limit,
             int offset,
             String cursor,
             TeamOnUserSortType sortType,
-            boolean withCount
+            boolean withCount,
+            TeamFields teamFields
     ) {
+        TeamUserCursor after = (paginationType != PaginationType.CURSOR || cursor == null || cursor.isEmpty())
+                ? null : TeamUserCursor.decode(sortType, cursor);
+
+        Optional<ListEntityWithCursor<TeamUserEntity>> indexed = membershipIndex.getTeamsOnUser(
+                userId, paginationType, limit, offset, after, sortType, withCount);
+        if (indexed.isPresent()) {
+            return indexed.get();
+        }
+
+        // TeamはfetchせずにJOINした列を射影に含める
         Specification<TeamUserEntity> spec = Specification
-                .where(TeamUserSpecifications.whereUserId(userId)
-                        .and(TeamUserSpecifications.fetchTeam()));
+                .where(TeamUserSpecifications.whereUserId(userId));
 
         Sort sort = createSort(sortType);
+        TeamFields selected = sortType == TeamOnUserSortType.NAME_ASC || sortType == TeamOnUserSortType.NAME_DESC
+                ? teamFields.withName() : teamFields;
+        IntSupplier counter = () -> (int) teamUserRepository.count(spec);
+
+        return findTeamUsersWithCount("teamsOnUser", withCount, counter, () -> paginationType == PaginationType.CURSOR
+                ? findTeamUserCursorPage(
+                        spec, TeamUserSpecifications.afterCursor(sortType, after), sort, limit, selected,
+                        last -> TeamUserCursor.of(sortType, last).encode(sortType))
+                : findTeamUserPage(spec, paginationType, limit, offset, sort, selected));
+    }
+
+    /**
+     * ページを呼び出し元のスレッドで, 件数を別の接続で並行して読み込む.
+     *
+     * @param name サブクエリ名の接頭辞
+     * @param withCount 件数を求めるかどうか
+     * @param counter 件数を求める処理
+     * @param page ページを読み込む処理(件数は無視する)
+     * @return 件数を設定した一覧結果
+     */
+    private ListEntityWithCursor<TeamUserEntity> findTeamUsersWithCount(
+            String name,
+            boolean withCount,
+            IntSupplier counter,
+            Supplier<ListEntityWithCursor<TeamUserEntity>> page
+    ) {
+        try (ListQueryRunner.Scope scope = listQueryRunner.open()) {
+            Supplier<Integer> count = withCount ? scope.fork(name + ".count", counter::getAsInt) : () -> 0;
+            ListEntityWithCursor<TeamUserEntity> data = scope.call(name + ".page", page);
+            return new ListEntityWithCursor<>(data.getData(), count.get(), data.getNextCursor());
+        }
+    }
+
+    private ListEntityWithCursor<TeamUserEntity> findTeamUserCursorPage(
+            Specification<TeamUserEntity> spec,
+            Specification<TeamUserEntity> afterSpec,
+            Sort sort,
+            int limit,
+            TeamFields teamFields,
+            Function<TeamUserView, String> cursorOf
+    ) {
+        // (team_id|user_id, created_at, team_user_id)のインデックスを直前ページ末尾からシークする
+        List<TeamUserView> rows = projectionQueryExecutor.findTeamUsers(
+                spec.and(afterSpec), sort, 0, limit + 1, teamFields);
+
+        boolean hasNext = rows.size() > limit;
+        List<TeamUserView> content = hasNext ? rows.subList(0, limit) : rows;
+        String nextCursor = hasNext ? cursorOf.apply(content.get(content.size() - 1)) : null;
+
+        return new ListEntityWithCursor<>(toTeamUserEntities(content), 0, nextCursor);
+    }
 
-        Pageable pageable = switch (paginationType) {
-            case OFFSET -> PageRequest.of(offset / limit, limit, sort);
-            case CURSOR -> PageRequest.of(0, limit, sort); // TODO: Implement cursor pagination
-            default -> Pageable.unpaged(sort);
+    private ListEntityWithCursor<TeamUserEntity> findTeamUserPage(
+            Specification<TeamUserEntity> spec,
+            PaginationType paginationType,
+            int limit,
+            int offset,
+            Sort sort,
+            TeamFields teamFields
+    ) {
+        List<TeamUserView> rows = switch (paginationType) {
+            case OFFSET -> projectionQueryExecutor.findTeamUsers(spec, sort, offset / limit * limit, limit, teamFields);
+            default -> projectionQueryExecutor.findTeamUsers(spec, sort, 0, ProjectionQueryExecutor.UNLIMITED, teamFields);
         };
 
-        Page<TeamUserEntity> data = teamUserRepository.findAll(spec, pageable);
+        return new ListEntityWithCursor<>(toTeamUserEntities(rows), 0, null);
+    }
+
+    private static List<TeamUserEntity> toTeamUserEntities(List<TeamUserView> views) {
+        return views.stream()
+                .map(TeamUserView::toEntity)
+                .toList();
+    }
+
+    /**
+     * ユーザーが各チームに所属しているかを返す.
+     * 認可の判定に使われるため, 変更の反映が遅れうるメンバーシップインデックスではなく常にDBを参照する.
+     *
+     * @param userId ユーザーID
+     * @param teamIds チームIDリスト
+     * @return i番目のチームに所属していればi番目のビットが立つ
+     */
+    @Transactional(readOnly = true)
+    public BitSet isMemberOfTeams(String userId, List<String> teamIds) {
+        return toBitSet(teamIds, teamUserRepository.findTeamIdsByUserIdAndTeamIds(userId, distinct(teamIds)));
+    }
+
+    /**
+     * 各ユーザーがチームに所属しているかを返す.
+     * 認可の判定に使われるため, 変更の反映が遅れうるメンバーシップインデックスではなく常にDBを参照する.
+     *
+     * @param teamId チームID
+     * @param userIds ユーザーIDリスト
+     * @return i番目のユーザーが所属していればi番目のビットが立つ
+     */
+    @Transactional(readOnly = true)
+    public BitSet areMembersOfTeam(String teamId, List<String> userIds) {
+        return toBitSet(userIds, teamUserRepository.findUserIdsByTeamIdAndUserIds(teamId, distinct(userIds)));
+    }
+
+    private static String[] distinct(List<String> ids) {
+        return ids.stream().distinct().toArray(String[]::new);
+    }
 
-        int count = 0;
-        if (withCount){
-            count = (int) data.getTotalElements();
+    private static BitSet toBitSet(List<String> requested, List<String> matched) {
+        Set<String> matchedSet = new HashSet<>(matched);
+        BitSet members = new BitSet(requested.size());
+        for (int i = 0; i < requested.size(); i++) {
+            if (matchedSet.contains(requested.get(i))) {
+                members.set(i);
+            }
         }
-        return new ListEntityWithCount<>(
-                data.getContent(),
-                count
-        );
+        return members;
     }
 
     @Transactional(readOnly = true)
     public List<TeamEntity> getByTeamIds(
             List<String> teamIds,
-            TeamSortType sortType
+            TeamSortType sortType,
+            TeamFields fields
     ) {
         Specification<TeamEntity> spec = Specification.where(
                 TeamSpecifications.whereTeamIds(teamIds)
         );
 
-        return teamRepository.findAll(spec, createSort(sortType));
+        return toTeamEntities(projectionQueryExecutor.findTeams(
+                spec, createSort(sortType), 0, ProjectionQueryExecutor.UNLIMITED, fields));
     }
 
+    /**
+     * ID指定でTeamをメンバー付きで取得する.
+     * 結果はteamIdsの順序で返し, 重複したIDは除外する.
+     */
     @Transactional(readOnly = true)
     public List<TeamEntity> getByTeamIdsWithUsers(
             List<String> teamIds,
-            TeamWithUsersSortType sortType
+            TeamFields fields
     ) {
-        Specification<TeamEntity> spec = Specification.where(
-                TeamSpecifications.whereTeamIds(teamIds)
-        ).and(TeamSpecifications.fetchTeamUsers());
-
-        return teamRepository.findAll(spec, createSort(sortType));
+        return teamWithUsersLoader.loadByIds(teamIds, fields);
     }
 
     @Transactional
@@ -322,119 +645,242 @@ public class TeamService extends BaseService {
         return jobId;
     }
 
+    /**
+     * チームがすべて存在するかを確認する.
+     * 存在確認のBloomフィルタで存在しないと確定したIDがあれば, DBを参照せずにそのIDで失敗とする.
+     *
+     * @param teamIds チームIDリスト
+     * @throws NotFoundTeamException 存在しないチームがある場合
+     */
     public void validateTeams(List<String> teamIds)
             throws NotFoundTeamException {
-        List<TeamEntity> teams =  teamRepository.findAllById(teamIds);
-        if (teams.size() != teamIds.size()) {
-            List<String> notFoundTeamIds = new ArrayList<>();
-            teamIds.stream()
-                    .filter(teamId -> teams.stream().noneMatch(team -> team.getTeamId().equals(teamId)))
-                    .forEach(notFoundTeamIds::add);
+        List<String> uniqueIds = teamIds.stream().distinct().toList();
+        List<String> absentTeamIds = teamExistenceFilter.findAbsent(uniqueIds);
+        if (!absentTeamIds.isEmpty()) {
+            throw new NotFoundTeamException(absentTeamIds);
+        }
 
+        List<String> notFoundTeamIds = teamRepository.findMissingTeamIds(uniqueIds.toArray(String[]::new));
+        if (!notFoundTeamIds.isEmpty()) {
             throw new NotFoundTeamException(notFoundTeamIds);
         }
     }
 
     public TeamEntity createAndAddUsers(String operatorId, TeamEntity team, List<TeamUserEntity> users) {
+        // 同じユーザーは1件にまとめ, メンバー数は実際に書き込む件数とする
+        Map<String, TeamUserEntity> uniqueUsers = new LinkedHashMap<>();
+        users.forEach(user -> uniqueUsers.putIfAbsent(user.getUserId(), user));
+        team.setMemberCount(uniqueUsers.size());
         team = teamRepository.save(team);
-        TeamEntity finalTeam = team;
-        users = users.stream()
-                .peek(user -> user.setTeam(finalTeam))
-                .toList();
-        teamUserRepository.saveAll(users);
-        team.setTeamUsers(users);
+        teamExistenceFilter.add(team.getTeamId());
+        // 初期メンバーは数千件になりうるため, JDBCバッチとチャンクごとのflush/clearで書き込む
+        team.setTeamUsers(teamUserBatchWriter.insert(team, new ArrayList<>(uniqueUsers.values())));
         return team;
     }
 
     public List<TeamUserEntity> addUsers(String operatorId, String teamId, List<TeamUserEntity> users) {
-        List<TeamUserEntity> existUsers = teamUserRepository.
-                findAllByTeamIdAndUserIds(teamId, users.stream()
-                        .map(TeamUserEntity::getUserId)
-                        .toList());
-        if (!existUsers.isEmpty()) {
-            List<String> existUserIds = existUsers.stream()
-                    .map(TeamUserEntity::getUserId)
-                    .toList();
-            throw new AlreadyExistTeamUserException(teamId, existUserIds);
+        TeamMembershipWriter.Result result = teamMembershipWriter.addToTeam(teamId, toUserIds(users));
+        if (result.team() == null) {
+            throw new TeamNotFoundException(
+                    TeamNotFoundException.FindType.BY_ID,
+                    teamId
+            );
         }
-        TeamEntity team = teamRepository.findById(teamId)
-                .orElseThrow(() -> new TeamNotFoundException(
-                        TeamNotFoundException.FindType.BY_ID,
-                        teamId
-                ));
-        users = users.stream()
-                .peek(user -> user.setTeam(team))
-                .toList();
-        return teamUserRepository.saveAll(users);
+        return addedUsers(result);
     }
 
     public List<TeamUserEntity> addUsersToDefault(String operatorId, String organizationId, List<TeamUserEntity> users) {
-        TeamEntity teamEntity = teamRepository.findByOrganizationIdAndIsDefault(organizationId, true).orElseThrow(() -> new TeamNotFoundException(
-                TeamNotFoundException.FindType.BY_ORGANIZATION_ID_AND_IS_DEFAULT,
-                organizationId
-        ));
-        List<TeamUserEntity> existUsers = teamUserRepository.
-                findAllByTeamIdAndUserIds(teamEntity.getTeamId(), users.stream()
-                        .map(TeamUserEntity::getUserId)
-                        .toList());
-        if (!existUsers.isEmpty()) {
-            List<String> existUserIds = existUsers.stream()
-                    .map(TeamUserEntity::getUserId)
-                    .toList();
-            throw new AlreadyExistTeamUserException(teamEntity.getTeamId(), existUserIds);
+        TeamMembershipWriter.Result result = teamMembershipWriter.addToDefaultTeam(organizationId, toUserIds(users));
+        if (result.team() == null) {
+            throw new TeamNotFoundException(
+                    TeamNotFoundException.FindType.BY_ORGANIZATION_ID_AND_IS_DEFAULT,
+                    organizationId
+            );
+        }
+        return addedUsers(result);
+    }
+
+    /**
+     * チームのメンバーを指定したユーザー集合に一致させるSagaを開始する.
+     * デフォルトチームの拒否と組織のメンバーであることの確認はSagaの中で書き込みの前に行う.
+     *
+     * @param operatorId 操作者ID
+     * @param teamId チームID
+     * @param userIds 望ましいメンバーのユーザーID(重複は除く)
+     * @return ジョブID
+     */
+    public String beginReconcileUsers(String operatorId, String teamId, List<String> userIds) {
+        ReconcileUsersTeamSagaState.InitialData initialData = ReconcileUsersTeamSagaState.InitialData.builder()
+                .teamId(teamId)
+                .users(userIds.stream().distinct().map(userId -> ReconcileUsersTeamSagaState.InitialData.User.builder()
+                        .userId(userId)
+                        .build())
+                        .toList())
+                .build();
+        ReconcileUsersTeamSagaState state = new ReconcileUsersTeamSagaState();
+        state.setInitialData(initialData);
+        state.setOperatorId(operatorId);
+
+        String jobId = getJobId();
+        state.setJobId(jobId);
+
+        try {
+            sagaInstanceFactory.create(reconcileUsersTeamSaga, state);
+        } catch (LocalException e) {
+            // Jobで失敗イベント送信済みのため, ここでは何もしない
+            log.debug("LocalException: {}", e.getMessage());
+            return jobId;
         }
-        users = users.stream()
-                .peek(user -> user.setTeam(teamEntity))
+
+        return jobId;
+    }
+
+    /**
+     * チームのメンバーを指定したユーザー集合に一致させる.
+     * チームをロックして存在とデフォルトチームでないことを確認してから,
+     * 差分をDB側でteam_userとのアンチジョインにより求め, 追加と削除を1文でまとめて反映する.
+     * 変更があった場合のみ, チームの変更を1回通知する.
+     *
+     * @param operatorId 操作者ID. 追加した行の作成者とチームの更新者に記録する
+     * @param teamId チームID
+     * @param userIds 望ましいメンバーのユーザーID
+     * @return 照合結果
+     */
+    @Transactional
+    public TeamMembershipWriter.Reconciliation reconcileUsers(String operatorId, String teamId, List<String> userIds) {
+        TeamEntity team = teamMembershipWriter.lockTeam(teamId);
+        if (team == null) {
+            throw new TeamNotFoundException(
+                    TeamNotFoundException.FindType.BY_ID,
+                    teamId
+            );
+        }
+        if (team.isDefault()) {
+            // デフォルトチームからはメンバーを削除できない(照合は削除を含むため全体を拒否する)
+            throw new NotAllowedOnDefaultTeamException(teamId, ActionOnTeam.REMOVE_USERS);
+        }
+        TeamMembershipWriter.Reconciliation result = teamMembershipWriter.reconcile(team, userIds, operatorId);
+        if (!result.added().isEmpty() || !result.removed().isEmpty()) {
+            teamChangeNotifier.notifyAfterCommit(List.of(teamId));
+            organizationGenerations.advanceAfterCommit(team.getOrganizationId());
+        }
+        log.info("Reconcile team {} by {}: {} added, {} removed, {} unchanged",
+                teamId, operatorId, result.added().size(), result.removed().size(), result.unchanged());
+        return result;
+    }
+
+    /**
+     * メンバーの一括取り込みを開始する. 呼び出し側はfinishMembershipImportの後も含め, 必ずcloseすること.
+     */
+    public TeamUserCopyImporter.Session openMembershipImport() {
+        return teamUserCopyImporter.open();
+    }
+
+    /**
+     * 取り込んだ行をマージしてコミットし, メンバーを追加したチームを通知する.
+     * 取り込みは複数の組織にまたがるため, 組織を読み込まずにすべての世代を無効にする.
+     */
+    public TeamUserCopyImporter.Result finishMembershipImport(TeamUserCopyImporter.Session session) {
+        TeamUserCopyImporter.Result result = session.finish();
+        if (!result.changedTeamIds().isEmpty()) {
+            teamChangeNotifier.notifyAfterCommit(result.changedTeamIds());
+            organizationGenerations.advanceAllAfterCommit();
+        }
+        return result;
+    }
+
+    private static List<String> toUserIds(List<TeamUserEntity> users) {
+        return users.stream()
+                .map(TeamUserEntity::getUserId)
                 .toList();
-        return teamUserRepository.saveAll(users);
     }
 
-    public void undoCreate(String teamId) {
-        TeamEntity team = teamRepository.findByIdWithUsers(teamId)
-                .orElseThrow(() -> new TeamNotFoundException(
-                        TeamNotFoundException.FindType.BY_ID,
-                        teamId
-                ));
-        teamRepository.delete(team);
+    /**
+     * 既にメンバーのユーザーがいた場合は何も追加されていないため, 従来どおりAlreadyExistTeamUserExceptionとする.
+     */
+    private static List<TeamUserEntity> addedUsers(TeamMembershipWriter.Result result) {
+        if (!result.alreadyMemberUserIds().isEmpty()) {
+            throw new AlreadyExistTeamUserException(result.team().getTeamId(), result.alreadyMemberUserIds());
+        }
+        return result.added();
+    }
+
+    /**
+     * 作成したTeamをメンバーごと削除する.
+     * メンバーを読み込まず, ON DELETE CASCADEにより1文で削除する. 既に削除済みの場合は何もしない.
+     *
+     * @param teamId チームID
+     * @return 削除結果
+     */
+    public TeamMembershipWriter.Removal undoCreate(String teamId) {
+        TeamMembershipWriter.Removal removal = teamMembershipWriter.deleteTeam(teamId);
+        log.info("Undo create team {}: {} team(s), {} member(s) deleted",
+                teamId, removal.teamIds().size(), removal.removedUsers());
+        return removal;
     }
 
-    public void undoAddUsers(List<String> teamUserIds) {
-        teamUserRepository.deleteAllById(teamUserIds);
+    /**
+     * 追加したTeamUserを1文で削除する. 既に削除済みのTeamUserは無視する.
+     *
+     * @param teamUserIds 削除するTeamUserのID
+     * @return 削除結果(teamIdsは削除したTeamUserが属していたチームID)
+     */
+    public TeamMembershipWriter.Removal undoAddUsers(List<String> teamUserIds) {
+        TeamMembershipWriter.Removal removal = teamMembershipWriter.removeMembers(teamUserIds);
+        log.info("Undo add users: {} of {} team user(s) deleted from {} team(s)",
+                removal.removedUsers(), teamUserIds.size(), removal.teamIds().size());
+        return removal;
     }
 
     private Sort createSort(TeamSortType sortType) {
+        // teamIdを最後のキーに含め, 順序を一意に定める(カーソルの位置決めに必要)
+        return switch (sortType) {
+            case CREATED_AT_ASC -> Sort.by(Sort.Order.asc("createdAt"), Sort.Order.asc("teamId"));
+            case CREATED_AT_DESC -> Sort.by(Sort.Order.desc("createdAt"), Sort.Order.desc("teamId"));
+            case NAME_ASC -> Sort.by(Sort.Order.asc("name"), Sort.Order.desc("createdAt"), Sort.Order.desc("teamId"));
+            case NAME_DESC -> Sort.by(Sort.Order.desc("name"), Sort.Order.desc("createdAt"), Sort.Order.desc("teamId"));
+            case MEMBER_COUNT_ASC -> Sort.by(Sort.Order.asc("memberCount"), Sort.Order.asc("createdAt"), Sort.Order.asc("teamId"));
+            case MEMBER_COUNT_DESC -> Sort.by(Sort.Order.desc("memberCount"), Sort.Order.desc("createdAt"), Sort.Order.desc("teamId"));
+        };
+    }
+
+    /**
+     * カーソルの組み立てに必要なソートキーの列を読み込む列に加える.
+     */
+    private static TeamFields withSortKey(TeamFields fields, TeamSortType sortType) {
         return switch (sortType) {
-            case CREATED_AT_ASC -> Sort.by(Sort.Order.asc("createdAt"));
-            case CREATED_AT_DESC -> Sort.by(Sort.Order.desc("createdAt"));
-            case NAME_ASC -> Sort.by(Sort.Order.asc("name"), Sort.Order.desc("createdAt"));
-            case NAME_DESC -> Sort.by(Sort.Order.desc("name"), Sort.Order.desc("createdAt"));
+            case NAME_ASC, NAME_DESC -> fields.withName();
+            case MEMBER_COUNT_ASC, MEMBER_COUNT_DESC -> fields.withMemberCount();
+            default -> fields;
         };
     }
 
-    private Sort createSort(TeamWithUsersSortType sortType) {
+    private TeamSortType toTeamSortType(TeamWithUsersSortType sortType) {
         return switch (sortType) {
-            case CREATED_AT_ASC -> Sort.by(Sort.Order.asc("createdAt"));
-            case CREATED_AT_DESC -> Sort.by(Sort.Order.desc("createdAt"));
-            case NAME_ASC -> Sort.by(Sort.Order.asc("name"), Sort.Order.desc("createdAt"));
-            case NAME_DESC -> Sort.by(Sort.Order.desc("name"), Sort.Order.desc("createdAt"));
+            case CREATED_AT_ASC -> TeamSortType.CREATED_AT_ASC;
+            case CREATED_AT_DESC -> TeamSortType.CREATED_AT_DESC;
+            case NAME_ASC -> TeamSortType.NAME_ASC;
+            case NAME_DESC -> TeamSortType.NAME_DESC;
+            case MEMBER_COUNT_ASC -> TeamSortType.MEMBER_COUNT_ASC;
+            case MEMBER_COUNT_DESC -> TeamSortType.MEMBER_COUNT_DESC;
         };
     }
 
     private Sort createSort(UserOnTeamSortType sortType) {
         return switch (sortType) {
-            case ADD_AT_ASC -> Sort.by(Sort.Order.asc("createdAt"));
-            case ADD_AT_DESC -> Sort.by(Sort.Order.desc("createdAt"));
+            case ADD_AT_ASC -> Sort.by(Sort.Order.asc("createdAt"), Sort.Order.asc("teamUserId"));
+            case ADD_AT_DESC -> Sort.by(Sort.Order.desc("createdAt"), Sort.Order.desc("teamUserId"));
         };
     }
 
     private Sort createSort(TeamOnUserSortType sortType) {
         return switch (sortType) {
-            case ADD_AT_ASC -> Sort.by(Sort.Order.asc("createdAt"));
-            case ADD_AT_DESC -> Sort.by(Sort.Order.desc("createdAt"));
-            case NAME_ASC -> Sort.by(Sort.Order.asc("team.name"), Sort.Order.desc("createdAt"));
-            case NAME_DESC -> Sort.by(Sort.Order.desc("team.name"), Sort.Order.desc("createdAt"));
-            case CREATED_AT_ASC -> Sort.by(Sort.Order.asc("team.createdAt"), Sort.Order.desc("createdAt"));
-            case CREATED_AT_DESC -> Sort.by(Sort.Order.desc("team.createdAt"), Sort.Order.desc("createdAt"));
+            case ADD_AT_ASC -> Sort.by(Sort.Order.asc("createdAt"), Sort.Order.asc("teamUserId"));
+            case ADD_AT_DESC -> Sort.by(Sort.Order.desc("createdAt"), Sort.Order.desc("teamUserId"));
+            case NAME_ASC -> Sort.by(Sort.Order.asc("team.name"), Sort.Order.desc("createdAt"), Sort.Order.desc("teamUserId"));
+            case NAME_DESC -> Sort.by(Sort.Order.desc("team.name"), Sort.Order.desc("createdAt"), Sort.Order.desc("teamUserId"));
+            case CREATED_AT_ASC -> Sort.by(Sort.Order.asc("team.createdAt"), Sort.Order.desc("createdAt"), Sort.Order.desc("teamUserId"));
+            case CREATED_AT_DESC -> Sort.by(Sort.Order.desc("team.createdAt"), Sort.Order.desc("createdAt"), Sort.Order.desc("teamUserId"));
         };
     }
 }
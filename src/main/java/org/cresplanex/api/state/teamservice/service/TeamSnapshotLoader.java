@@ -0,0 +1,42 @@
+package org.cresplanex.api.state.teamservice.service;
+
+import lombok.RequiredArgsConstructor;
+import org.cresplanex.api.state.teamservice.cache.TeamSnapshot;
+import org.cresplanex.api.state.teamservice.entity.TeamEntity;
+import org.cresplanex.api.state.teamservice.exception.TeamNotFoundException;
+import org.cresplanex.api.state.teamservice.repository.TeamRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * キャッシュミス時にTeamのスナップショットを読み込む.
+ * キャッシュヒット時にトランザクション(DBコネクション)を開始しないよう, 読み込み処理だけをここに分けている.
+ */
+@Component
+@RequiredArgsConstructor
+public class TeamSnapshotLoader {
+
+    private final TeamRepository teamRepository;
+    private final TeamWithUsersLoader teamWithUsersLoader;
+
+    @Transactional(readOnly = true)
+    public TeamSnapshot load(String teamId) {
+        return TeamSnapshot.of(findTeam(teamId));
+    }
+
+    @Transactional(readOnly = true)
+    public TeamSnapshot loadWithUsers(String teamId) {
+        TeamEntity team = findTeam(teamId);
+        teamWithUsersLoader.attachUsers(List.of(team));
+        return TeamSnapshot.withUsers(team);
+    }
+
+    private TeamEntity findTeam(String teamId) {
+        return teamRepository.findById(teamId).orElseThrow(() -> new TeamNotFoundException(
+                TeamNotFoundException.FindType.BY_ID,
+                teamId
+        ));
+    }
+}
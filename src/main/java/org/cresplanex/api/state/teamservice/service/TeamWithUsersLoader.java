@@ -0,0 +1,160 @@
+package org.cresplanex.api.state.teamservice.service;
+
+import lombok.RequiredArgsConstructor;
+import org.cresplanex.api.state.teamservice.entity.TeamEntity;
+import org.cresplanex.api.state.teamservice.entity.TeamUserEntity;
+import org.cresplanex.api.state.teamservice.repository.ProjectionQueryExecutor;
+import org.cresplanex.api.state.teamservice.repository.TeamUserRepository;
+import org.cresplanex.api.state.teamservice.repository.projection.TeamFields;
+import org.cresplanex.api.state.teamservice.repository.projection.TeamUserView;
+import org.cresplanex.api.state.teamservice.specification.TeamSpecifications;
+import org.cresplanex.api.state.teamservice.specification.TeamUserSpecifications;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * TeamとTeamUserを2段階で読み込む.
+ * 1段階目でページ分のTeamを(もしくはID指定で)取得し, 2段階目でそのTeamのメンバーをまとめて取得する.
+ * コレクションのfetch joinを使わないため, 行の重複やHibernateのメモリ上ページング(HHH000104)が発生しない.
+ * どちらも必要な列のみの射影で読み込み, 管理されていないエンティティを組み立てる.
+ */
+@Component
+@RequiredArgsConstructor
+public class TeamWithUsersLoader {
+
+    private static final Sort MEMBER_SORT = Sort.by(Sort.Order.asc("createdAt"), Sort.Order.asc("teamUserId"));
+
+    /**
+     * メンバー数の上限を指定しない場合の値.
+     */
+    public static final int UNLIMITED_USERS = 0;
+
+    private final ProjectionQueryExecutor projectionQueryExecutor;
+    private final TeamUserRepository teamUserRepository;
+
+    /**
+     * ID指定でTeamをメンバー付きで取得する.
+     * 結果は引数の順序に従い, 重複したIDは除外する. 存在しないIDは結果に含まれない.
+     *
+     * @param teamIds チームIDリスト
+     * @param fields 読み込む列. usersがfalseの場合はメンバーを読み込まない
+     * @return メンバーを設定したTeamのリスト
+     */
+    public List<TeamEntity> loadByIds(List<String> teamIds, TeamFields fields) {
+        return loadByIds(teamIds, fields, fields.users(), UNLIMITED_USERS);
+    }
+
+    /**
+     * ID指定でTeamを取得し, withUsersの場合はチームごとに先頭usersLimit件までのメンバーを設定する.
+     *
+     * @param teamIds チームIDリスト
+     * @param fields 読み込む列
+     * @param withUsers メンバーを読み込むかどうか
+     * @param usersLimit チームごとのメンバー数の上限. UNLIMITED_USERSの場合は全件
+     * @return Teamのリスト
+     */
+    public List<TeamEntity> loadByIds(List<String> teamIds, TeamFields fields, boolean withUsers, int usersLimit) {
+        List<String> uniqueIds = new ArrayList<>(new LinkedHashSet<>(teamIds));
+
+        Map<String, TeamEntity> found = new HashMap<>(uniqueIds.size() * 2);
+        projectionQueryExecutor.findTeams(Specification.where(TeamSpecifications.whereTeamIds(uniqueIds)),
+                        Sort.unsorted(), 0, ProjectionQueryExecutor.UNLIMITED, fields)
+                .forEach(team -> found.put(team.teamId(), team.toEntity()));
+
+        List<TeamEntity> teams = new ArrayList<>(found.size());
+        for (String teamId : uniqueIds) {
+            TeamEntity team = found.get(teamId);
+            if (team != null) {
+                teams.add(team);
+            }
+        }
+
+        if (withUsers) {
+            attachUsers(teams, usersLimit);
+        }
+        return teams;
+    }
+
+    /**
+     * 取得済みのTeamにメンバーを設定する(2段階目).
+     *
+     * @param teams メンバーを設定するTeamのリスト
+     */
+    public void attachUsers(List<TeamEntity> teams) {
+        attachUsers(teams, UNLIMITED_USERS);
+    }
+
+    /**
+     * 取得済みのTeamに, チームごとに追加日時順の先頭usersLimit件までのメンバーを設定する(2段階目).
+     * usersTotalCountとusersTruncatedは, 上限がある場合はメンバーと同じ問い合わせで読むteams.member_countから設定する.
+     *
+     * @param teams メンバーを設定するTeamのリスト
+     * @param usersLimit チームごとのメンバー数の上限. UNLIMITED_USERSの場合は全件
+     */
+    public void attachUsers(List<TeamEntity> teams, int usersLimit) {
+        if (teams.isEmpty()) {
+            return;
+        }
+
+        Map<String, Integer> slots = new HashMap<>(teams.size() * 2);
+        for (int i = 0; i < teams.size(); i++) {
+            slots.put(teams.get(i).getTeamId(), i);
+        }
+
+        List<TeamUserView> members;
+        int[] memberCounts = null;
+        if (usersLimit > 0) {
+            List<TeamUserRepository.TeamMemberRow> rows =
+                    teamUserRepository.findTopMembersByTeamIds(slots.keySet().toArray(String[]::new), usersLimit);
+            memberCounts = new int[teams.size()];
+            members = new ArrayList<>(rows.size());
+            for (TeamUserRepository.TeamMemberRow row : rows) {
+                memberCounts[slots.get(row.getTeamId())] = row.getMemberCount();
+                if (row.getTeamUserId() != null) {
+                    members.add(new TeamUserView(row.getTeamUserId(), row.getTeamId(), row.getUserId(), null, null));
+                }
+            }
+        } else {
+            members = projectionQueryExecutor.findTeamUsers(
+                    Specification.where(TeamUserSpecifications.whereTeamIds(slots.keySet())), MEMBER_SORT,
+                    0, ProjectionQueryExecutor.UNLIMITED, null);
+        }
+
+        // チームごとの件数からオフセットを求め, メンバーの添字をチーム順に並べ替える(安定なcounting sort)
+        int[] offsets = new int[teams.size() + 1];
+        int[] slotOfMember = new int[members.size()];
+        for (int j = 0; j < members.size(); j++) {
+            int slot = slots.get(members.get(j).teamId());
+            slotOfMember[j] = slot;
+            offsets[slot + 1]++;
+        }
+        for (int i = 0; i < teams.size(); i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        int[] next = offsets.clone();
+        int[] ordered = new int[members.size()];
+        for (int j = 0; j < members.size(); j++) {
+            ordered[next[slotOfMember[j]]++] = j;
+        }
+
+        for (int i = 0; i < teams.size(); i++) {
+            List<TeamUserEntity> teamUsers = new ArrayList<>(offsets[i + 1] - offsets[i]);
+            for (int k = offsets[i]; k < offsets[i + 1]; k++) {
+                teamUsers.add(members.get(ordered[k]).toEntity());
+            }
+            TeamEntity team = teams.get(i);
+            team.setTeamUsers(teamUsers);
+            // 上限がある場合の総数は非正規化したteams.member_countを使い, メンバーを数え直さない
+            long total = memberCounts != null ? Math.max(memberCounts[i], teamUsers.size()) : teamUsers.size();
+            team.setUsersTotalCount(total);
+            team.setUsersTruncated(total > teamUsers.size());
+        }
+    }
+}
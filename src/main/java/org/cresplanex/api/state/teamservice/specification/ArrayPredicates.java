@@ -0,0 +1,25 @@
+package org.cresplanex.api.state.teamservice.specification;
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import org.cresplanex.api.state.teamservice.config.ArrayFunctionContributor;
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
+
+import java.util.Collection;
+
+/**
+ * 可変長のIDリストを1つのvarchar[]パラメータとしてバインドする述語.
+ * column = ANY(?)を生成するため, リストの長さごとにクエリプランが増えることがない.
+ */
+public class ArrayPredicates {
+
+    public static Predicate anyOf(CriteriaBuilder criteriaBuilder, Expression<String> expression, Collection<String> values) {
+        String[] array = values.toArray(String[]::new);
+        return criteriaBuilder.isTrue(criteriaBuilder.function(
+                ArrayFunctionContributor.EQ_ANY,
+                Boolean.class,
+                expression,
+                ((HibernateCriteriaBuilder) criteriaBuilder).value(array)));
+    }
+}
@@ -0,0 +1,79 @@
+package org.cresplanex.api.state.teamservice.specification;
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Fetch;
+import jakarta.persistence.criteria.From;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Path;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 関連先の属性を1つのJOINで参照する.
+ * root.get("team").get("name")のような暗黙のJOINは, 明示的なJOINやソートのJOINとは別の結合として出力されるため,
+ * 射影の列, 検索条件(カーソル), ソートが同じ関連を参照する場合はここで既存のJOINを引き当てて使う.
+ */
+public class Joins {
+
+    /**
+     * fromに同じ関連のJOIN(fetchを含む)があればそれを返し, なければINNER JOINを追加する.
+     *
+     * @param from 結合元
+     * @param attribute 関連の属性名
+     * @return JOIN
+     */
+    @SuppressWarnings("unchecked")
+    public static <X, Y> Join<X, Y> getOrCreate(From<?, X> from, String attribute) {
+        for (Join<X, ?> join : from.getJoins()) {
+            if (join.getAttribute().getName().equals(attribute)) {
+                return (Join<X, Y>) join;
+            }
+        }
+        for (Fetch<X, ?> fetch : from.getFetches()) {
+            if (fetch.getAttribute().getName().equals(attribute) && fetch instanceof Join<?, ?> join) {
+                return (Join<X, Y>) join;
+            }
+        }
+        return from.join(attribute);
+    }
+
+    /**
+     * "team.name"のようなドット区切りの属性を, 途中の関連を既存のJOINで辿って解決する.
+     *
+     * @param from 結合元
+     * @param property 属性のパス
+     * @return 属性
+     */
+    public static <T> Path<T> path(From<?, ?> from, String property) {
+        String[] segments = property.split("\\.");
+        From<?, ?> current = from;
+        for (int i = 0; i < segments.length - 1; i++) {
+            current = getOrCreate(current, segments[i]);
+        }
+        return current.get(segments[segments.length - 1]);
+    }
+
+    /**
+     * SortをOrderへ変換する. QueryUtils.toOrdersと異なり, 関連先の属性は既存のJOINを再利用する.
+     *
+     * @param sort ソート
+     * @param from 結合元
+     * @param criteriaBuilder CriteriaBuilder
+     * @return Orderのリスト
+     */
+    public static List<Order> toOrders(Sort sort, From<?, ?> from, CriteriaBuilder criteriaBuilder) {
+        List<Order> orders = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            Expression<?> expression = path(from, order.getProperty());
+            if (order.isIgnoreCase()) {
+                expression = criteriaBuilder.lower(expression.as(String.class));
+            }
+            orders.add(order.isAscending() ? criteriaBuilder.asc(expression) : criteriaBuilder.desc(expression));
+        }
+        return orders;
+    }
+}
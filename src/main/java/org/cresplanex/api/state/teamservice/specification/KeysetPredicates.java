@@ -0,0 +1,66 @@
+package org.cresplanex.api.state.teamservice.specification;
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * キーセットページング用の述語を組み立てる.
+ * (k1, k2, ..., kn)の並びに対し, カーソル位置より後ろにある行だけを選ぶ
+ * k1 > v1 OR (k1 = v1 AND k2 > v2) OR ... の形を生成する(降順キーは不等号を反転).
+ *
+ * <p>ORの連鎖だけではPostgreSQLがインデックスの範囲条件(Index Cond)として使えず, 深いページでも
+ * インデックスを先頭から読むことになる. そのため先頭キーの冗長な範囲条件 k1 >= v1 をANDで加え,
+ * 先頭キーのインデックスをカーソル位置から読み始められるようにする.
+ * 昇順と降順のキーが混在する並び(NAME_ASCなど)があるため, 行値比較((k1, k2) > (v1, v2))は使わない.</p>
+ */
+public class KeysetPredicates {
+
+    public record Key<T extends Comparable<? super T>>(Expression<? extends T> expression, T value, boolean ascending) {
+
+        public static <T extends Comparable<? super T>> Key<T> asc(Expression<? extends T> expression, T value) {
+            return new Key<>(expression, value, true);
+        }
+
+        public static <T extends Comparable<? super T>> Key<T> desc(Expression<? extends T> expression, T value) {
+            return new Key<>(expression, value, false);
+        }
+    }
+
+    public static Predicate after(CriteriaBuilder criteriaBuilder, List<Key<?>> keys) {
+        List<Predicate> branches = new ArrayList<>();
+        for (int i = 0; i < keys.size(); i++) {
+            List<Predicate> branch = new ArrayList<>();
+            for (int j = 0; j < i; j++) {
+                branch.add(equalTo(criteriaBuilder, keys.get(j)));
+            }
+            branch.add(beyond(criteriaBuilder, keys.get(i)));
+            branches.add(criteriaBuilder.and(branch.toArray(Predicate[]::new)));
+        }
+        if (keys.isEmpty()) {
+            return criteriaBuilder.or(branches.toArray(Predicate[]::new));
+        }
+        return criteriaBuilder.and(
+                notBefore(criteriaBuilder, keys.get(0)),
+                criteriaBuilder.or(branches.toArray(Predicate[]::new)));
+    }
+
+    private static <T extends Comparable<? super T>> Predicate equalTo(CriteriaBuilder criteriaBuilder, Key<T> key) {
+        return criteriaBuilder.equal(key.expression(), key.value());
+    }
+
+    private static <T extends Comparable<? super T>> Predicate notBefore(CriteriaBuilder criteriaBuilder, Key<T> key) {
+        return key.ascending()
+                ? criteriaBuilder.greaterThanOrEqualTo(key.expression(), key.value())
+                : criteriaBuilder.lessThanOrEqualTo(key.expression(), key.value());
+    }
+
+    private static <T extends Comparable<? super T>> Predicate beyond(CriteriaBuilder criteriaBuilder, Key<T> key) {
+        return key.ascending()
+                ? criteriaBuilder.greaterThan(key.expression(), key.value())
+                : criteriaBuilder.lessThan(key.expression(), key.value());
+    }
+}
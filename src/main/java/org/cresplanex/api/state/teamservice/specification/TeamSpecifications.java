@@ -1,15 +1,21 @@
 package org.cresplanex.api.state.teamservice.specification;
 
-import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Path;
 import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.cresplanex.api.state.teamservice.cursor.TeamCursor;
 import org.cresplanex.api.state.teamservice.entity.TeamEntity;
+import org.cresplanex.api.state.teamservice.entity.TeamUserEntity;
+import org.cresplanex.api.state.teamservice.enums.TeamSortType;
 import org.cresplanex.api.state.teamservice.filter.team.IsDefaultFilter;
 import org.cresplanex.api.state.teamservice.filter.team.OrganizationFilter;
 import org.cresplanex.api.state.teamservice.filter.team.UsersFilter;
+import org.cresplanex.api.state.teamservice.specification.KeysetPredicates.Key;
 import org.hibernate.type.descriptor.java.BooleanJavaType;
-import org.hibernate.type.descriptor.java.StringJavaType;
 import org.springframework.data.jpa.domain.Specification;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -17,32 +23,15 @@ public class TeamSpecifications {
 
     public static Specification<TeamEntity> whereTeamIds(Iterable<String> teamIds) {
         List<String> teamIdList = new ArrayList<>();
-        teamIds.forEach(teamId -> {
-            teamIdList.add(new StringJavaType().wrap(teamId, null));
-        });
+        teamIds.forEach(teamIdList::add);
 
         return (root, query, criteriaBuilder) -> {
             Predicate predicate = criteriaBuilder.conjunction();
-            predicate = criteriaBuilder.and(predicate, root.get("teamId").in(teamIdList));
+            predicate = criteriaBuilder.and(predicate, ArrayPredicates.anyOf(criteriaBuilder, root.<String>get("teamId"), teamIdList));
             return predicate;
         };
     }
 
-    public static Specification<TeamEntity> fetchTeamUsers() {
-        return (root, query, criteriaBuilder) -> {
-            if (query == null) {
-                return null;
-            }
-            if (Long.class != query.getResultType()) {
-                root.fetch("teamUsers", JoinType.LEFT);
-                query.distinct(true);
-                return null;
-            }
-
-            return null;
-        };
-    }
-
     public static Specification<TeamEntity> withIsDefaultFilter(IsDefaultFilter isDefaultFilter) {
         return (root, query, criteriaBuilder) -> {
             Predicate predicate = criteriaBuilder.conjunction();
@@ -56,15 +45,13 @@ public class TeamSpecifications {
     public static Specification<TeamEntity> withOrganizationFilter(OrganizationFilter organizationFilter) {
         List<String> organizationList = new ArrayList<>();
         if (organizationFilter != null && organizationFilter.isValid()) {
-            organizationFilter.getOrganizationIds().forEach(organization -> {
-                organizationList.add(new StringJavaType().wrap(organization, null));
-            });
+            organizationList.addAll(organizationFilter.getOrganizationIds());
         }
 
         return (root, query, criteriaBuilder) -> {
             Predicate predicate = criteriaBuilder.conjunction();
             if (organizationFilter != null && organizationFilter.isValid()) {
-                predicate = criteriaBuilder.and(predicate, root.get("organizationId").in(organizationList));
+                predicate = criteriaBuilder.and(predicate, ArrayPredicates.anyOf(criteriaBuilder, root.<String>get("organizationId"), organizationList));
             }
             return predicate;
         };
@@ -73,25 +60,75 @@ public class TeamSpecifications {
     public static Specification<TeamEntity> withBelongUsersFilter(UsersFilter usersFilter) {
         List<String> userList = new ArrayList<>();
         if (usersFilter != null && usersFilter.isValid()) {
-            usersFilter.getUserIds().forEach(user -> {
-                userList.add(new StringJavaType().wrap(user, null));
-            });
+            usersFilter.getUserIds().stream().distinct().forEach(userList::add);
         }
 
         return (root, query, criteriaBuilder) -> {
             Predicate predicate = criteriaBuilder.conjunction();
             if (usersFilter != null && usersFilter.isValid()) {
                 if (!usersFilter.isAny()) {
-                    // all
-                    for (String userId : userList) {
-                        predicate = criteriaBuilder.and(predicate, criteriaBuilder.isMember(userId, root.get("teamUsers")));
+                    // all: 全ユーザーが所属するチームを1回の準結合で求める
+                    // team_id IN (SELECT team_id FROM team_user WHERE user_id IN (...)
+                    //             GROUP BY team_id HAVING count(DISTINCT user_id) = N)
+                    if (!userList.isEmpty()) {
+                        Subquery<String> members = query.subquery(String.class);
+                        Root<TeamUserEntity> teamUser = members.from(TeamUserEntity.class);
+                        members.select(teamUser.get("teamId"))
+                                .where(ArrayPredicates.anyOf(criteriaBuilder, teamUser.<String>get("userId"), userList))
+                                .groupBy(teamUser.get("teamId"))
+                                .having(criteriaBuilder.equal(
+                                        criteriaBuilder.countDistinct(teamUser.get("userId")), (long) userList.size()));
+                        predicate = criteriaBuilder.and(predicate, root.get("teamId").in(members));
                     }
                 } else {
-                    // any
-                    predicate = criteriaBuilder.and(predicate, root.get("teamUsers").get("userId").in(userList));
+                    // any: JOINで行を重複させず, EXISTSで判定する
+                    Subquery<String> members = query.subquery(String.class);
+                    Root<TeamUserEntity> teamUser = members.from(TeamUserEntity.class);
+                    members.select(teamUser.get("teamId"))
+                            .where(
+                                    criteriaBuilder.equal(teamUser.get("teamId"), root.get("teamId")),
+                                    ArrayPredicates.anyOf(criteriaBuilder, teamUser.<String>get("userId"), userList));
+                    predicate = criteriaBuilder.and(predicate, criteriaBuilder.exists(members));
                 }
             }
             return predicate;
         };
     }
+
+    public static Specification<TeamEntity> afterCursor(TeamSortType sortType, TeamCursor cursor) {
+        return (root, query, criteriaBuilder) -> {
+            if (cursor == null) {
+                return null;
+            }
+            Path<String> name = root.get("name");
+            Path<LocalDateTime> createdAt = root.get("createdAt");
+            Path<String> teamId = root.get("teamId");
+            Path<Integer> memberCount = root.get("memberCount");
+
+            return KeysetPredicates.after(criteriaBuilder, switch (sortType) {
+                case CREATED_AT_ASC -> List.of(
+                        Key.asc(createdAt, cursor.createdAt()),
+                        Key.asc(teamId, cursor.teamId()));
+                case CREATED_AT_DESC -> List.of(
+                        Key.desc(createdAt, cursor.createdAt()),
+                        Key.desc(teamId, cursor.teamId()));
+                case NAME_ASC -> List.of(
+                        Key.asc(name, cursor.sortKey()),
+                        Key.desc(createdAt, cursor.createdAt()),
+                        Key.desc(teamId, cursor.teamId()));
+                case NAME_DESC -> List.of(
+                        Key.desc(name, cursor.sortKey()),
+                        Key.desc(createdAt, cursor.createdAt()),
+                        Key.desc(teamId, cursor.teamId()));
+                case MEMBER_COUNT_ASC -> List.of(
+                        Key.asc(memberCount, cursor.sortKeyAsInt()),
+                        Key.asc(createdAt, cursor.createdAt()),
+                        Key.asc(teamId, cursor.teamId()));
+                case MEMBER_COUNT_DESC -> List.of(
+                        Key.desc(memberCount, cursor.sortKeyAsInt()),
+                        Key.desc(createdAt, cursor.createdAt()),
+                        Key.desc(teamId, cursor.teamId()));
+            });
+        };
+    }
 }
@@ -1,16 +1,21 @@
 package org.cresplanex.api.state.teamservice.specification;
 
+import jakarta.persistence.criteria.Join;
 import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Path;
 import jakarta.persistence.criteria.Predicate;
-import lombok.extern.slf4j.Slf4j;
+import org.cresplanex.api.state.teamservice.cursor.TeamUserCursor;
+import org.cresplanex.api.state.teamservice.entity.TeamEntity;
 import org.cresplanex.api.state.teamservice.entity.TeamUserEntity;
-import org.hibernate.type.descriptor.java.StringJavaType;
+import org.cresplanex.api.state.teamservice.enums.TeamOnUserSortType;
+import org.cresplanex.api.state.teamservice.enums.UserOnTeamSortType;
+import org.cresplanex.api.state.teamservice.specification.KeysetPredicates.Key;
 import org.springframework.data.jpa.domain.Specification;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
-@Slf4j
 public class TeamUserSpecifications {
 
     public static Specification<TeamUserEntity> fetchTeam() {
@@ -32,7 +37,7 @@ public class TeamUserSpecifications {
         return (root, query, criteriaBuilder) -> {
             Predicate predicate = criteriaBuilder.conjunction();
             if (teamId != null) {
-                predicate = criteriaBuilder.and(predicate, criteriaBuilder.equal(root.get("teamId"), new StringJavaType().wrap(teamId, null)));
+                predicate = criteriaBuilder.and(predicate, criteriaBuilder.equal(root.get("teamId"), teamId));
             }
             return predicate;
         };
@@ -40,13 +45,11 @@ public class TeamUserSpecifications {
 
     public static Specification<TeamUserEntity> whereTeamIds(Iterable<String> teamIds) {
         List<String> teamIdList = new ArrayList<>();
-        teamIds.forEach(teamId -> {
-            teamIdList.add(new StringJavaType().wrap(teamId, null));
-        });
+        teamIds.forEach(teamIdList::add);
 
         return (root, query, criteriaBuilder) -> {
             Predicate predicate = criteriaBuilder.conjunction();
-            predicate = criteriaBuilder.and(predicate, root.get("teamId").in(teamIdList));
+            predicate = criteriaBuilder.and(predicate, ArrayPredicates.anyOf(criteriaBuilder, root.<String>get("teamId"), teamIdList));
             return predicate;
         };
     }
@@ -55,7 +58,7 @@ public class TeamUserSpecifications {
         return (root, query, criteriaBuilder) -> {
             Predicate predicate = criteriaBuilder.conjunction();
             if (userId != null) {
-                predicate = criteriaBuilder.and(predicate, criteriaBuilder.equal(root.get("userId"), new StringJavaType().wrap(userId, null)));
+                predicate = criteriaBuilder.and(predicate, criteriaBuilder.equal(root.get("userId"), userId));
             }
             return predicate;
         };
@@ -63,14 +66,70 @@ public class TeamUserSpecifications {
 
     public static Specification<TeamUserEntity> whereUserIds(Iterable<String> userIds) {
         List<String> userIdList = new ArrayList<>();
-        userIds.forEach(userId -> {
-            userIdList.add(new StringJavaType().wrap(userId, null));
-        });
+        userIds.forEach(userIdList::add);
 
         return (root, query, criteriaBuilder) -> {
             Predicate predicate = criteriaBuilder.conjunction();
-            predicate = criteriaBuilder.and(predicate, root.get("userId").in(userIdList));
+            predicate = criteriaBuilder.and(predicate, ArrayPredicates.anyOf(criteriaBuilder, root.<String>get("userId"), userIdList));
             return predicate;
         };
     }
+
+    public static Specification<TeamUserEntity> afterCursor(UserOnTeamSortType sortType, TeamUserCursor cursor) {
+        return (root, query, criteriaBuilder) -> {
+            if (cursor == null) {
+                return null;
+            }
+            Path<LocalDateTime> createdAt = root.get("createdAt");
+            Path<String> teamUserId = root.get("teamUserId");
+
+            return KeysetPredicates.after(criteriaBuilder, switch (sortType) {
+                case ADD_AT_ASC -> List.of(
+                        Key.asc(createdAt, cursor.createdAt()),
+                        Key.asc(teamUserId, cursor.teamUserId()));
+                case ADD_AT_DESC -> List.of(
+                        Key.desc(createdAt, cursor.createdAt()),
+                        Key.desc(teamUserId, cursor.teamUserId()));
+            });
+        };
+    }
+
+    public static Specification<TeamUserEntity> afterCursor(TeamOnUserSortType sortType, TeamUserCursor cursor) {
+        return (root, query, criteriaBuilder) -> {
+            if (cursor == null) {
+                return null;
+            }
+            // 射影やソートと同じJOINを参照する(暗黙のJOINにすると別の結合が増える)
+            Join<TeamUserEntity, TeamEntity> team = Joins.getOrCreate(root, "team");
+            Path<String> teamName = team.get("name");
+            Path<LocalDateTime> teamCreatedAt = team.get("createdAt");
+            Path<LocalDateTime> createdAt = root.get("createdAt");
+            Path<String> teamUserId = root.get("teamUserId");
+
+            return KeysetPredicates.after(criteriaBuilder, switch (sortType) {
+                case ADD_AT_ASC -> List.of(
+                        Key.asc(createdAt, cursor.createdAt()),
+                        Key.asc(teamUserId, cursor.teamUserId()));
+                case ADD_AT_DESC -> List.of(
+                        Key.desc(createdAt, cursor.createdAt()),
+                        Key.desc(teamUserId, cursor.teamUserId()));
+                case NAME_ASC -> List.of(
+                        Key.asc(teamName, cursor.sortKey()),
+                        Key.desc(createdAt, cursor.createdAt()),
+                        Key.desc(teamUserId, cursor.teamUserId()));
+                case NAME_DESC -> List.of(
+                        Key.desc(teamName, cursor.sortKey()),
+                        Key.desc(createdAt, cursor.createdAt()),
+                        Key.desc(teamUserId, cursor.teamUserId()));
+                case CREATED_AT_ASC -> List.of(
+                        Key.asc(teamCreatedAt, cursor.sortKeyAsTimestamp()),
+                        Key.desc(createdAt, cursor.createdAt()),
+                        Key.desc(teamUserId, cursor.teamUserId()));
+                case CREATED_AT_DESC -> List.of(
+                        Key.desc(teamCreatedAt, cursor.sortKeyAsTimestamp()),
+                        Key.desc(createdAt, cursor.createdAt()),
+                        Key.desc(teamUserId, cursor.teamUserId()));
+            });
+        };
+    }
 }
@@ -0,0 +1,17 @@
+-- キーセットページング(createdAt, teamId / name, createdAt, teamId)用のインデックス
+-- 書き込みを止めないようCONCURRENTLYで作成するため, トランザクション外で実行する(.confのexecuteInTransaction=false)
+-- 途中で失敗した場合はINVALIDのインデックスが残るため, 削除してから再実行すること
+CREATE INDEX CONCURRENTLY teams_created_at_team_id_index ON teams (created_at, team_id);
+
+-- NAME_DESC (name DESC, created_at DESC, team_id DESC) は後方スキャンで利用
+CREATE INDEX CONCURRENTLY teams_name_created_at_team_id_index ON teams (name, created_at, team_id);
+
+-- NAME_ASC (name ASC, created_at DESC, team_id DESC)
+CREATE INDEX CONCURRENTLY teams_name_created_at_desc_team_id_desc_index ON teams (name, created_at DESC, team_id DESC);
+
+CREATE INDEX CONCURRENTLY teams_organization_id_created_at_team_id_index ON teams (organization_id, created_at, team_id);
+
+-- 組織で絞り込んだ名前順. NAME_DESCは後方スキャンで利用
+CREATE INDEX CONCURRENTLY teams_organization_id_name_created_at_team_id_index ON teams (organization_id, name, created_at, team_id);
+
+CREATE INDEX CONCURRENTLY teams_organization_id_name_created_at_desc_team_id_desc_index ON teams (organization_id, name, created_at DESC, team_id DESC);
@@ -0,0 +1,6 @@
+-- getUsersOnTeam / getTeamsOnUser のキーセットページング用インデックス
+-- 書き込みを止めないようCONCURRENTLYで作成するため, トランザクション外で実行する(.confのexecuteInTransaction=false)
+-- 途中で失敗した場合はINVALIDのインデックスが残るため, 削除してから再実行すること
+-- 先頭列で代替できる単一列のインデックスは, これらが有効になった後のマイグレーションで削除する
+CREATE INDEX CONCURRENTLY team_user_team_id_created_at_team_user_id_index ON team_user (team_id, created_at, team_user_id);
+CREATE INDEX CONCURRENTLY team_user_user_id_created_at_team_user_id_index ON team_user (user_id, created_at, team_user_id);
@@ -0,0 +1,5 @@
+-- メンバーシップインデックスのスナップショットから, ウォーターマーク以降の差分を求めるためのインデックス
+-- 書き込みを止めないようCONCURRENTLYで作成するため, トランザクション外で実行する(.confのexecuteInTransaction=false)
+-- 途中で失敗した場合はINVALIDのインデックスが残るため, 削除してから再実行すること
+CREATE INDEX CONCURRENTLY teams_updated_at_index ON teams (updated_at);
+CREATE INDEX CONCURRENTLY team_user_created_at_index ON team_user (created_at);
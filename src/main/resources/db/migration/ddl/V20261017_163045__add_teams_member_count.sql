@@ -0,0 +1,30 @@
+-- チームのメンバー数(team_userの件数を書き込み時に同じトランザクションで更新する)
+-- 既定値つきの列追加はテーブルを書き換えないため, ロックは一瞬で済む
+-- 既存の行の集計とインデックスの作成は長くかかるため, トランザクション外で実行する(.confのexecuteInTransaction=false)
+ALTER TABLE teams ADD COLUMN member_count INTEGER NOT NULL DEFAULT 0;
+
+-- team_idの順に1000チームずつ集計してコミットし, teamsの行ロックを長く保持しない
+DO $$
+DECLARE
+    last_team_id varchar := '';
+    batch_last_team_id varchar;
+BEGIN
+    LOOP
+        SELECT max(b.team_id) INTO batch_last_team_id
+        FROM (SELECT team_id FROM teams WHERE team_id > last_team_id ORDER BY team_id LIMIT 1000) b;
+        EXIT WHEN batch_last_team_id IS NULL;
+
+        UPDATE teams t SET member_count = (SELECT count(*) FROM team_user tu WHERE tu.team_id = t.team_id)
+        WHERE t.team_id > last_team_id AND t.team_id <= batch_last_team_id;
+
+        last_team_id := batch_last_team_id;
+        COMMIT;
+    END LOOP;
+END
+$$;
+
+-- 書き込みを止めないようCONCURRENTLYで作成する. 途中で失敗した場合はINVALIDのインデックスが残るため, 削除してから再実行すること
+-- MEMBER_COUNT_ASC (member_count, created_at, team_id), MEMBER_COUNT_DESCは後方スキャンで利用
+CREATE INDEX CONCURRENTLY teams_member_count_created_at_team_id_index ON teams (member_count, created_at, team_id);
+
+CREATE INDEX CONCURRENTLY teams_organization_id_member_count_created_at_team_id_index ON teams (organization_id, member_count, created_at, team_id);
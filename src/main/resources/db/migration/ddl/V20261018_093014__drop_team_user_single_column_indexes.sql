@@ -0,0 +1,4 @@
+-- (team_id, created_at, team_user_id) / (user_id, created_at, team_user_id) が先頭列で代替するため削除
+-- 読み込み中の問い合わせを止めないようCONCURRENTLYで削除するため, トランザクション外で実行する(.confのexecuteInTransaction=false)
+DROP INDEX CONCURRENTLY IF EXISTS team_user_team_id_index;
+DROP INDEX CONCURRENTLY IF EXISTS team_user_user_id_index;
@@ -0,0 +1,21 @@
+package org.cresplanex.api.state.teamservice;
+
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Bean;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+/**
+ * リポジトリのテスト用のPostgreSQL. スキーマはFlywayのマイグレーションで作成する.
+ * EXPLAIN (GENERIC_PLAN)を使うため16以上とする.
+ */
+@TestConfiguration(proxyBeanMethods = false)
+public class PostgresContainerConfiguration {
+
+    @Bean
+    @ServiceConnection
+    PostgreSQLContainer<?> postgresContainer() {
+        return new PostgreSQLContainer<>(DockerImageName.parse("postgres:16-alpine"));
+    }
+}
@@ -0,0 +1,48 @@
+package org.cresplanex.api.state.teamservice;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Hibernateが実行するSQLを記録する. hibernate.session_factory.statement_inspectorに指定して使う.
+ */
+public class SqlCapture implements StatementInspector {
+
+    private static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+    @Override
+    public String inspect(String sql) {
+        STATEMENTS.add(sql);
+        return sql;
+    }
+
+    public static void clear() {
+        STATEMENTS.clear();
+    }
+
+    public static List<String> statements() {
+        return List.copyOf(STATEMENTS);
+    }
+
+    public static String last() {
+        return STATEMENTS.getLast();
+    }
+
+    /**
+     * JDBCの?を$1, $2, ...へ置き換え, EXPLAIN (GENERIC_PLAN)で値なしに実行計画を得られるようにする.
+     */
+    public static String toGenericPlanQuery(String sql) {
+        StringBuilder builder = new StringBuilder(sql.length() + 16);
+        int index = 0;
+        for (char c : sql.toCharArray()) {
+            if (c == '?') {
+                builder.append('$').append(++index);
+            } else {
+                builder.append(c);
+            }
+        }
+        return "EXPLAIN (GENERIC_PLAN) " + builder;
+    }
+}
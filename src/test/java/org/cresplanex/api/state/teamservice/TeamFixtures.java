@@ -0,0 +1,48 @@
+package org.cresplanex.api.state.teamservice;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * テストデータをSQLで直接作成する(監査情報の設定やIDの採番を経由しないため).
+ */
+public final class TeamFixtures {
+
+    public static final String CREATED_BY = "TEST";
+
+    private TeamFixtures() {
+    }
+
+    public static void insertTeam(
+            JdbcTemplate jdbcTemplate, String teamId, String organizationId, String name,
+            LocalDateTime createdAt, boolean isDefault) {
+        jdbcTemplate.update("""
+                        INSERT INTO teams (team_id, organization_id, name, is_default, created_at, created_by)
+                        VALUES (?, ?, ?, ?, ?, ?)
+                        """,
+                teamId, organizationId, name, isDefault, Timestamp.valueOf(createdAt), CREATED_BY);
+    }
+
+    /**
+     * TeamUserを追加し, teams.member_countも合わせて加算する.
+     */
+    public static void insertTeamUser(
+            JdbcTemplate jdbcTemplate, String teamUserId, String teamId, String userId, LocalDateTime createdAt) {
+        jdbcTemplate.update("""
+                        INSERT INTO team_user (team_user_id, team_id, user_id, created_at, created_by)
+                        VALUES (?, ?, ?, ?, ?)
+                        """,
+                teamUserId, teamId, userId, Timestamp.valueOf(createdAt), CREATED_BY);
+        jdbcTemplate.update("UPDATE teams SET member_count = member_count + 1 WHERE team_id = ?", teamId);
+    }
+
+    public static int memberCount(JdbcTemplate jdbcTemplate, String teamId) {
+        return jdbcTemplate.queryForObject("SELECT member_count FROM teams WHERE team_id = ?", Integer.class, teamId);
+    }
+
+    public static int teamUserRows(JdbcTemplate jdbcTemplate, String teamId) {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM team_user WHERE team_id = ?", Integer.class, teamId);
+    }
+}
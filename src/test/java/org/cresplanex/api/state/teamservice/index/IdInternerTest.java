@@ -0,0 +1,106 @@
+package org.cresplanex.api.state.teamservice.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IdInternerTest {
+
+    @Test
+    void assignsSequentialOrdinalsAndReturnsTheSameOrdinalOnReintern() {
+        IdInterner interner = new IdInterner(16);
+
+        assertThat(interner.intern("a")).isZero();
+        assertThat(interner.intern("b")).isEqualTo(1);
+        assertThat(interner.intern("a")).isZero();
+        assertThat(interner.size()).isEqualTo(2);
+        assertThat(interner.ordinalOf("c")).isEqualTo(-1);
+        assertThat(interner.idOf(1)).isEqualTo("b");
+    }
+
+    @Test
+    void ordinalsSurviveRehash() {
+        // 初期容量16から何度も配列を作り直す件数を登録する
+        IdInterner interner = new IdInterner(16);
+        int count = 50_000;
+        for (int i = 0; i < count; i++) {
+            assertThat(interner.intern("id-" + i)).isEqualTo(i);
+        }
+
+        assertThat(interner.size()).isEqualTo(count);
+        for (int i = 0; i < count; i++) {
+            assertThat(interner.ordinalOf("id-" + i)).isEqualTo(i);
+            assertThat(interner.idOf(i)).isEqualTo("id-" + i);
+            assertThat(interner.intern("id-" + i)).isEqualTo(i);
+        }
+        assertThat(interner.size()).isEqualTo(count);
+        assertThat(interner.ids()).hasSize(count).startsWith("id-0", "id-1").endsWith("id-" + (count - 1));
+    }
+
+    @Test
+    void collidingHashesKeepDistinctOrdinals() {
+        // "Aa"と"BB"はhashCodeが等しい
+        IdInterner interner = new IdInterner(16);
+        List<String> ids = List.of("Aa", "BB", "AaAa", "AaBB", "BBAa", "BBBB");
+        for (String id : ids) {
+            interner.intern(id);
+        }
+        for (int i = 0; i < ids.size(); i++) {
+            assertThat(interner.ordinalOf(ids.get(i))).isEqualTo(i);
+        }
+    }
+
+    @Test
+    void idOfRejectsUnassignedOrdinals() {
+        IdInterner interner = new IdInterner(16);
+        interner.intern("a");
+
+        assertThatThrownBy(() -> interner.idOf(1)).isInstanceOf(IndexOutOfBoundsException.class);
+    }
+
+    @Test
+    void readersNeverSeeAnOrdinalBeyondThePublishedSize() throws InterruptedException {
+        IdInterner interner = new IdInterner(16);
+        int count = 200_000;
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<String> failure = new AtomicReference<>();
+
+        List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < 3; r++) {
+            readers.add(Thread.ofPlatform().start(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (!done.get() && failure.get() == null) {
+                    int i = random.nextInt(count);
+                    int ordinal = interner.ordinalOf("id-" + i);
+                    if (ordinal == -1) {
+                        continue;
+                    }
+                    // 見つかった場合は登録順の序数で, 読み込んだ時点のsize以内であること
+                    if (ordinal != i || ordinal >= interner.size() || !("id-" + i).equals(interner.idOf(ordinal))) {
+                        failure.compareAndSet(null, "id-" + i + " -> " + ordinal);
+                    }
+                }
+            }));
+        }
+
+        for (int i = 0; i < count; i++) {
+            interner.intern("id-" + i);
+        }
+        done.set(true);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertThat(failure.get()).isNull();
+        for (int i = 0; i < count; i++) {
+            assertThat(interner.ordinalOf("id-" + i)).isEqualTo(i);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package org.cresplanex.api.state.teamservice.index;
+
+import org.cresplanex.api.state.common.enums.PaginationType;
+import org.cresplanex.api.state.teamservice.PostgresContainerConfiguration;
+import org.cresplanex.api.state.teamservice.TeamFixtures;
+import org.cresplanex.api.state.teamservice.config.MembershipIndexProperties;
+import org.cresplanex.api.state.teamservice.cursor.ListEntityWithCursor;
+import org.cresplanex.api.state.teamservice.cursor.TeamUserCursor;
+import org.cresplanex.api.state.teamservice.entity.TeamUserEntity;
+import org.cresplanex.api.state.teamservice.enums.TeamOnUserSortType;
+import org.cresplanex.api.state.teamservice.repository.ChunkedQueryExecutor;
+import org.cresplanex.api.state.teamservice.repository.ProjectionQueryExecutor;
+import org.cresplanex.api.state.teamservice.repository.projection.TeamFields;
+import org.cresplanex.api.state.teamservice.repository.projection.TeamUserView;
+import org.cresplanex.api.state.teamservice.service.MembershipIndexLoader;
+import org.cresplanex.api.state.teamservice.specification.TeamUserSpecifications;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * getTeamsOnUserのカーソルを, インデックスから返すノードとDBから返すノードの間で受け渡した場合のページング.
+ * インデックスは別スレッドで構築され別の接続で読み込むため, テストのトランザクションは使わず後始末する.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({
+        PostgresContainerConfiguration.class,
+        ProjectionQueryExecutor.class,
+        ChunkedQueryExecutor.class,
+        MembershipIndexLoader.class,
+        MembershipIndex.class,
+        MembershipIndexPagingTest.Config.class
+})
+class MembershipIndexPagingTest {
+
+    private static final String USER_ID = "user-1";
+    private static final LocalDateTime BASE = LocalDateTime.of(2026, 1, 1, 0, 0);
+    // 大文字と小文字が混じる名前は, 照合順序によって並びが変わる
+    private static final List<String> NAMES = List.of("alpha", "Bravo", "charlie", "Delta", "echo", "Foxtrot", "golf");
+    private static final int PAGE_SIZE = 2;
+
+    @TestConfiguration(proxyBeanMethods = false)
+    static class Config {
+
+        @Bean
+        MembershipIndexProperties membershipIndexProperties() {
+            MembershipIndexProperties properties = new MembershipIndexProperties();
+            properties.setEnabled(true);
+            properties.setSnapshotPath("");
+            return properties;
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ProjectionQueryExecutor projectionQueryExecutor;
+
+    @Autowired
+    private MembershipIndex membershipIndex;
+
+    @BeforeEach
+    void setUp() throws InterruptedException {
+        for (int i = 0; i < NAMES.size(); i++) {
+            String teamId = "team-%02d".formatted(i);
+            // チームの作成日時とメンバーの追加日時は2件ずつ同値にし, 境界が同値の行の途中に来るようにする
+            TeamFixtures.insertTeam(jdbcTemplate, teamId, "org-1", NAMES.get(i), BASE.plusSeconds(i / 2), false);
+            TeamFixtures.insertTeamUser(jdbcTemplate, "tu-%02d".formatted(i), teamId, USER_ID, BASE.plusMinutes(i / 2));
+        }
+        membershipIndex.bootstrap();
+        long deadline = System.nanoTime() + 30_000_000_000L;
+        while (!membershipIndex.isReady() && !membershipIndex.isFailed() && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(membershipIndex.isReady()).isTrue();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM team_user");
+        jdbcTemplate.update("DELETE FROM teams");
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = TeamOnUserSortType.class, names = {"NAME_ASC", "NAME_DESC"})
+    void nameOrdersAreAlwaysPagedByTheDatabase(TeamOnUserSortType sortType) {
+        // インデックスが使える状態でも, 名前順はDBの照合順序に揃えるためDBから返す
+        assertThat(membershipIndex.getTeamsOnUser(USER_ID, PaginationType.CURSOR, PAGE_SIZE, 0, null, sortType, false))
+                .isEmpty();
+
+        List<String> expected = jdbcTemplate.queryForList(
+                "SELECT name FROM teams ORDER BY name " + (sortType == TeamOnUserSortType.NAME_ASC ? "ASC" : "DESC"),
+                String.class);
+        List<String> visited = new ArrayList<>();
+        TeamUserCursor cursor = null;
+        while (true) {
+            List<TeamUserView> page = databasePage(sortType, cursor, PAGE_SIZE);
+            if (page.isEmpty()) {
+                break;
+            }
+            page.forEach(view -> visited.add(view.team().name()));
+            cursor = TeamUserCursor.of(sortType, page.getLast());
+        }
+        assertThat(visited).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    void nameCursorFromAnotherNodeIsDecodedByTheDatabase() {
+        // 名前順のカーソルはどのノードでもDBで解釈されるため, 途中のページから再開しても同じ並びになる
+        TeamOnUserSortType sortType = TeamOnUserSortType.NAME_ASC;
+        List<TeamUserView> all = databasePage(sortType, null, ProjectionQueryExecutor.UNLIMITED);
+        TeamUserCursor cursor = TeamUserCursor.of(sortType, all.get(PAGE_SIZE - 1));
+
+        assertThat(membershipIndex.getTeamsOnUser(USER_ID, PaginationType.CURSOR, PAGE_SIZE, 0, cursor, sortType, false))
+                .isEmpty();
+        assertThat(teamUserIds(databasePage(sortType, cursor, PAGE_SIZE)))
+                .containsExactlyElementsOf(teamUserIds(all.subList(PAGE_SIZE, PAGE_SIZE * 2)));
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = TeamOnUserSortType.class, names = {"ADD_AT_ASC", "ADD_AT_DESC", "CREATED_AT_ASC", "CREATED_AT_DESC"})
+    void indexCursorContinuesOnTheDatabase(TeamOnUserSortType sortType) {
+        List<String> all = teamUserIds(databasePage(sortType, null, ProjectionQueryExecutor.UNLIMITED));
+
+        // 1ページ目はインデックス, 以降はそのカーソルでDBから読む(インデックスが無効なノードと同じ)
+        ListEntityWithCursor<TeamUserEntity> first = membershipIndex
+                .getTeamsOnUser(USER_ID, PaginationType.CURSOR, PAGE_SIZE, 0, null, sortType, false)
+                .orElseThrow();
+        List<String> visited = new ArrayList<>(first.getData().stream().map(TeamUserEntity::getTeamUserId).toList());
+        TeamUserCursor cursor = TeamUserCursor.decode(sortType, first.getNextCursor());
+        while (true) {
+            List<TeamUserView> page = databasePage(sortType, cursor, PAGE_SIZE);
+            if (page.isEmpty()) {
+                break;
+            }
+            visited.addAll(teamUserIds(page));
+            cursor = TeamUserCursor.of(sortType, page.getLast());
+        }
+        assertThat(visited).containsExactlyElementsOf(all);
+
+        // 逆にDBのカーソルをインデックスで解釈しても同じ続きになる
+        TeamUserCursor fromDatabase = TeamUserCursor.of(
+                sortType, databasePage(sortType, null, PAGE_SIZE).getLast());
+        List<String> next = membershipIndex
+                .getTeamsOnUser(USER_ID, PaginationType.CURSOR, PAGE_SIZE, 0, fromDatabase, sortType, false)
+                .orElseThrow()
+                .getData().stream().map(TeamUserEntity::getTeamUserId).toList();
+        assertThat(next).containsExactlyElementsOf(all.subList(PAGE_SIZE, PAGE_SIZE * 2));
+    }
+
+    private List<TeamUserView> databasePage(TeamOnUserSortType sortType, TeamUserCursor cursor, int limit) {
+        return projectionQueryExecutor.findTeamUsers(
+                Specification.where(TeamUserSpecifications.whereUserId(USER_ID))
+                        .and(TeamUserSpecifications.afterCursor(sortType, cursor)),
+                sort(sortType), 0, limit, TeamFields.ALL);
+    }
+
+    private static Sort sort(TeamOnUserSortType sortType) {
+        return switch (sortType) {
+            case ADD_AT_ASC -> Sort.by(Sort.Order.asc("createdAt"), Sort.Order.asc("teamUserId"));
+            case ADD_AT_DESC -> Sort.by(Sort.Order.desc("createdAt"), Sort.Order.desc("teamUserId"));
+            case NAME_ASC -> Sort.by(Sort.Order.asc("team.name"), Sort.Order.desc("createdAt"), Sort.Order.desc("teamUserId"));
+            case NAME_DESC -> Sort.by(Sort.Order.desc("team.name"), Sort.Order.desc("createdAt"), Sort.Order.desc("teamUserId"));
+            case CREATED_AT_ASC -> Sort.by(Sort.Order.asc("team.createdAt"), Sort.Order.desc("createdAt"), Sort.Order.desc("teamUserId"));
+            case CREATED_AT_DESC -> Sort.by(Sort.Order.desc("team.createdAt"), Sort.Order.desc("createdAt"), Sort.Order.desc("teamUserId"));
+        };
+    }
+
+    private static List<String> teamUserIds(List<TeamUserView> views) {
+        return views.stream().map(TeamUserView::teamUserId).toList();
+    }
+}
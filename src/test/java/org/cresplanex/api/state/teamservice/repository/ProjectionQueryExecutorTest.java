@@ -0,0 +1,129 @@
+package org.cresplanex.api.state.teamservice.repository;
+
+import org.cresplanex.api.state.teamservice.PostgresContainerConfiguration;
+import org.cresplanex.api.state.teamservice.SqlCapture;
+import org.cresplanex.api.state.teamservice.TeamFixtures;
+import org.cresplanex.api.state.teamservice.cursor.TeamUserCursor;
+import org.cresplanex.api.state.teamservice.enums.TeamOnUserSortType;
+import org.cresplanex.api.state.teamservice.repository.projection.TeamFields;
+import org.cresplanex.api.state.teamservice.repository.projection.TeamUserView;
+import org.cresplanex.api.state.teamservice.repository.projection.TeamView;
+import org.cresplanex.api.state.teamservice.specification.TeamSpecifications;
+import org.cresplanex.api.state.teamservice.specification.TeamUserSpecifications;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * ProjectionQueryExecutorのTupleから射影への変換と, 関連先の列を参照する場合のJOINの数.
+ */
+@DataJpaTest(properties =
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=org.cresplanex.api.state.teamservice.SqlCapture")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({PostgresContainerConfiguration.class, ProjectionQueryExecutor.class})
+class ProjectionQueryExecutorTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2026, 1, 1, 0, 0);
+    private static final Pattern JOIN_TEAMS = Pattern.compile("\\bjoin\\s+teams\\b", Pattern.CASE_INSENSITIVE);
+    private static final TeamFields NAME_ONLY = new TeamFields(false, true, false, false, false, false);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ProjectionQueryExecutor projectionQueryExecutor;
+
+    @BeforeEach
+    void setUp() {
+        TeamFixtures.insertTeam(jdbcTemplate, "team-1", "org-1", "beta", BASE, true);
+        TeamFixtures.insertTeam(jdbcTemplate, "team-2", "org-1", "alpha", BASE.plusSeconds(1), false);
+        jdbcTemplate.update("UPDATE teams SET description = 'first' WHERE team_id = 'team-1'");
+        TeamFixtures.insertTeamUser(jdbcTemplate, "tu-1", "team-1", "user-1", BASE.plusSeconds(10));
+        TeamFixtures.insertTeamUser(jdbcTemplate, "tu-2", "team-1", "user-2", BASE.plusSeconds(11));
+        TeamFixtures.insertTeamUser(jdbcTemplate, "tu-3", "team-2", "user-1", BASE.plusSeconds(12));
+    }
+
+    @Test
+    void mapsAllTeamColumns() {
+        List<TeamView> teams = projectionQueryExecutor.findTeams(
+                TeamSpecifications.whereTeamIds(List.of("team-1")), Sort.by("teamId"), 0, ProjectionQueryExecutor.UNLIMITED,
+                TeamFields.ALL);
+
+        assertThat(teams).containsExactly(
+                new TeamView("team-1", "org-1", "beta", "first", true, 2, BASE));
+    }
+
+    @Test
+    void leavesUnselectedTeamColumnsEmpty() {
+        List<TeamView> teams = projectionQueryExecutor.findTeams(
+                TeamSpecifications.whereTeamIds(List.of("team-1")), Sort.by("teamId"), 0, ProjectionQueryExecutor.UNLIMITED,
+                NAME_ONLY);
+
+        // 読み込まない列はnull(isDefaultはfalse, memberCountは0)
+        assertThat(teams).containsExactly(
+                new TeamView("team-1", null, "beta", null, false, 0, BASE));
+        assertThat(SqlCapture.last()).doesNotContain("description", "member_count", "organization_id");
+    }
+
+    @Test
+    void mapsTeamUsersWithAndWithoutJoinedTeam() {
+        Sort sort = Sort.by(Sort.Order.asc("createdAt"), Sort.Order.asc("teamUserId"));
+
+        List<TeamUserView> withoutTeam = projectionQueryExecutor.findTeamUsers(
+                TeamUserSpecifications.whereTeamId("team-1"), sort, 0, ProjectionQueryExecutor.UNLIMITED, null);
+        assertThat(withoutTeam).containsExactly(
+                new TeamUserView("tu-1", "team-1", "user-1", BASE.plusSeconds(10), null),
+                new TeamUserView("tu-2", "team-1", "user-2", BASE.plusSeconds(11), null));
+        assertThat(JOIN_TEAMS.matcher(SqlCapture.last()).find()).isFalse();
+
+        List<TeamUserView> withTeam = projectionQueryExecutor.findTeamUsers(
+                TeamUserSpecifications.whereUserId("user-1"), sort, 0, ProjectionQueryExecutor.UNLIMITED, TeamFields.ALL);
+        assertThat(withTeam).containsExactly(
+                new TeamUserView("tu-1", "team-1", "user-1", BASE.plusSeconds(10),
+                        new TeamView("team-1", "org-1", "beta", "first", true, 2, BASE)),
+                new TeamUserView("tu-3", "team-2", "user-1", BASE.plusSeconds(12),
+                        new TeamView("team-2", "org-1", "alpha", null, false, 1, BASE.plusSeconds(1))));
+    }
+
+    @Test
+    void cursorSortAndProjectionShareOneJoin() {
+        Sort sort = Sort.by(Sort.Order.asc("team.name"), Sort.Order.desc("createdAt"), Sort.Order.desc("teamUserId"));
+
+        List<TeamUserView> first = projectionQueryExecutor.findTeamUsers(
+                TeamUserSpecifications.whereUserId("user-1"), sort, 0, 1, NAME_ONLY);
+        assertThat(first).extracting(TeamUserView::teamId).containsExactly("team-2");
+
+        SqlCapture.clear();
+        TeamUserCursor cursor = TeamUserCursor.of(TeamOnUserSortType.NAME_ASC, first.getLast());
+        List<TeamUserView> second = projectionQueryExecutor.findTeamUsers(
+                Specification.where(TeamUserSpecifications.whereUserId("user-1"))
+                        .and(TeamUserSpecifications.afterCursor(TeamOnUserSortType.NAME_ASC, cursor)),
+                sort, 0, 1, NAME_ONLY);
+        assertThat(second).extracting(TeamUserView::teamId).containsExactly("team-1");
+
+        // 射影の列, カーソルの条件, ソートがすべて1つのJOINを参照する
+        assertThat(countJoins(SqlCapture.last())).isEqualTo(1);
+    }
+
+    private static int countJoins(String sql) {
+        Matcher matcher = JOIN_TEAMS.matcher(sql);
+        int count = 0;
+        while (matcher.find()) {
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,140 @@
+package org.cresplanex.api.state.teamservice.repository;
+
+import org.cresplanex.api.state.teamservice.PostgresContainerConfiguration;
+import org.cresplanex.api.state.teamservice.TeamFixtures;
+import org.cresplanex.api.state.teamservice.entity.TeamEntity;
+import org.cresplanex.api.state.teamservice.entity.TeamUserEntity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * addUsersの書き込みの比較. 1, 100, 10,000ユーザーを新しいチームへ追加し, 1トランザクションのコミットまでの時間を測る.
+ * <ul>
+ *     <li>writer: TeamMembershipWriter.addToTeam(INSERT ... ON CONFLICTの1文とteamsの更新)</li>
+ *     <li>legacy: 以前の実装. 既存メンバーの確認, チームの取得, saveAllによるエンティティごとのINSERT</li>
+ * </ul>
+ * legacyはteamsのmember_countとversionを更新しないため, writerに不利な比較になる.
+ * 通常のテストからは除外しており, {@code ./gradlew benchmark}で実行する.
+ */
+@Tag("benchmark")
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({PostgresContainerConfiguration.class, TeamMembershipWriter.class, TeamMembershipWriterBenchmark.Auditor.class})
+class TeamMembershipWriterBenchmark {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2026, 1, 1, 0, 0);
+    private static final int[] SIZES = {1, 100, 10_000};
+    private static final int WARMUP = 3;
+    private static final int RUNS = 5;
+
+    @TestConfiguration(proxyBeanMethods = false)
+    static class Auditor {
+
+        @Bean
+        AuditorAware<String> auditorProvider() {
+            return () -> Optional.of("operator-1");
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private TeamMembershipWriter teamMembershipWriter;
+
+    @Autowired
+    private TeamRepository teamRepository;
+
+    @Autowired
+    private TeamUserRepository teamUserRepository;
+
+    private int teams;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM team_user");
+        jdbcTemplate.update("DELETE FROM teams");
+    }
+
+    @Test
+    void addUsers() {
+        System.out.printf("%8s %14s %14s%n", "users", "writer ms", "legacy ms");
+        for (int size : SIZES) {
+            double writer = measure(size, (teamId, userIds) -> teamMembershipWriter.addToTeam(teamId, userIds));
+            double legacy = measure(size, this::addUsersLegacy);
+            System.out.printf("%8d %14.2f %14.2f%n", size, writer, legacy);
+        }
+    }
+
+    /**
+     * 新しいチームへsize人を追加する処理をWARMUP回実行した後, RUNS回の中央値(ミリ秒)を返す.
+     */
+    private double measure(int size, BiConsumer<String, List<String>> addUsers) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        double[] elapsed = new double[RUNS];
+        for (int run = 0; run < WARMUP + RUNS; run++) {
+            String teamId = "team-bench-%d".formatted(teams++);
+            TeamFixtures.insertTeam(jdbcTemplate, teamId, "org-bench", teamId, BASE, false);
+            List<String> userIds = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                userIds.add("user-%d".formatted(i));
+            }
+
+            long start = System.nanoTime();
+            transaction.executeWithoutResult(status -> addUsers.accept(teamId, userIds));
+            long nanos = System.nanoTime() - start;
+
+            assertThat(TeamFixtures.teamUserRows(jdbcTemplate, teamId)).isEqualTo(size);
+            if (run >= WARMUP) {
+                elapsed[run - WARMUP] = nanos / 1_000_000.0;
+            }
+        }
+        Arrays.sort(elapsed);
+        return elapsed[RUNS / 2];
+    }
+
+    /**
+     * TeamMembershipWriter導入前のTeamService.addUsersの書き込み.
+     */
+    private void addUsersLegacy(String teamId, List<String> userIds) {
+        List<TeamUserEntity> existUsers = teamUserRepository.findAllByTeamIdAndUserIds(
+                teamId, userIds.toArray(String[]::new));
+        assertThat(existUsers).isEmpty();
+        TeamEntity team = teamRepository.findById(teamId).orElseThrow();
+        List<TeamUserEntity> users = userIds.stream()
+                .map(userId -> {
+                    TeamUserEntity user = new TeamUserEntity();
+                    user.setUserId(userId);
+                    user.setTeam(team);
+                    return user;
+                })
+                .toList();
+        teamUserRepository.saveAll(users);
+    }
+}
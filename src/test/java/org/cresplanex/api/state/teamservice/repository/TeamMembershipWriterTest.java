@@ -0,0 +1,145 @@
+package org.cresplanex.api.state.teamservice.repository;
+
+import org.cresplanex.api.state.teamservice.PostgresContainerConfiguration;
+import org.cresplanex.api.state.teamservice.SqlCapture;
+import org.cresplanex.api.state.teamservice.TeamFixtures;
+import org.cresplanex.api.state.teamservice.entity.TeamUserEntity;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * TeamMembershipWriterのINSERT ... ON CONFLICTによる追加と, メンバーを変更した際のteamsの更新.
+ */
+@DataJpaTest(properties =
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=org.cresplanex.api.state.teamservice.SqlCapture")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({PostgresContainerConfiguration.class, TeamMembershipWriter.class, TeamMembershipWriterTest.Auditor.class})
+class TeamMembershipWriterTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2026, 1, 1, 0, 0);
+    private static final String OPERATOR = "operator-1";
+
+    @TestConfiguration(proxyBeanMethods = false)
+    static class Auditor {
+
+        @Bean
+        AuditorAware<String> auditorProvider() {
+            return () -> Optional.of(OPERATOR);
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TeamMembershipWriter teamMembershipWriter;
+
+    @BeforeEach
+    void setUp() {
+        TeamFixtures.insertTeam(jdbcTemplate, "team-1", "org-1", "team", BASE, false);
+        TeamFixtures.insertTeam(jdbcTemplate, "team-default", "org-1", "default", BASE, true);
+        TeamFixtures.insertTeamUser(jdbcTemplate, "tu-existing", "team-1", "user-existing", BASE);
+        SqlCapture.clear();
+    }
+
+    @Test
+    void insertsDistinctUsersInOneStatement() {
+        TeamMembershipWriter.Result result = teamMembershipWriter.addToTeam(
+                "team-1", List.of("user-1", "user-2", "user-1"));
+
+        assertThat(result.team().getTeamId()).isEqualTo("team-1");
+        assertThat(result.team().getOrganizationId()).isEqualTo("org-1");
+        assertThat(result.alreadyMemberUserIds()).isEmpty();
+        assertThat(result.added()).extracting(TeamUserEntity::getUserId).containsExactlyInAnyOrder("user-1", "user-2");
+        // 挿入した行のcreated_atとversionを返す
+        assertThat(result.added()).allSatisfy(teamUser -> {
+            assertThat(teamUser.getTeamId()).isEqualTo("team-1");
+            assertThat(teamUser.getTeamUserId()).isNotBlank();
+            assertThat(teamUser.getCreatedAt()).isNotNull();
+            assertThat(teamUser.getVersion()).isEqualTo(0);
+        });
+        assertThat(SqlCapture.statements()).hasSize(1);
+
+        assertThat(TeamFixtures.teamUserRows(jdbcTemplate, "team-1")).isEqualTo(3);
+        assertThat(TeamFixtures.memberCount(jdbcTemplate, "team-1")).isEqualTo(3);
+        assertThat(version("team-1")).isEqualTo(1);
+        assertThat(updatedBy("team-1")).isEqualTo(OPERATOR);
+        assertThat(createdAtOf(result.added().getFirst().getTeamUserId()))
+                .isEqualTo(result.added().getFirst().getCreatedAt());
+    }
+
+    @Test
+    void insertsNothingWhenAnyUserIsAlreadyMember() {
+        TeamMembershipWriter.Result result = teamMembershipWriter.addToTeam(
+                "team-1", List.of("user-1", "user-existing"));
+
+        assertThat(result.added()).isEmpty();
+        assertThat(result.alreadyMemberUserIds()).containsExactly("user-existing");
+        assertThat(TeamFixtures.teamUserRows(jdbcTemplate, "team-1")).isEqualTo(1);
+        assertThat(TeamFixtures.memberCount(jdbcTemplate, "team-1")).isEqualTo(1);
+        assertThat(version("team-1")).isZero();
+    }
+
+    @Test
+    void returnsNoTeamWhenTeamDoesNotExist() {
+        TeamMembershipWriter.Result result = teamMembershipWriter.addToTeam("team-missing", List.of("user-1"));
+
+        assertThat(result.team()).isNull();
+        assertThat(TeamFixtures.teamUserRows(jdbcTemplate, "team-missing")).isZero();
+    }
+
+    @Test
+    void addsToTheOrganizationsDefaultTeam() {
+        TeamMembershipWriter.Result result = teamMembershipWriter.addToDefaultTeam("org-1", List.of("user-1"));
+
+        assertThat(result.team().getTeamId()).isEqualTo("team-default");
+        assertThat(result.added()).extracting(TeamUserEntity::getUserId).containsExactly("user-1");
+        assertThat(TeamFixtures.memberCount(jdbcTemplate, "team-default")).isEqualTo(1);
+        assertThat(version("team-default")).isEqualTo(1);
+    }
+
+    @Test
+    void removeMembersDecrementsCountAndBumpsVersion() {
+        TeamMembershipWriter.Result added = teamMembershipWriter.addToTeam("team-1", List.of("user-1", "user-2"));
+        List<String> teamUserIds = added.added().stream().map(TeamUserEntity::getTeamUserId).toList();
+
+        TeamMembershipWriter.Removal removal = teamMembershipWriter.removeMembers(
+                List.of(teamUserIds.get(0), teamUserIds.get(1), "tu-missing"));
+
+        assertThat(removal.removedUsers()).isEqualTo(2);
+        assertThat(removal.teamIds()).containsExactly("team-1");
+        assertThat(TeamFixtures.memberCount(jdbcTemplate, "team-1")).isEqualTo(1);
+        assertThat(version("team-1")).isEqualTo(2);
+
+        // 再実行しても何も変わらない
+        assertThat(teamMembershipWriter.removeMembers(teamUserIds).removedUsers()).isZero();
+        assertThat(version("team-1")).isEqualTo(2);
+    }
+
+    private int version(String teamId) {
+        return jdbcTemplate.queryForObject("SELECT version FROM teams WHERE team_id = ?", Integer.class, teamId);
+    }
+
+    private String updatedBy(String teamId) {
+        return jdbcTemplate.queryForObject("SELECT updated_by FROM teams WHERE team_id = ?", String.class, teamId);
+    }
+
+    private LocalDateTime createdAtOf(String teamUserId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT created_at FROM team_user WHERE team_user_id = ?", LocalDateTime.class, teamUserId);
+    }
+}
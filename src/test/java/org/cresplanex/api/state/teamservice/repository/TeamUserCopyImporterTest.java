@@ -0,0 +1,201 @@
+package org.cresplanex.api.state.teamservice.repository;
+
+import org.cresplanex.api.state.teamservice.PostgresContainerConfiguration;
+import org.cresplanex.api.state.teamservice.TeamFixtures;
+import org.cresplanex.api.state.teamservice.config.MembershipImportProperties;
+import org.cresplanex.api.state.teamservice.exception.TooManyMembershipImportsException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * TeamUserCopyImporterのCOPYによる取り込み. 取り込みは独自の接続でコミットするため, テストのトランザクションは使わず後始末する.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({PostgresContainerConfiguration.class, TeamUserCopyImporter.class, TeamUserCopyImporterTest.Config.class})
+class TeamUserCopyImporterTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2026, 1, 1, 0, 0);
+    private static final String OPERATOR = "importer";
+
+    @TestConfiguration(proxyBeanMethods = false)
+    static class Config {
+
+        @Bean
+        AuditorAware<String> auditorProvider() {
+            return () -> Optional.of(OPERATOR);
+        }
+
+        @Bean
+        MembershipImportProperties membershipImportProperties() {
+            MembershipImportProperties properties = new MembershipImportProperties();
+            properties.setMaxConcurrentImports(1);
+            // 最小のバッファにして, finishの前にCOPYへ書き込まれるようにする
+            properties.setCopyBufferSize(1024);
+            properties.setReportSampleSize(2);
+            return properties;
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TeamUserCopyImporter importer;
+
+    @BeforeEach
+    void setUp() {
+        TeamFixtures.insertTeam(jdbcTemplate, "team-1", "org-1", "team-1", BASE, false);
+        TeamFixtures.insertTeam(jdbcTemplate, "team-2", "org-1", "team-2", BASE, false);
+        TeamFixtures.insertTeamUser(jdbcTemplate, "tu-existing", "team-1", "user-existing", BASE);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP TRIGGER IF EXISTS team_user_import_fail ON team_user");
+        jdbcTemplate.execute("DROP FUNCTION IF EXISTS team_user_import_fail()");
+        jdbcTemplate.update("DELETE FROM team_user");
+        jdbcTemplate.update("DELETE FROM teams");
+    }
+
+    @Test
+    void mergesStagedRowsAndReportsTheOutcome() {
+        TeamUserCopyImporter.Result result;
+        try (TeamUserCopyImporter.Session session = importer.open()) {
+            session.add("team-1", "user-1");
+            session.add("team-1", "user-1");
+            session.add("team-1", "user-existing");
+            session.add("team-2", "user-\"quoted\",1");
+            session.add("team-missing", "user-1");
+            session.add("team-1", " ");
+            session.add(null, "user-2");
+            result = session.finish();
+        }
+
+        assertThat(result.received()).isEqualTo(7);
+        assertThat(result.rejected()).isEqualTo(2);
+        assertThat(result.duplicates()).isEqualTo(1);
+        assertThat(result.inserted()).isEqualTo(2);
+        assertThat(result.alreadyMembers()).isEqualTo(1);
+        assertThat(result.missingTeams()).isEqualTo(1);
+        assertThat(result.alreadyMemberSamples()).containsExactly(new TeamUserCopyImporter.Row("team-1", "user-existing"));
+        assertThat(result.missingTeamSamples()).containsExactly(new TeamUserCopyImporter.Row("team-missing", "user-1"));
+        assertThat(result.changedTeamIds()).containsExactlyInAnyOrder("team-1", "team-2");
+
+        assertThat(TeamFixtures.teamUserRows(jdbcTemplate, "team-1")).isEqualTo(2);
+        assertThat(TeamFixtures.memberCount(jdbcTemplate, "team-1")).isEqualTo(2);
+        assertThat(TeamFixtures.memberCount(jdbcTemplate, "team-2")).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT user_id FROM team_user WHERE team_id = 'team-2'", String.class)).isEqualTo("user-\"quoted\",1");
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT version FROM teams WHERE team_id = 'team-1'", Integer.class)).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT updated_by FROM teams WHERE team_id = 'team-1'", String.class)).isEqualTo(OPERATOR);
+    }
+
+    @Test
+    void limitsSampleSizeButCountsEveryRow() {
+        TeamUserCopyImporter.Result result;
+        try (TeamUserCopyImporter.Session session = importer.open()) {
+            for (int i = 0; i < 5; i++) {
+                session.add("team-missing", "user-" + i);
+            }
+            result = session.finish();
+        }
+
+        assertThat(result.missingTeams()).isEqualTo(5);
+        assertThat(result.missingTeamSamples()).hasSize(2);
+        assertThat(result.inserted()).isZero();
+        assertThat(result.changedTeamIds()).isEmpty();
+    }
+
+    @Test
+    void closingWithoutFinishAppliesNothing() {
+        try (TeamUserCopyImporter.Session session = importer.open()) {
+            // バッファを何度も溢れさせ, COPYへ書き込んだ後に取り消す
+            for (int i = 0; i < 500; i++) {
+                session.add("team-2", "user-" + i);
+            }
+        }
+
+        assertThat(TeamFixtures.teamUserRows(jdbcTemplate, "team-2")).isZero();
+        assertThat(TeamFixtures.memberCount(jdbcTemplate, "team-2")).isZero();
+        assertThatOpenSucceedsAgain();
+    }
+
+    @Test
+    void failedMergeRollsBackEveryRow() {
+        jdbcTemplate.execute("""
+                CREATE FUNCTION team_user_import_fail() RETURNS trigger AS $$
+                BEGIN
+                    RAISE EXCEPTION 'rejected %', NEW.user_id;
+                END
+                $$ LANGUAGE plpgsql
+                """);
+        jdbcTemplate.execute("""
+                CREATE TRIGGER team_user_import_fail BEFORE INSERT ON team_user
+                FOR EACH ROW WHEN (NEW.user_id = 'user-fail') EXECUTE FUNCTION team_user_import_fail()
+                """);
+
+        try (TeamUserCopyImporter.Session session = importer.open()) {
+            session.add("team-1", "user-1");
+            session.add("team-2", "user-2");
+            session.add("team-2", "user-fail");
+            assertThatThrownBy(session::finish).isInstanceOf(DataAccessException.class);
+        }
+
+        assertThat(TeamFixtures.teamUserRows(jdbcTemplate, "team-1")).isEqualTo(1);
+        assertThat(TeamFixtures.teamUserRows(jdbcTemplate, "team-2")).isZero();
+        assertThat(TeamFixtures.memberCount(jdbcTemplate, "team-1")).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT version FROM teams WHERE team_id = 'team-1'", Integer.class)).isZero();
+        assertThatOpenSucceedsAgain();
+    }
+
+    @Test
+    void finishCannotBeCalledTwice() {
+        try (TeamUserCopyImporter.Session session = importer.open()) {
+            session.add("team-1", "user-1");
+            session.finish();
+            assertThatThrownBy(session::finish).isInstanceOf(IllegalStateException.class);
+        }
+
+        assertThat(TeamFixtures.teamUserRows(jdbcTemplate, "team-1")).isEqualTo(2);
+    }
+
+    @Test
+    void rejectsImportsBeyondTheConcurrencyLimit() {
+        try (TeamUserCopyImporter.Session ignored = importer.open()) {
+            assertThatThrownBy(importer::open).isInstanceOf(TooManyMembershipImportsException.class);
+        }
+        assertThatOpenSucceedsAgain();
+    }
+
+    /**
+     * closeで接続と同時実行数の枠が返され, 一時テーブルも残っていないことを確かめる.
+     */
+    private void assertThatOpenSucceedsAgain() {
+        try (TeamUserCopyImporter.Session session = importer.open()) {
+            assertThat(session.finish().inserted()).isZero();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.cresplanex.api.state.teamservice.repository;
+
+import org.cresplanex.api.state.teamservice.PostgresContainerConfiguration;
+import org.cresplanex.api.state.teamservice.TeamFixtures;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * TeamUserRepository.findTopMembersByTeamIdsのチームごとの先頭N件とメンバー数.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(PostgresContainerConfiguration.class)
+class TeamUserRepositoryTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2026, 1, 1, 0, 0);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TeamUserRepository teamUserRepository;
+
+    @BeforeEach
+    void setUp() {
+        TeamFixtures.insertTeam(jdbcTemplate, "team-large", "org-1", "large", BASE, false);
+        TeamFixtures.insertTeam(jdbcTemplate, "team-small", "org-1", "small", BASE, false);
+        TeamFixtures.insertTeam(jdbcTemplate, "team-empty", "org-1", "empty", BASE, false);
+        for (int i = 0; i < 5; i++) {
+            // 追加日時の同じ行はteam_user_id順になる
+            TeamFixtures.insertTeamUser(jdbcTemplate, "tu-large-%d".formatted(4 - i), "team-large", "user-" + i,
+                    BASE.plusSeconds(i / 2));
+        }
+        TeamFixtures.insertTeamUser(jdbcTemplate, "tu-small-0", "team-small", "user-0", BASE);
+    }
+
+    @Test
+    void returnsTheFirstMembersOfEachTeamWithItsMemberCount() {
+        List<TeamUserRepository.TeamMemberRow> rows = teamUserRepository.findTopMembersByTeamIds(
+                new String[]{"team-large", "team-small", "team-empty", "team-missing"}, 3);
+
+        Map<String, List<String>> members = rows.stream()
+                .filter(row -> row.getTeamUserId() != null)
+                .collect(Collectors.groupingBy(TeamUserRepository.TeamMemberRow::getTeamId,
+                        Collectors.mapping(TeamUserRepository.TeamMemberRow::getTeamUserId, Collectors.toList())));
+        assertThat(members.get("team-large")).containsExactly("tu-large-3", "tu-large-4", "tu-large-1");
+        assertThat(members.get("team-small")).containsExactly("tu-small-0");
+        assertThat(members).doesNotContainKey("team-empty");
+
+        Map<String, Integer> memberCounts = rows.stream()
+                .collect(Collectors.toMap(TeamUserRepository.TeamMemberRow::getTeamId,
+                        TeamUserRepository.TeamMemberRow::getMemberCount, (a, b) -> a));
+        // メンバーのいないチームも1行返り, 存在しないチームは返らない
+        assertThat(memberCounts).containsExactlyInAnyOrderEntriesOf(
+                Map.of("team-large", 5, "team-small", 1, "team-empty", 0));
+    }
+}
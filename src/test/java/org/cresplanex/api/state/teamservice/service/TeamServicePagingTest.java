@@ -0,0 +1,199 @@
+package org.cresplanex.api.state.teamservice.service;
+
+import org.cresplanex.api.state.common.enums.PaginationType;
+import org.cresplanex.api.state.teamservice.PostgresContainerConfiguration;
+import org.cresplanex.api.state.teamservice.TeamFixtures;
+import org.cresplanex.api.state.teamservice.cache.OrganizationGenerations;
+import org.cresplanex.api.state.teamservice.cache.TeamCache;
+import org.cresplanex.api.state.teamservice.cache.TeamChangeNotifier;
+import org.cresplanex.api.state.teamservice.cache.TeamCountCache;
+import org.cresplanex.api.state.teamservice.cache.TeamExistenceFilter;
+import org.cresplanex.api.state.teamservice.cache.TeamListCache;
+import org.cresplanex.api.state.teamservice.config.ListQueryProperties;
+import org.cresplanex.api.state.teamservice.cursor.ListEntityWithCursor;
+import org.cresplanex.api.state.teamservice.entity.TeamEntity;
+import org.cresplanex.api.state.teamservice.enums.CountStrategy;
+import org.cresplanex.api.state.teamservice.enums.TeamSortType;
+import org.cresplanex.api.state.teamservice.exception.InvalidCursorException;
+import org.cresplanex.api.state.teamservice.filter.team.IsDefaultFilter;
+import org.cresplanex.api.state.teamservice.filter.team.OrganizationFilter;
+import org.cresplanex.api.state.teamservice.filter.team.UsersFilter;
+import org.cresplanex.api.state.teamservice.index.MembershipIndex;
+import org.cresplanex.api.state.teamservice.repository.ChunkedQueryExecutor;
+import org.cresplanex.api.state.teamservice.repository.CountEstimator;
+import org.cresplanex.api.state.teamservice.repository.ProjectionQueryExecutor;
+import org.cresplanex.api.state.teamservice.repository.TeamMembershipWriter;
+import org.cresplanex.api.state.teamservice.repository.TeamUserBatchWriter;
+import org.cresplanex.api.state.teamservice.repository.TeamUserCopyImporter;
+import org.cresplanex.api.state.teamservice.repository.projection.TeamFields;
+import org.cresplanex.api.state.teamservice.saga.model.team.AddUsersTeamSaga;
+import org.cresplanex.api.state.teamservice.saga.model.team.CreateTeamSaga;
+import org.cresplanex.api.state.teamservice.saga.model.team.ReconcileUsersTeamSaga;
+import org.cresplanex.core.saga.orchestration.SagaInstanceFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * TeamService.get(findTeamPage)のキーセットページング.
+ * 全ソート種別で, 返されたカーソルで辿ったページがOFFSETで読んだページと一致し, 最後のページでカーソルが返らないことを確認する.
+ * 一覧の経路で使わない依存はモックにする(一覧結果のキャッシュは無効).
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({
+        PostgresContainerConfiguration.class,
+        TeamService.class,
+        ProjectionQueryExecutor.class,
+        ListQueryRunner.class,
+        TeamWithUsersLoader.class,
+        TeamServicePagingTest.Config.class
+})
+class TeamServicePagingTest {
+
+    private static final String ORGANIZATION_ID = "org-page";
+    private static final LocalDateTime BASE = LocalDateTime.of(2026, 1, 1, 0, 0);
+    // 名前は4件, メンバー数は3件ごとに同値. 作成日時は8件ずつ同値のため, ソートキーと作成日時が共に同じ行はteamIdで並ぶ
+    private static final int TEAMS = 24;
+    // 件数がページサイズの倍数のため, 最後のページは満杯のまま次のカーソルを返さない
+    private static final int PAGE_SIZE = 6;
+    private static final TeamFields ID_ONLY = new TeamFields(false, false, false, false, false, false);
+
+    @TestConfiguration(proxyBeanMethods = false)
+    static class Config {
+
+        @Bean
+        ListQueryProperties listQueryProperties() {
+            ListQueryProperties properties = new ListQueryProperties();
+            properties.setConcurrent(false);
+            return properties;
+        }
+
+        @Bean(destroyMethod = "shutdown")
+        ExecutorService teamListQueryExecutor() {
+            return Executors.newVirtualThreadPerTaskExecutor();
+        }
+    }
+
+    @MockBean
+    private TeamMembershipWriter teamMembershipWriter;
+    @MockBean
+    private TeamUserBatchWriter teamUserBatchWriter;
+    @MockBean
+    private TeamUserCopyImporter teamUserCopyImporter;
+    @MockBean
+    private ChunkedQueryExecutor chunkedQueryExecutor;
+    @MockBean
+    private TeamSnapshotLoader teamSnapshotLoader;
+    @MockBean
+    private TeamCache teamCache;
+    @MockBean
+    private TeamExistenceFilter teamExistenceFilter;
+    @MockBean
+    private TeamCountCache teamCountCache;
+    @MockBean
+    private TeamListCache teamListCache;
+    @MockBean
+    private CountEstimator countEstimator;
+    @MockBean
+    private MembershipIndex membershipIndex;
+    @MockBean
+    private TeamChangeNotifier teamChangeNotifier;
+    @MockBean
+    private OrganizationGenerations organizationGenerations;
+    @MockBean
+    private SagaInstanceFactory sagaInstanceFactory;
+    @MockBean
+    private CreateTeamSaga createTeamSaga;
+    @MockBean
+    private AddUsersTeamSaga addUsersTeamSaga;
+    @MockBean
+    private ReconcileUsersTeamSaga reconcileUsersTeamSaga;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TeamService teamService;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < TEAMS; i++) {
+            String teamId = "team-%02d".formatted(i);
+            TeamFixtures.insertTeam(jdbcTemplate, teamId, ORGANIZATION_ID, "name-" + (i % 4), BASE.plusSeconds(i / 8), false);
+            for (int k = 0; k < i % 3; k++) {
+                TeamFixtures.insertTeamUser(jdbcTemplate, "tu-%02d-%d".formatted(i, k), teamId, "user-" + k, BASE);
+            }
+        }
+        // 組織の条件で除外されるチーム
+        TeamFixtures.insertTeam(jdbcTemplate, "team-elsewhere", "org-elsewhere", "name-0", BASE, false);
+    }
+
+    @ParameterizedTest
+    @EnumSource(TeamSortType.class)
+    void cursorPagesMatchOffsetPages(TeamSortType sortType) {
+        List<String> all = teamIds(get(PaginationType.NONE, 0, null, sortType));
+        assertThat(all).hasSize(TEAMS).doesNotContain("team-elsewhere");
+
+        List<String> visited = new ArrayList<>();
+        String cursor = null;
+        int pageNumber = 0;
+        do {
+            // 読み込む列にソートキーを含めなくても, カーソルに必要な列は読み込まれる
+            ListEntityWithCursor<TeamEntity> page = get(PaginationType.CURSOR, 0, cursor, sortType);
+            List<TeamEntity> offsetPage = get(PaginationType.OFFSET, pageNumber * PAGE_SIZE, null, sortType).getData();
+            assertThat(teamIds(page))
+                    .as("page %d", pageNumber)
+                    .hasSize(PAGE_SIZE)
+                    .containsExactlyElementsOf(offsetPage.stream().map(TeamEntity::getTeamId).toList());
+            visited.addAll(teamIds(page));
+            cursor = page.getNextCursor();
+            pageNumber++;
+        } while (cursor != null);
+
+        assertThat(pageNumber).isEqualTo(TEAMS / PAGE_SIZE);
+        assertThat(visited).containsExactlyElementsOf(all);
+    }
+
+    @Test
+    void rejectsCursorIssuedForAnotherSortOrder() {
+        String cursor = get(PaginationType.CURSOR, 0, null, TeamSortType.NAME_ASC).getNextCursor();
+
+        assertThatThrownBy(() -> get(PaginationType.CURSOR, 0, cursor, TeamSortType.MEMBER_COUNT_ASC))
+                .isInstanceOf(InvalidCursorException.class);
+        assertThatThrownBy(() -> get(PaginationType.CURSOR, 0, "not-a-cursor", TeamSortType.NAME_ASC))
+                .isInstanceOf(InvalidCursorException.class);
+    }
+
+    private ListEntityWithCursor<TeamEntity> get(
+            PaginationType paginationType, int offset, String cursor, TeamSortType sortType) {
+        return teamService.get(
+                paginationType, PAGE_SIZE, offset, cursor, sortType, false, CountStrategy.EXACT,
+                new IsDefaultFilter(false, false),
+                new OrganizationFilter(true, List.of(ORGANIZATION_ID)),
+                new UsersFilter(false, false, List.of()),
+                ID_ONLY);
+    }
+
+    private static List<String> teamIds(ListEntityWithCursor<TeamEntity> page) {
+        return page.getData().stream().map(TeamEntity::getTeamId).toList();
+    }
+}
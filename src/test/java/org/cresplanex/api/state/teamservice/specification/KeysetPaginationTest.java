@@ -0,0 +1,244 @@
+package org.cresplanex.api.state.teamservice.specification;
+
+import org.cresplanex.api.state.teamservice.PostgresContainerConfiguration;
+import org.cresplanex.api.state.teamservice.SqlCapture;
+import org.cresplanex.api.state.teamservice.TeamFixtures;
+import org.cresplanex.api.state.teamservice.cursor.TeamCursor;
+import org.cresplanex.api.state.teamservice.cursor.TeamUserCursor;
+import org.cresplanex.api.state.teamservice.entity.TeamEntity;
+import org.cresplanex.api.state.teamservice.enums.TeamOnUserSortType;
+import org.cresplanex.api.state.teamservice.enums.TeamSortType;
+import org.cresplanex.api.state.teamservice.enums.UserOnTeamSortType;
+import org.cresplanex.api.state.teamservice.repository.ProjectionQueryExecutor;
+import org.cresplanex.api.state.teamservice.repository.projection.TeamFields;
+import org.cresplanex.api.state.teamservice.repository.projection.TeamUserView;
+import org.cresplanex.api.state.teamservice.repository.projection.TeamView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * getUsersOnTeam, getTeamsOnUser, getTeamsのキーセットページング.
+ * ソートキーが同値の行がページ境界をまたぐ場合も, カーソルで辿った結果がOFFSETによる全件の並びと一致すること,
+ * 深いページでも先頭キーの範囲条件がインデックスの範囲(Index Cond)として使われることを確認する.
+ * getTeamsOnUserは先頭キーが結合先の列(team.name, team.createdAt)になり, 名前順は昇順と降順のキーが混在する.
+ */
+@DataJpaTest(properties =
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=org.cresplanex.api.state.teamservice.SqlCapture")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({PostgresContainerConfiguration.class, ProjectionQueryExecutor.class})
+class KeysetPaginationTest {
+
+    private static final String TEAM_ID = "team-keyset";
+    private static final LocalDateTime BASE = LocalDateTime.of(2026, 1, 1, 0, 0);
+    private static final int MEMBERS = 95;
+    // 同じcreatedAtの行を5件ずつ作るため, 7件のページでは境界が同値の行の途中に来る
+    private static final int TIES = 5;
+    private static final int PAGE_SIZE = 7;
+    private static final String USER_ID = "user-many";
+    // 名前, チームの作成日時, 追加日時がそれぞれ別の周期で同値になるチームに所属させる
+    private static final int USER_TEAMS = 23;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ProjectionQueryExecutor projectionQueryExecutor;
+
+    @BeforeEach
+    void setUp() {
+        TeamFixtures.insertTeam(jdbcTemplate, TEAM_ID, "org-keyset", "keyset", BASE, false);
+        TeamFixtures.insertTeam(jdbcTemplate, "team-other", "org-keyset", "other", BASE, false);
+        for (int i = 0; i < MEMBERS; i++) {
+            LocalDateTime createdAt = BASE.plusSeconds(i / TIES);
+            TeamFixtures.insertTeamUser(jdbcTemplate, "tu-%03d".formatted(i), TEAM_ID, "user-%03d".formatted(i), createdAt);
+            TeamFixtures.insertTeamUser(jdbcTemplate, "tu-other-%03d".formatted(i), "team-other", "user-%03d".formatted(i), createdAt);
+        }
+        for (int i = 0; i < USER_TEAMS; i++) {
+            String teamId = "team-u-%02d".formatted(i);
+            TeamFixtures.insertTeam(jdbcTemplate, teamId, "org-keyset", "name-" + (i % 4), BASE.plusSeconds(i / 3), false);
+            TeamFixtures.insertTeamUser(jdbcTemplate, "tu-u-%02d".formatted(i), teamId, USER_ID, BASE.plusSeconds(i / 2));
+            // メンバー数も3件ずつ同値になるようにする
+            for (int k = 0; k < i % 3; k++) {
+                TeamFixtures.insertTeamUser(jdbcTemplate, "tu-u-%02d-%d".formatted(i, k), teamId, "user-extra-%d".formatted(k),
+                        BASE.plusSeconds(i / 2));
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(UserOnTeamSortType.class)
+    void cursorPagesMatchOffsetPages(UserOnTeamSortType sortType) {
+        Sort sort = sort(sortType);
+        List<String> all = teamUserIds(projectionQueryExecutor.findTeamUsers(
+                TeamUserSpecifications.whereTeamId(TEAM_ID), sort, 0, ProjectionQueryExecutor.UNLIMITED, null));
+        assertThat(all).hasSize(MEMBERS);
+
+        TeamUserCursor cursor = null;
+        int pageNumber = 0;
+        List<String> visited = new ArrayList<>();
+        while (true) {
+            List<TeamUserView> page = projectionQueryExecutor.findTeamUsers(
+                    Specification.where(TeamUserSpecifications.whereTeamId(TEAM_ID))
+                            .and(TeamUserSpecifications.afterCursor(sortType, cursor)),
+                    sort, 0, PAGE_SIZE, null);
+            if (page.isEmpty()) {
+                break;
+            }
+            // N番目のカーソルページは, 先頭からOFFSETで読んだN番目のページと同じ行
+            int from = pageNumber * PAGE_SIZE;
+            assertThat(teamUserIds(page))
+                    .as("page %d", pageNumber)
+                    .containsExactlyElementsOf(all.subList(from, Math.min(from + PAGE_SIZE, all.size())));
+            visited.addAll(teamUserIds(page));
+            cursor = TeamUserCursor.of(sortType, page.getLast());
+            pageNumber++;
+        }
+        assertThat(visited).containsExactlyElementsOf(all);
+    }
+
+    @ParameterizedTest
+    @EnumSource(TeamOnUserSortType.class)
+    void teamOnUserCursorPagesMatchOffsetPages(TeamOnUserSortType sortType) {
+        Sort sort = sort(sortType);
+        List<String> all = teamUserIds(projectionQueryExecutor.findTeamUsers(
+                TeamUserSpecifications.whereUserId(USER_ID), sort, 0, ProjectionQueryExecutor.UNLIMITED, TeamFields.ALL));
+        assertThat(all).hasSize(USER_TEAMS);
+
+        TeamUserCursor cursor = null;
+        int pageNumber = 0;
+        List<String> visited = new ArrayList<>();
+        while (true) {
+            List<TeamUserView> page = projectionQueryExecutor.findTeamUsers(
+                    Specification.where(TeamUserSpecifications.whereUserId(USER_ID))
+                            .and(TeamUserSpecifications.afterCursor(sortType, cursor)),
+                    sort, 0, PAGE_SIZE, TeamFields.ALL);
+            if (page.isEmpty()) {
+                break;
+            }
+            int from = pageNumber * PAGE_SIZE;
+            assertThat(teamUserIds(page))
+                    .as("page %d", pageNumber)
+                    .containsExactlyElementsOf(all.subList(from, Math.min(from + PAGE_SIZE, all.size())));
+            visited.addAll(teamUserIds(page));
+            // 文字列へ変換して戻したカーソルでも同じ位置から続ける
+            cursor = TeamUserCursor.decode(sortType, TeamUserCursor.of(sortType, page.getLast()).encode(sortType));
+            pageNumber++;
+        }
+        assertThat(visited).containsExactlyElementsOf(all);
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = TeamSortType.class, names = {"NAME_ASC", "NAME_DESC", "MEMBER_COUNT_ASC", "MEMBER_COUNT_DESC"})
+    void teamCursorPagesMatchOffsetPages(TeamSortType sortType) {
+        Sort sort = sort(sortType);
+        Specification<TeamEntity> userTeams = TeamSpecifications.whereTeamIds(teamIdsOfUser());
+        List<String> all = teamIds(projectionQueryExecutor.findTeams(
+                userTeams, sort, 0, ProjectionQueryExecutor.UNLIMITED, TeamFields.ALL));
+        assertThat(all).hasSize(USER_TEAMS);
+
+        TeamCursor cursor = null;
+        int pageNumber = 0;
+        List<String> visited = new ArrayList<>();
+        while (true) {
+            List<TeamView> page = projectionQueryExecutor.findTeams(
+                    Specification.where(userTeams).and(TeamSpecifications.afterCursor(sortType, cursor)),
+                    sort, 0, PAGE_SIZE, TeamFields.ALL);
+            if (page.isEmpty()) {
+                break;
+            }
+            int from = pageNumber * PAGE_SIZE;
+            assertThat(teamIds(page))
+                    .as("page %d", pageNumber)
+                    .containsExactlyElementsOf(all.subList(from, Math.min(from + PAGE_SIZE, all.size())));
+            visited.addAll(teamIds(page));
+            cursor = TeamCursor.decode(sortType, TeamCursor.of(sortType, page.getLast()).encode(sortType));
+            pageNumber++;
+        }
+        assertThat(visited).containsExactlyElementsOf(all);
+    }
+
+    @Test
+    void deepPageSeeksTheKeysetIndex() {
+        Sort sort = sort(UserOnTeamSortType.ADD_AT_ASC);
+        List<TeamUserView> all = projectionQueryExecutor.findTeamUsers(
+                TeamUserSpecifications.whereTeamId(TEAM_ID), sort, 0, ProjectionQueryExecutor.UNLIMITED, null);
+        TeamUserCursor deep = TeamUserCursor.of(UserOnTeamSortType.ADD_AT_ASC, all.get(MEMBERS - PAGE_SIZE * 2));
+
+        SqlCapture.clear();
+        projectionQueryExecutor.findTeamUsers(
+                Specification.where(TeamUserSpecifications.whereTeamId(TEAM_ID))
+                        .and(TeamUserSpecifications.afterCursor(UserOnTeamSortType.ADD_AT_ASC, deep)),
+                sort, 0, PAGE_SIZE, null);
+        String sql = SqlCapture.last();
+
+        // 件数が少ないためシーケンシャルスキャンを外し, インデックスの使い方だけを比べる
+        jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+        jdbcTemplate.execute("SET LOCAL enable_bitmapscan = off");
+        String plan = String.join("\n", jdbcTemplate.queryForList(SqlCapture.toGenericPlanQuery(sql), String.class));
+
+        assertThat(plan).contains("team_user_team_id_created_at_team_user_id_index");
+        // ORの連鎖だけではteam_idのみがIndex Condになる. 先頭キーの範囲もIndex Condに含まれること
+        assertThat(plan).containsPattern("Index Cond: .*created_at >= ");
+        assertThat(plan).doesNotContain("Sort Key");
+    }
+
+    private static Sort sort(UserOnTeamSortType sortType) {
+        return switch (sortType) {
+            case ADD_AT_ASC -> Sort.by(Sort.Order.asc("createdAt"), Sort.Order.asc("teamUserId"));
+            case ADD_AT_DESC -> Sort.by(Sort.Order.desc("createdAt"), Sort.Order.desc("teamUserId"));
+        };
+    }
+
+    private static Sort sort(TeamOnUserSortType sortType) {
+        return switch (sortType) {
+            case ADD_AT_ASC -> Sort.by(Sort.Order.asc("createdAt"), Sort.Order.asc("teamUserId"));
+            case ADD_AT_DESC -> Sort.by(Sort.Order.desc("createdAt"), Sort.Order.desc("teamUserId"));
+            case NAME_ASC -> Sort.by(Sort.Order.asc("team.name"), Sort.Order.desc("createdAt"), Sort.Order.desc("teamUserId"));
+            case NAME_DESC -> Sort.by(Sort.Order.desc("team.name"), Sort.Order.desc("createdAt"), Sort.Order.desc("teamUserId"));
+            case CREATED_AT_ASC -> Sort.by(Sort.Order.asc("team.createdAt"), Sort.Order.desc("createdAt"), Sort.Order.desc("teamUserId"));
+            case CREATED_AT_DESC -> Sort.by(Sort.Order.desc("team.createdAt"), Sort.Order.desc("createdAt"), Sort.Order.desc("teamUserId"));
+        };
+    }
+
+    private static Sort sort(TeamSortType sortType) {
+        return switch (sortType) {
+            case CREATED_AT_ASC -> Sort.by(Sort.Order.asc("createdAt"), Sort.Order.asc("teamId"));
+            case CREATED_AT_DESC -> Sort.by(Sort.Order.desc("createdAt"), Sort.Order.desc("teamId"));
+            case NAME_ASC -> Sort.by(Sort.Order.asc("name"), Sort.Order.desc("createdAt"), Sort.Order.desc("teamId"));
+            case NAME_DESC -> Sort.by(Sort.Order.desc("name"), Sort.Order.desc("createdAt"), Sort.Order.desc("teamId"));
+            case MEMBER_COUNT_ASC -> Sort.by(Sort.Order.asc("memberCount"), Sort.Order.asc("createdAt"), Sort.Order.asc("teamId"));
+            case MEMBER_COUNT_DESC -> Sort.by(Sort.Order.desc("memberCount"), Sort.Order.desc("createdAt"), Sort.Order.desc("teamId"));
+        };
+    }
+
+    private static List<String> teamIdsOfUser() {
+        List<String> teamIds = new ArrayList<>();
+        for (int i = 0; i < USER_TEAMS; i++) {
+            teamIds.add("team-u-%02d".formatted(i));
+        }
+        return teamIds;
+    }
+
+    private static List<String> teamIds(List<TeamView> views) {
+        return views.stream().map(TeamView::teamId).toList();
+    }
+
+    private static List<String> teamUserIds(List<TeamUserView> views) {
+        return views.stream().map(TeamUserView::teamUserId).toList();
+    }
+}
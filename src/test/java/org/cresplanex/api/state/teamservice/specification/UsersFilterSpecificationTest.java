@@ -0,0 +1,103 @@
+package org.cresplanex.api.state.teamservice.specification;
+
+import org.cresplanex.api.state.teamservice.PostgresContainerConfiguration;
+import org.cresplanex.api.state.teamservice.TeamFixtures;
+import org.cresplanex.api.state.teamservice.entity.TeamEntity;
+import org.cresplanex.api.state.teamservice.filter.team.UsersFilter;
+import org.cresplanex.api.state.teamservice.repository.TeamRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * TeamSpecifications.withBelongUsersFilterのall(GROUP BY/HAVING count(DISTINCT))とany(EXISTS)の結果.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(PostgresContainerConfiguration.class)
+class UsersFilterSpecificationTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2026, 1, 1, 0, 0);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TeamRepository teamRepository;
+
+    @BeforeEach
+    void setUp() {
+        // team-a: u1, u2, u3 / team-b: u1, u2 / team-c: u3 / team-d: メンバーなし
+        TeamFixtures.insertTeam(jdbcTemplate, "team-a", "org-1", "a", BASE, false);
+        TeamFixtures.insertTeam(jdbcTemplate, "team-b", "org-1", "b", BASE.plusSeconds(1), false);
+        TeamFixtures.insertTeam(jdbcTemplate, "team-c", "org-1", "c", BASE.plusSeconds(2), false);
+        TeamFixtures.insertTeam(jdbcTemplate, "team-d", "org-1", "d", BASE.plusSeconds(3), false);
+        TeamFixtures.insertTeamUser(jdbcTemplate, "tu-a1", "team-a", "u1", BASE);
+        TeamFixtures.insertTeamUser(jdbcTemplate, "tu-a2", "team-a", "u2", BASE);
+        TeamFixtures.insertTeamUser(jdbcTemplate, "tu-a3", "team-a", "u3", BASE);
+        TeamFixtures.insertTeamUser(jdbcTemplate, "tu-b1", "team-b", "u1", BASE);
+        TeamFixtures.insertTeamUser(jdbcTemplate, "tu-b2", "team-b", "u2", BASE);
+        TeamFixtures.insertTeamUser(jdbcTemplate, "tu-c3", "team-c", "u3", BASE);
+    }
+
+    @Test
+    void allModeReturnsTeamsContainingEveryUser() {
+        assertThat(find(false, "u1", "u2")).containsExactly("team-a", "team-b");
+        assertThat(find(false, "u1", "u3")).containsExactly("team-a");
+        assertThat(find(false, "u1", "u4")).isEmpty();
+    }
+
+    @Test
+    void allModeIgnoresDuplicatedUserIds() {
+        // 重複を数えるとHAVINGの件数が一致しなくなる
+        assertThat(find(false, "u1", "u2", "u1")).containsExactly("team-a", "team-b");
+        assertThat(find(false, "u3", "u3")).containsExactly("team-a", "team-c");
+    }
+
+    @Test
+    void allModeWithEmptyListDoesNotFilter() {
+        assertThat(find(false)).containsExactly("team-a", "team-b", "team-c", "team-d");
+    }
+
+    @Test
+    void anyModeReturnsEachMatchingTeamOnce() {
+        assertThat(find(true, "u2", "u3")).containsExactly("team-a", "team-b", "team-c");
+        assertThat(find(true, "u4")).isEmpty();
+    }
+
+    @Test
+    void anyModeIgnoresDuplicatedUserIds() {
+        assertThat(find(true, "u3", "u3", "u1")).containsExactly("team-a", "team-b", "team-c");
+    }
+
+    @Test
+    void anyModeWithEmptyListMatchesNothing() {
+        assertThat(find(true)).isEmpty();
+    }
+
+    @Test
+    void invalidFilterDoesNotFilter() {
+        List<String> teamIds = teamRepository.findAll(
+                        TeamSpecifications.withBelongUsersFilter(new UsersFilter(false, true, List.of("u4"))),
+                        Sort.by("teamId"))
+                .stream().map(TeamEntity::getTeamId).toList();
+        assertThat(teamIds).containsExactly("team-a", "team-b", "team-c", "team-d");
+    }
+
+    private List<String> find(boolean any, String... userIds) {
+        return teamRepository.findAll(
+                        TeamSpecifications.withBelongUsersFilter(new UsersFilter(true, any, List.of(userIds))),
+                        Sort.by("teamId"))
+                .stream().map(TeamEntity::getTeamId).toList();
+    }
+}